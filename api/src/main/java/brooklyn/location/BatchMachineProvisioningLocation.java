@@ -0,0 +1,23 @@
+package brooklyn.location;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link MachineProvisioningLocation} that can provision several machines at once, more cheaply
+ * than obtaining them one at a time (e.g. with a single request to a cloud provider).
+ */
+public interface BatchMachineProvisioningLocation<T extends MachineLocation> extends MachineProvisioningLocation<T> {
+    /**
+     * Obtain the given number of machines in this location, all with the same details.
+     * <p>
+     * Each machine returned must be released individually, with {@link #release(MachineLocation)}.
+     *
+     * @param count the number of machines wanted (must be positive)
+     * @param flags as for {@link #obtain(Map)}
+     * @return the machines obtained; this may be fewer than were asked for if some could not be
+     *         provisioned, but is never empty
+     * @throws NoMachinesAvailableException if no machines could be obtained in this location
+     */
+    List<T> obtainMultiple(int count, Map<?,?> flags) throws NoMachinesAvailableException;
+}
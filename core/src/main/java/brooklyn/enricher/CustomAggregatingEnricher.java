@@ -5,15 +5,22 @@ import groovy.lang.Closure;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.enricher.basic.AbstractAggregatingEnricher;
+import brooklyn.entity.Entity;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.SensorEventListener;
+import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.policy.basic.PolicyScheduler;
 import brooklyn.util.GroovyJavaMethods;
 import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.math.RunningAggregate;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
@@ -29,12 +36,19 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
     
     protected final Function<Collection<S>, T> aggregator;
     
+    private final Duration publishPeriod;
+    private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+    private volatile long lastPublishTime = 0;
+    private PolicyScheduler.SerialScheduler scheduler;
+    
     /**
      * The valid keys for the flags are:
      * - producers: a collection of entities to be aggregated
      * - allMembers: indicates that should track members of the entity that the aggregator is associated with,
      *               to aggregate across all those members.
      * - filter:     a Predicate or Closure, indicating which entities to include
+     * - publishPeriod: a Duration (or number of millis); if set, the aggregate is published at most once in
+     *               each such period (shortly after the values change) rather than on every change
      * 
      * @param flags
      * @param source
@@ -46,6 +60,7 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
             Function<Collection<S>, T> aggregator, S defaultValue) {
         super(flags, source, target, defaultValue);
         this.aggregator = aggregator;
+        this.publishPeriod = flags.containsKey("publishPeriod") ? Duration.of(flags.get("publishPeriod")) : null;
     }
     
     public CustomAggregatingEnricher(Map<String,?> flags, AttributeSensor<? extends S> source, AttributeSensor<T> target,
@@ -92,6 +107,21 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
 
     @Override
     public void onUpdated() {
+        if (publishPeriod == null || publishPeriod.toMilliseconds() <= 0) {
+            publish();
+        } else if (publishScheduled.compareAndSet(false, true)) {
+            // changes until this runs are included in its aggregate
+            long delay = Math.max(0, lastPublishTime + publishPeriod.toMilliseconds() - System.currentTimeMillis());
+            getScheduler().schedule(new Runnable() {
+                public void run() {
+                    publishScheduled.set(false);
+                    lastPublishTime = System.currentTimeMillis();
+                    if (!isDestroyed()) publish();
+                }}, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    protected void publish() {
         try {
             entity.setAttribute(target, getAggregate());
         } catch (Throwable t) {
@@ -100,6 +130,21 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
         }
     }
     
+    @Override
+    public void destroy() {
+        super.destroy();
+        synchronized (this) {
+            if (scheduler != null) scheduler.cancelAll();
+        }
+    }
+    
+    private synchronized PolicyScheduler.SerialScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = ((ManagementContextInternal)getManagementContext()).getPolicyScheduler().newSerialScheduler(toString());
+        }
+        return scheduler;
+    }
+    
     public T getAggregate() {
         synchronized (values) {
             return (T) aggregator.apply(values.values());
@@ -146,13 +191,13 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
     public static <N extends Number, T extends Number> CustomAggregatingEnricher<N,T> newSummingEnricher(
             Map<String,?> flags, AttributeSensor<N> source, final AttributeSensor<T> target) {
         
-        Function<Collection<N>, T> aggregator = new Function<Collection<N>, T>() {
-            @Override public T apply(Collection<N> vals) {
-                Object result = (vals == null || vals.isEmpty()) ? 0 : sum(vals);
+        Function<RunningAggregate, T> summarizer = new Function<RunningAggregate, T>() {
+            @Override public T apply(RunningAggregate aggregate) {
+                Object result = aggregate.isEmpty() ? 0 : aggregate.getSum();
                 return TypeCoercions.castPrimitive(result, (Class<T>)target.getType());
             }
         };
-        return new CustomAggregatingEnricher<N,T>(flags, source, target, aggregator);
+        return new NumericAggregatingEnricher<N,T>(flags, source, target, summarizer, null);
     }
     public static <N extends Number> CustomAggregatingEnricher<N,N> newSummingEnricher(
             AttributeSensor<N> source, AttributeSensor<N> target) {
@@ -175,13 +220,12 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
             Map<String,?> flags, AttributeSensor<? extends N> source, AttributeSensor<Double> target,
             N defaultValue) {
         
-        Function<Collection<N>, Double> aggregator = new Function<Collection<N>, Double>() {
-            @Override public Double apply(Collection<N> vals) {
-                int count = count(vals);
-                return (count==0) ? 0d : ((Double) sum(vals) / count);
+        Function<RunningAggregate, Double> summarizer = new Function<RunningAggregate, Double>() {
+            @Override public Double apply(RunningAggregate aggregate) {
+                return aggregate.isEmpty() ? 0d : aggregate.getMean();
             }
         };
-        return new CustomAggregatingEnricher<N,Double>(flags, source, target, aggregator, defaultValue);
+        return new NumericAggregatingEnricher<N,Double>(flags, source, target, summarizer, defaultValue);
     }
     /** averages the given source sensor over all children/members, storing in target */
     public static <N extends Number> CustomAggregatingEnricher<Number,Double> newAveragingEnricher(
@@ -189,16 +233,65 @@ public class CustomAggregatingEnricher<S,T> extends AbstractAggregatingEnricher<
         return newAveragingEnricher(Collections.<String,Object>emptyMap(), source, target);
     }
 
-    private static <N extends Number> double sum(Iterable<N> vals) {
-        double result = 0d;
-        if (vals!=null) for (Number val : vals) if (val!=null) result += val.doubleValue();
-        return result;
+    /** creates an enricher which gives the minimum over all children/members (null if none have a value) */
+    public static <N extends Number, T extends Number> CustomAggregatingEnricher<N,T> newMinimumEnricher(
+            Map<String,?> flags, AttributeSensor<N> source, final AttributeSensor<T> target) {
+        
+        Function<RunningAggregate, T> summarizer = new Function<RunningAggregate, T>() {
+            @Override public T apply(RunningAggregate aggregate) {
+                return aggregate.isEmpty() ? null : TypeCoercions.castPrimitive(aggregate.getMin(), (Class<T>)target.getType());
+            }
+        };
+        return new NumericAggregatingEnricher<N,T>(flags, source, target, summarizer, null);
     }
-    
-    private static int count(Iterable<? extends Object> vals) {
-        int result = 0;
-        if (vals!=null) for (Object val : vals) if (val!=null) result++;
-        return result;
+    public static <N extends Number> CustomAggregatingEnricher<N,N> newMinimumEnricher(
+            AttributeSensor<N> source, AttributeSensor<N> target) {
+        return newMinimumEnricher(Collections.<String,Object>emptyMap(), source, target);
+    }
+
+    /** creates an enricher which gives the maximum over all children/members (null if none have a value) */
+    public static <N extends Number, T extends Number> CustomAggregatingEnricher<N,T> newMaximumEnricher(
+            Map<String,?> flags, AttributeSensor<N> source, final AttributeSensor<T> target) {
+        
+        Function<RunningAggregate, T> summarizer = new Function<RunningAggregate, T>() {
+            @Override public T apply(RunningAggregate aggregate) {
+                return aggregate.isEmpty() ? null : TypeCoercions.castPrimitive(aggregate.getMax(), (Class<T>)target.getType());
+            }
+        };
+        return new NumericAggregatingEnricher<N,T>(flags, source, target, summarizer, null);
+    }
+    public static <N extends Number> CustomAggregatingEnricher<N,N> newMaximumEnricher(
+            AttributeSensor<N> source, AttributeSensor<N> target) {
+        return newMaximumEnricher(Collections.<String,Object>emptyMap(), source, target);
+    }
+
+    /**
+     * Maintains a {@link RunningAggregate} of the (non-null) values as each changes, from which the aggregate
+     * is computed, rather than applying an aggregator function to all values on every change.
+     */
+    private static class NumericAggregatingEnricher<N extends Number, T> extends CustomAggregatingEnricher<N,T> {
+        private final RunningAggregate aggregate = new RunningAggregate();
+        private final Function<RunningAggregate, T> summarizer;
+
+        NumericAggregatingEnricher(Map<String,?> flags, AttributeSensor<? extends N> source, AttributeSensor<T> target,
+                Function<RunningAggregate, T> summarizer, N defaultValue) {
+            // no aggregator function, as getAggregate is computed from the running aggregate instead
+            super(flags, source, target, (Function<Collection<N>, T>)null, defaultValue);
+            this.summarizer = summarizer;
+        }
+
+        @Override
+        protected void onValueChanged(Entity producer, N oldValue, N newValue) {
+            if (oldValue != null) aggregate.remove(oldValue.doubleValue());
+            if (newValue != null) aggregate.add(newValue.doubleValue());
+        }
+
+        @Override
+        public T getAggregate() {
+            synchronized (values) {
+                return summarizer.apply(aggregate);
+            }
+        }
     }
 
 }
@@ -69,7 +69,9 @@ public abstract class AbstractAggregatingEnricher<S,T> extends AbstractEnricher
             S vo = values.get(producer);
             if (vo==null) {
                 S initialVal = ((EntityLocal)producer).getAttribute(source);
-                values.put(producer, initialVal != null ? initialVal : defaultValue);
+                S newVal = initialVal != null ? initialVal : defaultValue;
+                values.put(producer, newVal);
+                onValueChanged(producer, null, newVal);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -85,7 +87,11 @@ public abstract class AbstractAggregatingEnricher<S,T> extends AbstractEnricher
     public S removeProducer(Entity producer) {
         if (LOG.isDebugEnabled()) LOG.debug("{} unlinked ({}, {}) from {}", new Object[] {this, producer, source, target});
         unsubscribe(producer);
-        S removed = values.remove(producer);
+        S removed;
+        synchronized (values) {
+            removed = values.remove(producer);
+            if (removed != null) onValueChanged(producer, removed, null);
+        }
         onUpdated();
         return removed;
     }
@@ -95,7 +101,8 @@ public abstract class AbstractAggregatingEnricher<S,T> extends AbstractEnricher
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                S oldVal = values.put(e, event.getValue());
+                onValueChanged(e, oldVal, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -103,6 +110,16 @@ public abstract class AbstractAggregatingEnricher<S,T> extends AbstractEnricher
         onUpdated();
     }
 
+    /**
+     * Called whenever the value for a producer changes (including when it is added or removed, in which case
+     * the old or new value respectively is null), while synchronized on {@link #values}; so subclasses can
+     * maintain an aggregate incrementally rather than re-aggregating all values in {@link #onUpdated()}.
+     * Defaults to no-op
+     */
+    protected void onValueChanged(Entity producer, S oldValue, S newValue) {
+        // no-op
+    }
+
     /**
      * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
      * Defaults to no-op
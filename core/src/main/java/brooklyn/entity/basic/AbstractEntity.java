@@ -44,6 +44,7 @@ import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.Task;
 import brooklyn.management.internal.EffectorUtils;
 import brooklyn.management.internal.EntityManagementSupport;
+import brooklyn.management.internal.LocalEntityManager;
 import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.management.internal.SubscriptionTracker;
 import brooklyn.mementos.EntityMemento;
@@ -404,6 +405,8 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
             configsInternal.setLocalConfig(oldConfig.getLocalConfig());
         }
         refreshInheritedConfig();
+        // children must now inherit from the new config map
+        refreshInheritedConfigOfChildren();
         
         attributesInternal = new AttributeMap(this, managementContext.getStorage().<Collection<String>, Object>getMap(id+"-attributes"));
         if (oldAttribs.asRawMap().size() > 0) {
@@ -427,6 +430,10 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
     public void setDisplayName(String newDisplayName) {
         displayName.set(newDisplayName);
         displayNameAutoGenerated = false;
+        if (getManagementSupport().isDeployed()) {
+            EntityManager entityManager = getEntityManager();
+            if (entityManager instanceof LocalEntityManager) ((LocalEntityManager)entityManager).onDisplayNameChanged(this);
+        }
     }
     
     /**
@@ -525,6 +532,7 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
             
             getManagementSupport().getEntityChangeListener().onChildrenChanged();
         }
+        onChildrenChanged();
         return child;
     }
 
@@ -547,14 +555,23 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
     
     @Override
     public boolean removeChild(Entity child) {
+        boolean changed;
         synchronized (children) {
-            boolean changed = children.remove(child);
+            changed = children.remove(child);
             child.clearParent();
             
             if (changed) {
                 getManagementSupport().getEntityChangeListener().onChildrenChanged();
             }
-            return changed;
+        }
+        if (changed) onChildrenChanged();
+        return changed;
+    }
+
+    private void onChildrenChanged() {
+        if (getManagementSupport().isDeployed()) {
+            EntityManager entityManager = getEntityManager();
+            if (entityManager instanceof LocalEntityManager) ((LocalEntityManager)entityManager).onChildrenChanged(this);
         }
     }
 
@@ -731,6 +748,11 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
         return result;
     }
 
+    @Override
+    public long getAttributesVersion() {
+        return attributesInternal.getVersion();
+    }
+
     public void removeAttribute(AttributeSensor<?> attribute) {
         attributesInternal.remove(attribute);
         entityType.removeSensor(attribute);
@@ -832,15 +854,18 @@ public abstract class AbstractEntity implements EntityLocal, EntityInternal {
         if (val != null) setConfig(key, val);
     }
 
+    /**
+     * Points this entity's config at its parent's, so that it inherits the parent's config.
+     * Subsequent changes to the parent's config are seen lazily, so this need only be called 
+     * when the parent changes (or the parent's config map is replaced).
+     */
     @Override
     public void refreshInheritedConfig() {
         if (getParent() != null) {
-            configsInternal.setInheritedConfig(((EntityInternal)getParent()).getAllConfig());
+            configsInternal.setParentConfig(((EntityInternal)getParent()).getConfigMap());
         } else {
             configsInternal.clearInheritedConfig();
         }
-
-        refreshInheritedConfigOfChildren();
     }
 
     void refreshInheritedConfigOfChildren() {
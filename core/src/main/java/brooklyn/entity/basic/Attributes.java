@@ -98,6 +98,19 @@ public interface Attributes {
     AttributeSensor<Lifecycle> SERVICE_STATE = Sensors.newSensor(Lifecycle.class,
             "service.state", "Expected lifecycle state of the service");
     
+    /*
+     * Subscription delivery attributes; only published when mailbox delivery is enabled
+     * (see brooklyn.subscriptions.mailboxCapacity)
+     */
+    AttributeSensor<Integer> SUBSCRIPTION_MAILBOX_DEPTH = Sensors.newIntegerSensor("subscription.mailbox.depth",
+            "Number of sensor events waiting to be delivered to this entity's subscriptions");
+    
+    AttributeSensor<Long> SUBSCRIPTION_MAILBOX_DROPPED = Sensors.newLongSensor("subscription.mailbox.dropped",
+            "Number of sensor events discarded because this entity's subscription mailbox was full");
+    
+    AttributeSensor<Long> SUBSCRIPTION_MAILBOX_MAX_LATENCY = Sensors.newLongSensor("subscription.mailbox.maxLatency",
+            "Max time (in milliseconds) between a sensor event being published and it being delivered to this entity, in the last reporting interval");
+    
 	/** optional */
     AttributeSensor<String> LOG_FILE_LOCATION = new BasicAttributeSensor<String>(
             String.class, "log.location", "Log file location");
@@ -8,11 +8,12 @@ import java.util.LinkedHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.ConfigKey;
 import brooklyn.entity.Entity;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
-import brooklyn.management.internal.CollectionChangeListener;
+import brooklyn.management.internal.DynamicMembershipEngine;
 import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.GroovyJavaMethods;
 
@@ -24,7 +25,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     
     private final Object memberChangeMutex = new Object();
     
-    private volatile MyEntitySetChangeListener setChangeListener = null;
+    private volatile MyMembershipEngineMember membershipEngineMember = null;
+    private volatile DynamicMembershipEngine membershipEngine = null;
 
     public DynamicGroupImpl() {
     }
@@ -38,13 +40,34 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void setEntityFilter(Predicate<? super Entity> filter) {
         // TODO Sould this be "evenIfOwned"?
         setConfigEvenIfOwned(ENTITY_FILTER, filter);
-        rescanEntities();
     }
     
     public void setEntityFilter(Closure<Boolean> filter) {
         setEntityFilter(filter != null ? GroovyJavaMethods.<Entity>predicateFromClosure(filter) : null);
     }
     
+    @Override
+    public <T> T setConfig(ConfigKey<T> key, T val) {
+        T result = super.setConfig(key, val);
+        if (ENTITY_FILTER.getName().equals(key.getName())) onEntityFilterChanged();
+        return result;
+    }
+
+    @Override
+    public <T> T setConfigEvenIfOwned(ConfigKey<T> key, T val) {
+        T result = super.setConfigEvenIfOwned(key, val);
+        if (ENTITY_FILTER.getName().equals(key.getName())) onEntityFilterChanged();
+        return result;
+    }
+
+    /** however the filter is set, the membership engine must re-index this group, and members be rescanned */
+    private void onEntityFilterChanged() {
+        DynamicMembershipEngine engine = membershipEngine;
+        if (engine == null) return; // not yet managed; indexed and scanned when becoming master
+        engine.onFilterChanged(membershipEngineMember);
+        rescanEntities();
+    }
+
     private boolean isRunning() {
         return getAttribute(RUNNING);
     }
@@ -56,8 +79,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     @Override
     public void stop() {
         setAttribute(RUNNING, false);
-        if (setChangeListener != null) {
-            ((ManagementContextInternal)getManagementContext()).removeEntitySetListener(setChangeListener);
+        DynamicMembershipEngine engine = membershipEngine;
+        if (engine != null) {
+            engine.unregister(membershipEngineMember);
         }
     }
     
@@ -109,30 +133,35 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
     }
     
-    class MyEntitySetChangeListener implements CollectionChangeListener<Entity> {
-        public void onItemAdded(Entity item) { onEntityAdded(item); }
-        public void onItemRemoved(Entity item) { onEntityRemoved(item); }
+    class MyMembershipEngineMember implements DynamicMembershipEngine.Member {
+        public Predicate<? super Entity> getEntityFilter() { return getConfig(ENTITY_FILTER); }
+        public void onEntityAdded(Entity item) { DynamicGroupImpl.this.onEntityAdded(item); }
+        public void onEntityRemoved(Entity item) { DynamicGroupImpl.this.onEntityRemoved(item); }
+        public void onEntityChanged(Entity item) { DynamicGroupImpl.this.onEntityChanged(item); }
+        @Override public String toString() { return DynamicGroupImpl.this.toString(); }
     }
 
     @Override
     public void onManagementBecomingMaster() {
-        if (setChangeListener != null) {
+        if (membershipEngineMember != null) {
             log.warn("{} becoming master twice", this);
             return;
         }
-        setChangeListener = new MyEntitySetChangeListener();
-        ((ManagementContextInternal)getManagementContext()).addEntitySetListener(setChangeListener);
+        membershipEngineMember = new MyMembershipEngineMember();
+        membershipEngine = ((ManagementContextInternal)getManagementContext()).getDynamicMembershipEngine();
+        membershipEngine.register(membershipEngineMember);
         rescanEntities();
     }
 
     @Override
     public void onManagementNoLongerMaster() {
-        if (setChangeListener == null) {
+        if (membershipEngineMember == null) {
             log.warn("{} no longer master twice", this);
             return;
         }
-        ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
-        setChangeListener = null;
+        membershipEngine.unregister(membershipEngineMember);
+        membershipEngineMember = null;
+        membershipEngine = null;
     }
     
     public void rescanEntities() {
@@ -153,7 +182,10 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             Collection<Entity> currentMembers = super.getMembers();
             Collection<Entity> toRemove = new LinkedHashSet<Entity>(currentMembers);
             
-            for (Entity it : getManagementContext().getEntityManager().getEntities()) {
+            Iterable<Entity> candidates = (membershipEngine != null) 
+                    ? membershipEngine.getCandidates(getConfig(ENTITY_FILTER)) 
+                    : getManagementContext().getEntityManager().getEntities();
+            for (Entity it : candidates) {
                 if (acceptsEntity(it)) {
                     toRemove.remove(it);
                     if (!currentMembers.contains(it)) {
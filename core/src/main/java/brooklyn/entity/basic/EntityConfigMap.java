@@ -5,8 +5,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,13 +23,26 @@ import brooklyn.util.internal.ConfigKeySelfExtracting;
 import brooklyn.util.task.DeferredSupplier;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+/**
+ * The config of an entity: that set on the entity itself, plus that inherited from its ancestors.
+ * <p>
+ * Inherited config is resolved lazily through the parent's config map, rather than being copied
+ * into every descendant whenever config is set. Each map has a version stamp, changed whenever its 
+ * own config or its parent changes; a merged snapshot of the inherited config is cached, and rebuilt 
+ * only when the stamps along the ancestor chain show that something has changed. So setting config 
+ * is O(1), and getting config is O(depth) (to check the stamps) when nothing has changed.
+ */
 @SuppressWarnings("deprecation")
 public class EntityConfigMap implements ConfigMap {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityConfigMap.class);
 
+    /** source of version stamps; globally increasing, so the max stamp along a chain of ancestors changes whenever any of them changes */
+    private static final AtomicLong VERSION_SOURCE = new AtomicLong();
+
     /** entity against which config resolution / task execution will occur */
     private final AbstractEntity entity;
 
@@ -39,13 +54,64 @@ public class EntityConfigMap implements ConfigMap {
      * entity.
      */
     private final Map<ConfigKey<?>,Object> ownConfig;
-    private final Map<ConfigKey<?>,Object> inheritedConfig = Collections.synchronizedMap(new LinkedHashMap<ConfigKey<?>, Object>());
+
+    /** config map of the parent entity, or null */
+    private volatile EntityConfigMap parentConfig;
+    /** stamp of the last change to ownConfig (which affects descendants) */
+    private volatile long ownVersion = VERSION_SOURCE.incrementAndGet();
+    /** stamp of the last change of parent */
+    private volatile long parentVersion = VERSION_SOURCE.incrementAndGet();
+    /** the merged config of all ancestors (nearest taking precedence), as at the given stamp */
+    private volatile InheritedConfig inheritedConfig;
 
     public EntityConfigMap(AbstractEntity entity, Map<ConfigKey<?>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.ownConfig = checkNotNull(storage, "storage map must be specified");
     }
 
+    private static class InheritedConfig {
+        final long stamp;
+        final Map<ConfigKey<?>,Object> values;
+        
+        InheritedConfig(long stamp, Map<ConfigKey<?>,Object> values) {
+            this.stamp = stamp;
+            this.values = values;
+        }
+    }
+    
+    /** the highest version stamp of this map's parent link, and of its ancestors' config and parent links */
+    private long inheritedStamp() {
+        long result = parentVersion;
+        for (EntityConfigMap ancestor = parentConfig; ancestor != null; ancestor = ancestor.parentConfig) {
+            result = Math.max(result, Math.max(ancestor.ownVersion, ancestor.parentVersion));
+        }
+        return result;
+    }
+    
+    /** the inherited config, rebuilt from the ancestors if anything has changed since last used */
+    private Map<ConfigKey<?>,Object> inheritedConfig() {
+        long stamp = inheritedStamp();
+        InheritedConfig cached = inheritedConfig;
+        if (cached != null && cached.stamp == stamp) return cached.values;
+        
+        // compute the stamp before reading the ancestors: if they change concurrently, the next call rebuilds
+        Map<ConfigKey<?>,Object> values = Collections.emptyMap();
+        EntityConfigMap parent = parentConfig;
+        if (parent != null) {
+            List<EntityConfigMap> ancestors = Lists.newArrayList();
+            for (EntityConfigMap ancestor = parent; ancestor != null; ancestor = ancestor.parentConfig) {
+                ancestors.add(ancestor);
+            }
+            values = new LinkedHashMap<ConfigKey<?>,Object>();
+            for (EntityConfigMap ancestor : Lists.reverse(ancestors)) {
+                values.putAll(ancestor.ownConfig);
+            }
+            values = Collections.unmodifiableMap(values);
+        }
+        inheritedConfig = new InheritedConfig(stamp, values);
+        return values;
+    }
+
     public <T> T getConfig(ConfigKey<T> key) {
         return getConfig(key, null);
     }
@@ -75,10 +141,11 @@ public class EntityConfigMap implements ConfigMap {
         
         // Don't use groovy truth: if the set value is e.g. 0, then would ignore set value and return default!
         if (ownKey instanceof ConfigKeySelfExtracting) {
+            Map<ConfigKey<?>,Object> inherited;
             if (((ConfigKeySelfExtracting<T>)ownKey).isSet(ownConfig)) {
                 return ((ConfigKeySelfExtracting<T>)ownKey).extractValue(ownConfig, exec);
-            } else if (((ConfigKeySelfExtracting<T>)ownKey).isSet(inheritedConfig)) {
-                return ((ConfigKeySelfExtracting<T>)ownKey).extractValue(inheritedConfig, exec);
+            } else if (((ConfigKeySelfExtracting<T>)ownKey).isSet(inherited = inheritedConfig())) {
+                return ((ConfigKeySelfExtracting<T>)ownKey).extractValue(inherited, exec);
             }
         } else {
             LOG.warn("Config key {} of {} is not a ConfigKeySelfExtracting; cannot retrieve value; returning default", ownKey, this);
@@ -89,14 +156,16 @@ public class EntityConfigMap implements ConfigMap {
     @Override
     public Object getRawConfig(ConfigKey<?> key) {
         if (ownConfig.containsKey(key)) return ownConfig.get(key);
-        if (inheritedConfig.containsKey(key)) return inheritedConfig.get(key);
+        Map<ConfigKey<?>,Object> inherited = inheritedConfig();
+        if (inherited.containsKey(key)) return inherited.get(key);
         return null;
     }
     
     /** returns the config visible at this entity, local and inherited (preferring local) */
     public Map<ConfigKey<?>,Object> getAllConfig() {
-        Map<ConfigKey<?>,Object> result = new LinkedHashMap<ConfigKey<?>,Object>(inheritedConfig.size()+ownConfig.size());
-        result.putAll(inheritedConfig);
+        Map<ConfigKey<?>,Object> inherited = inheritedConfig();
+        Map<ConfigKey<?>,Object> result = new LinkedHashMap<ConfigKey<?>,Object>(inherited.size()+ownConfig.size());
+        result.putAll(inherited);
         result.putAll(ownConfig);
         return Collections.unmodifiableMap(result);
     }
@@ -129,30 +198,40 @@ public class EntityConfigMap implements ConfigMap {
         } else {
             oldVal = ownConfig.put(key, val);
         }
-        entity.refreshInheritedConfigOfChildren();
+        // descendants will see the change next time they get config
+        ownVersion = VERSION_SOURCE.incrementAndGet();
         return oldVal;
     }
     
     public void setLocalConfig(Map<ConfigKey<?>, ? extends Object> vals) {
         ownConfig.clear();
         ownConfig.putAll(vals);
+        ownVersion = VERSION_SOURCE.incrementAndGet();
     }
     
-    public void setInheritedConfig(Map<ConfigKey<?>, ? extends Object> vals) {
-        inheritedConfig.clear();
-        inheritedConfig.putAll(vals);
+    /**
+     * Sets the config map from which config is inherited (i.e. that of the parent entity), or null.
+     * Must be called again if the parent's config map is replaced, but not when its config changes.
+     */
+    public void setParentConfig(EntityConfigMap parentConfig) {
+        if (parentConfig == this) throw new IllegalArgumentException("Config map "+this+" cannot inherit from itself");
+        this.parentConfig = parentConfig;
+        parentVersion = VERSION_SOURCE.incrementAndGet();
     }
     
     public void clearInheritedConfig() {
-        inheritedConfig.clear();
+        setParentConfig(null);
     }
 
     @Override
     public EntityConfigMap submap(Predicate<ConfigKey<?>> filter) {
         EntityConfigMap m = new EntityConfigMap(entity, Maps.<ConfigKey<?>, Object>newLinkedHashMap());
-        for (Map.Entry<ConfigKey<?>,Object> entry: inheritedConfig.entrySet())
+        Map<ConfigKey<?>,Object> inherited = Maps.newLinkedHashMap();
+        for (Map.Entry<ConfigKey<?>,Object> entry: inheritedConfig().entrySet())
             if (filter.apply(entry.getKey()))
-                m.inheritedConfig.put(entry.getKey(), entry.getValue());
+                inherited.put(entry.getKey(), entry.getValue());
+        // the submap has no parent, so this snapshot stays valid
+        m.inheritedConfig = new InheritedConfig(m.inheritedStamp(), Collections.unmodifiableMap(inherited));
         for (Map.Entry<ConfigKey<?>,Object> entry: ownConfig.entrySet())
             if (filter.apply(entry.getKey()))
                 m.ownConfig.put(entry.getKey(), entry.getValue());
@@ -161,7 +240,7 @@ public class EntityConfigMap implements ConfigMap {
 
     @Override
     public String toString() {
-        return super.toString()+"[own="+Entities.sanitize(ownConfig)+"; inherited="+Entities.sanitize(inheritedConfig)+"]";
+        return super.toString()+"[own="+Entities.sanitize(ownConfig)+"; inherited="+Entities.sanitize(inheritedConfig())+"]";
     }
     
     public Map<String,Object> asMapWithStringKeys() {
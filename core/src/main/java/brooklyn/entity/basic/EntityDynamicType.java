@@ -10,6 +10,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,40 +32,56 @@ import brooklyn.util.text.Strings;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /** This is the actual type of an entity instance at runtime,
  * which can change from the static {@link EntityType}, and can change over time;
  * for this reason it does *not* implement EntityType, but 
  * callers can call {@link #getSnapshot()} to get a snapshot such instance  
+ * <p>
+ * The effectors, sensors and config keys defined on the entity's class are found once per class,
+ * and shared by all entities of that class; each instance records only the sensors added to
+ * (or removed from) it.
  */
 public class EntityDynamicType {
 
     protected static final Logger LOG = LoggerFactory.getLogger(EntityDynamicType.class);
 
+    /**
+     * The effectors, sensors and config keys of each entity class, found (with the first entity of that class)
+     * by reflecting over the class. Keys are weak so the cache does not keep classes (and their class loaders)
+     * loaded; values are soft, as the metadata refers to its class and so would otherwise keep the key reachable.
+     */
+    private static final ConcurrentMap<Class<?>,ClassMetadata> classMetadata = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .<Class<?>,ClassMetadata>build()
+            .asMap();
+    
     private final Class<? extends Entity> entityClass;
     private final AbstractEntity entity;
     private volatile String name;
     private volatile String simpleName;
     
     /** 
-     * Effectors on this entity, by name.
+     * Effectors, sensors and config keys defined on the class; usually shared with other entities of the same class.
      */
-    // TODO support overloading; requires not using a map keyed off method name.
-    private final Map<String, Effector<?>> effectors = new ConcurrentHashMap<String, Effector<?>>();
+    private final ClassMetadata type;
 
     /** 
-     * Map of sensors on this entity, by name.
+     * Sensors added to this entity (beyond those of its class), by name, and the names of the class's sensors
+     * removed from this entity. Replaced rather than modified (under synchronization), as changes are rare 
+     * compared with look-ups.
      */
-    private final ConcurrentMap<String,Sensor<?>> sensors = new ConcurrentHashMap<String, Sensor<?>>();
-
-    /** 
-     * Map of config keys (and their fields) on this entity, by name.
-     */
-    private final Map<String,FieldAndValue<ConfigKey<?>>> configKeys = new ConcurrentHashMap<String, FieldAndValue<ConfigKey<?>>>();
+    private volatile Map<String,Sensor<?>> addedSensors = ImmutableMap.of();
+    private volatile Set<String> removedSensors = ImmutableSet.of();
 
     private volatile EntityTypeSnapshot snapshot;
     private final AtomicBoolean snapshotValid = new AtomicBoolean(false);
@@ -81,19 +98,13 @@ public class EntityDynamicType {
         setName((clazz.getCanonicalName() == null) ? clazz.getName() : clazz.getCanonicalName());
         String id = entity==null ? clazz.getName() : entity.getId();
         
-        effectors.putAll(findEffectors(clazz, entity));
-        if (LOG.isTraceEnabled())
-            LOG.trace("Entity {} effectors: {}", id, Joiner.on(", ").join(effectors.keySet()));
-        
-        sensors.putAll(findSensors(clazz, entity));
-        if (LOG.isTraceEnabled())
-            LOG.trace("Entity {} sensors: {}", id, Joiner.on(", ").join(sensors.keySet()));
+        type = getClassMetadata(clazz, entity);
         
-        buildConfigKeys(clazz, entity, configKeys);
-        if (LOG.isTraceEnabled())
-            LOG.trace("Entity {} config keys: {}", id, Joiner.on(", ").join(configKeys.keySet()));
-
-        refreshSnapshot();
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Entity {} effectors: {}", id, Joiner.on(", ").join(type.effectors.keySet()));
+            LOG.trace("Entity {} sensors: {}", id, Joiner.on(", ").join(type.sensors.keySet()));
+            LOG.trace("Entity {} config keys: {}", id, Joiner.on(", ").join(type.configKeys.keySet()));
+        }
     }
     
     public void setName(String name) {
@@ -123,7 +134,7 @@ public class EntityDynamicType {
      * @return the effector with the given name, or null if not found
      */
     public Effector<?> getEffector(String name) {
-        return effectors.get(name);
+        return type.effectors.get(name);
     }
     
     /**
@@ -133,35 +144,45 @@ public class EntityDynamicType {
      * but the idea of these so-called "dynamic effectors" has been discussed and it might be supported in future...
      */
     public Map<String,Effector<?>> getEffectors() {
-        return Collections.unmodifiableMap(effectors);
+        return type.effectors;
     }
     
     /**
      * Sensors available on this entity.
      */
     public Map<String,Sensor<?>> getSensors() {
-        return Collections.unmodifiableMap(sensors);
+        Map<String,Sensor<?>> added = addedSensors;
+        Set<String> removed = removedSensors;
+        if (added.isEmpty() && removed.isEmpty()) return type.sensors;
+        
+        Map<String,Sensor<?>> result = Maps.newLinkedHashMap(type.sensors);
+        result.keySet().removeAll(removed);
+        result.putAll(added);
+        return Collections.unmodifiableMap(result);
     }
     
     /** 
      * Convenience for finding named sensor.
      */
     public Sensor<?> getSensor(String sensorName) {
-        return sensors.get(sensorName);
+        // reads addedSensors before removedSensors; they are written in the opposite order when removing
+        Sensor<?> result = addedSensors.get(sensorName);
+        if (result != null) return result;
+        return removedSensors.contains(sensorName) ? null : type.sensors.get(sensorName);
     }
 
     /**
      * ConfigKeys available on this entity.
      */
     public Map<String,ConfigKey<?>> getConfigKeys() {
-        return Collections.unmodifiableMap(value(configKeys));
+        return type.configKeyValues;
     }
 
     /**
      * Adds the given {@link Sensor} to this entity.
      */
     public void addSensor(Sensor<?> newSensor) {
-        sensors.put(newSensor.getName(), newSensor);
+        putSensor(newSensor);
         snapshotValid.set(false);
         entity.emit(AbstractEntity.SENSOR_ADDED, newSensor);
     }
@@ -184,18 +205,41 @@ public class EntityDynamicType {
     }
     
     public Sensor<?> addSensorIfAbsentWithoutPublishing(Sensor<?> newSensor) {
-        return sensors.putIfAbsent(newSensor.getName(), newSensor);
+        // called whenever an attribute is first set, so avoid locking in the common case of a sensor already known
+        Sensor<?> prev = getSensor(newSensor.getName());
+        if (prev != null) return prev;
+        synchronized (this) {
+            prev = getSensor(newSensor.getName());
+            if (prev == null) putSensor(newSensor);
+            return prev;
+        }
     }
 
+    private synchronized void putSensor(Sensor<?> newSensor) {
+        String sensorName = newSensor.getName();
+        addedSensors = copyWith(addedSensors, sensorName, newSensor);
+        if (removedSensors.contains(sensorName)) {
+            removedSensors = copyWithout(removedSensors, sensorName);
+        }
+    }
+    
     /**
      * Removes the named {@link Sensor} from this entity.
      */
     public Sensor<?> removeSensor(String sensorName) {
-        Sensor<?> result = sensors.remove(sensorName);
-        if (result != null) {
-            snapshotValid.set(false);
-            entity.emit(AbstractEntity.SENSOR_REMOVED, result);
+        Sensor<?> result;
+        synchronized (this) {
+            result = getSensor(sensorName);
+            if (result == null) return null;
+            if (type.sensors.containsKey(sensorName)) {
+                removedSensors = copyWith(removedSensors, sensorName);
+            }
+            if (addedSensors.containsKey(sensorName)) {
+                addedSensors = copyWithout(addedSensors, sensorName);
+            }
         }
+        snapshotValid.set(false);
+        entity.emit(AbstractEntity.SENSOR_REMOVED, result);
         return result;
     }
     
@@ -210,21 +254,115 @@ public class EntityDynamicType {
      * ConfigKeys available on this entity.
      */
     public ConfigKey<?> getConfigKey(String keyName) { 
-        return value(configKeys.get(keyName)); 
+        return value(type.configKeys.get(keyName)); 
     }
 
     /** field where a config key is defined, for use getting annotations. note annotations are not inherited. */
     public Field getConfigKeyField(String keyName) { 
-        return field(configKeys.get(keyName)); 
+        return field(type.configKeys.get(keyName)); 
     }
 
     private EntityTypeSnapshot refreshSnapshot() {
         if (snapshotValid.compareAndSet(false, true)) {
-            snapshot = new EntityTypeSnapshot(name, simpleName, value(configKeys), sensors, effectors.values());
+            if (addedSensors.isEmpty() && removedSensors.isEmpty()) {
+                // same as the class's type, so can share the snapshot with other entities of this class and name
+                EntityTypeSnapshot shared = type.snapshots.get(name);
+                if (shared == null) {
+                    shared = newSnapshot();
+                    EntityTypeSnapshot existing = type.snapshots.putIfAbsent(name, shared);
+                    if (existing != null) shared = existing;
+                }
+                snapshot = shared;
+            } else {
+                snapshot = newSnapshot();
+            }
         }
         return snapshot;
     }
     
+    private EntityTypeSnapshot newSnapshot() {
+        return new EntityTypeSnapshot(name, simpleName, type.configKeyValues, getSensors(), type.effectors.values());
+    }
+    
+    private static ClassMetadata getClassMetadata(Class<? extends Entity> clazz, AbstractEntity optionalEntity) {
+        if (optionalEntity == null) {
+            // finds fewer members than with an instance, so not shared (see EntityTypes for caching of these)
+            return new ClassMetadata(clazz, null, false);
+        }
+        ClassMetadata cached = classMetadata.get(clazz);
+        if (cached != null) {
+            return cached.instanceSpecific ? new ClassMetadata(clazz, optionalEntity, true) : cached;
+        }
+        ClassMetadata result = new ClassMetadata(clazz, optionalEntity, hasInstanceMembers(clazz));
+        ClassMetadata existing = classMetadata.putIfAbsent(clazz, result);
+        return (existing != null && !existing.instanceSpecific) ? existing : result;
+    }
+    
+    /**
+     * Whether the class defines effectors, sensors or config keys in non-static fields,
+     * so their values must be found from each entity.
+     */
+    private static boolean hasInstanceMembers(Class<? extends Entity> clazz) {
+        for (Field f : Reflections.findPublicFieldsOrderedBySuper(clazz)) {
+            if (!Modifier.isStatic(f.getModifiers()) && 
+                    (Effector.class.isAssignableFrom(f.getType()) || Sensor.class.isAssignableFrom(f.getType()))) {
+                return true;
+            }
+        }
+        for (Field f : FlagUtils.getAllFields(clazz)) {
+            if (!Modifier.isStatic(f.getModifiers()) && 
+                    (ConfigKey.class.isAssignableFrom(f.getType()) || HasConfigKey.class.isAssignableFrom(f.getType()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * The effectors, sensors and config keys defined on an entity class. Immutable once constructed,
+     * apart from the cache of snapshots.
+     */
+    private static class ClassMetadata {
+        final boolean instanceSpecific;
+        final Map<String,Effector<?>> effectors;
+        final Map<String,Sensor<?>> sensors;
+        final Map<String,FieldAndValue<ConfigKey<?>>> configKeys;
+        final Map<String,ConfigKey<?>> configKeyValues;
+        
+        /** snapshots for entities of this class whose sensors are unchanged, by entity type name */
+        final ConcurrentMap<String,EntityTypeSnapshot> snapshots = new ConcurrentHashMap<String,EntityTypeSnapshot>();
+        
+        ClassMetadata(Class<? extends Entity> clazz, AbstractEntity optionalEntity, boolean instanceSpecific) {
+            this.instanceSpecific = instanceSpecific;
+            effectors = Collections.unmodifiableMap(findEffectors(clazz, optionalEntity));
+            sensors = Collections.unmodifiableMap(findSensors(clazz, optionalEntity));
+            Map<String,FieldAndValue<ConfigKey<?>>> configKeysFound = Maps.newLinkedHashMap();
+            buildConfigKeys(clazz, optionalEntity, configKeysFound);
+            configKeys = Collections.unmodifiableMap(configKeysFound);
+            configKeyValues = Collections.unmodifiableMap(value(configKeysFound));
+        }
+    }
+    
+    private static <K,V> Map<K,V> copyWith(Map<K,V> map, K key, V value) {
+        Map<K,V> result = Maps.newLinkedHashMap(map);
+        result.put(key, value);
+        return ImmutableMap.copyOf(result);
+    }
+    
+    private static <K,V> Map<K,V> copyWithout(Map<K,V> map, K key) {
+        Map<K,V> result = Maps.newLinkedHashMap(map);
+        result.remove(key);
+        return ImmutableMap.copyOf(result);
+    }
+    
+    private static <T> Set<T> copyWith(Set<T> set, T val) {
+        return ImmutableSet.<T>builder().addAll(set).add(val).build();
+    }
+    
+    private static <T> Set<T> copyWithout(Set<T> set, T val) {
+        return ImmutableSet.copyOf(Sets.difference(set, ImmutableSet.of(val)));
+    }
+    
     /**
      * Finds the effectors defined on the entity's class, statics and optionally any non-static (discouraged).
      */
@@ -47,6 +47,12 @@ public interface EntityInternal extends Entity {
     @Beta
     public void refreshInheritedConfig();
 
+    /**
+     * Changes whenever any attribute of this entity is set or removed; see {@link brooklyn.event.basic.AttributeMap#getVersion()}.
+     */
+    @Beta
+    long getAttributesVersion();
+
     /**
      * Must be called before the entity is started.
      * 
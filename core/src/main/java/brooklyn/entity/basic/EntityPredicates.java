@@ -1,5 +1,7 @@
 package brooklyn.entity.basic;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import javax.annotation.Nullable;
 
 import brooklyn.entity.Entity;
@@ -8,16 +10,94 @@ import brooklyn.location.Location;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 
 public class EntityPredicates {
 
+    /*
+     * The predicates below with named classes are "structured": a DynamicGroup whose filter is one of these
+     * is indexed (see DynamicMembershipEngine), so its membership is only evaluated for entities that could 
+     * match, rather than for every entity change in the management context.
+     */
+    
     public static <T> Predicate<Entity> attributeEqualTo(final AttributeSensor<T> attribute, final T val) {
-        return new Predicate<Entity>() {
-            @Override
-            public boolean apply(@Nullable Entity input) {
-                return Objects.equal(input.getAttribute(attribute), val);
+        return new AttributeEqualTo<T>(attribute, val);
+    }
+    
+    /** Create a predicate that matches any entity that is an instance of the given type (as for {@link Predicates#instanceOf(Class)}) */
+    public static Predicate<Entity> instanceOf(Class<?> type) {
+        return new InstanceOf(type);
+    }
+    
+    /** Create a predicate that matches any entity that is a (strict) descendant of the given entity */
+    public static Predicate<Entity> isDescendantOf(Entity ancestor) {
+        return new DescendantOf(ancestor);
+    }
+    
+    public static final class AttributeEqualTo<T> implements Predicate<Entity> {
+        private final AttributeSensor<T> attribute;
+        private final T value;
+        
+        private AttributeEqualTo(AttributeSensor<T> attribute, T value) {
+            this.attribute = checkNotNull(attribute, "attribute");
+            this.value = value;
+        }
+        public AttributeSensor<T> getAttribute() {
+            return attribute;
+        }
+        public T getValue() {
+            return value;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && Objects.equal(input.getAttribute(attribute), value);
+        }
+        @Override
+        public String toString() {
+            return "attributeEqualTo("+attribute.getName()+", "+value+")";
+        }
+    }
+    
+    public static final class InstanceOf implements Predicate<Entity> {
+        private final Class<?> type;
+        
+        private InstanceOf(Class<?> type) {
+            this.type = checkNotNull(type, "type");
+        }
+        public Class<?> getType() {
+            return type;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return type.isInstance(input);
+        }
+        @Override
+        public String toString() {
+            return "instanceOf("+type.getName()+")";
+        }
+    }
+    
+    public static final class DescendantOf implements Predicate<Entity> {
+        private final Entity ancestor;
+        
+        private DescendantOf(Entity ancestor) {
+            this.ancestor = checkNotNull(ancestor, "ancestor");
+        }
+        public Entity getAncestor() {
+            return ancestor;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            if (input == null) return false;
+            for (Entity e = input.getParent(); e != null; e = e.getParent()) {
+                if (e.getId().equals(ancestor.getId())) return true;
             }
-        };
+            return false;
+        }
+        @Override
+        public String toString() {
+            return "isDescendantOf("+ancestor+")";
+        }
     }
     
     /**
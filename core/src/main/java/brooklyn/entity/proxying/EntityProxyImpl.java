@@ -2,27 +2,41 @@ package brooklyn.entity.proxying;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.ConfigKey;
+import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.entity.Effector;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
+import brooklyn.event.AttributeSensor;
 import brooklyn.management.internal.EffectorUtils;
 
 import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 /**
  * A dynamic proxy for an entity. Other entities etc should use these proxies when interacting
  * with the entity, rather than holding a reference to the specific object. That makes remoting
  * etc much simpler.
+ * <p>
+ * How each method is handled (by the proxy itself, by calling the entity, or by invoking an effector)
+ * is worked out once for each entity class and set of proxied interfaces, rather than on every call.
  * 
  * @author aled
  */
@@ -35,6 +49,9 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
     private static final Logger LOG = LoggerFactory.getLogger(EntityProxyImpl.class);
 
     private final Entity delegate;
+
+    /** how to handle each method called through the proxy; shared by proxies of the same entity class and interfaces */
+    private final ConcurrentMap<Method, MethodHandler> dispatchTable;
     
     private static final Set<MethodSignature> OBJECT_METHODS = Sets.newLinkedHashSet();
     static {
@@ -56,8 +73,27 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         }
     }
 
+    /**
+     * Dispatch tables, keyed by the entity class and then the proxied interfaces (if known). Weak keys, so as 
+     * not to keep entity classes loaded; soft values, as the tables refer to the classes' methods.
+     */
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Set<Class<?>>, ConcurrentMap<Method, MethodHandler>>> DISPATCH_TABLES =
+            CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .softValues()
+                    .<Class<?>, ConcurrentMap<Set<Class<?>>, ConcurrentMap<Method, MethodHandler>>>build()
+                    .asMap();
+
     public EntityProxyImpl(Entity entity) {
+        this(entity, Collections.<Class<?>>emptySet());
+    }
+
+    /**
+     * @param interfaces the interfaces the proxy will implement, whose methods are put in the dispatch table up-front
+     */
+    public EntityProxyImpl(Entity entity, Set<Class<?>> interfaces) {
         this.delegate = checkNotNull(entity, "entity");
+        this.dispatchTable = getDispatchTable(entity, interfaces);
     }
     
     @Override
@@ -70,29 +106,64 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
             throw new IllegalArgumentException("Static methods not supported via proxy on entity "+delegate);
         }
         
-        MethodSignature sig = new MethodSignature(m);
+        MethodHandler handler = dispatchTable.get(m);
+        if (handler == null) {
+            // e.g. if the proxy's interfaces were not supplied
+            handler = newMethodHandler(m);
+            dispatchTable.putIfAbsent(m, handler);
+        }
+
+        Object result = handler.invoke(this, m, args);
+        
+        return (result == delegate && delegate instanceof AbstractEntity) ? ((AbstractEntity)result).getProxy() : result;
+    }
+    
+    private static ConcurrentMap<Method, MethodHandler> getDispatchTable(Entity entity, Set<Class<?>> interfaces) {
+        ConcurrentMap<Set<Class<?>>, ConcurrentMap<Method, MethodHandler>> tables = DISPATCH_TABLES.get(entity.getClass());
+        if (tables == null) {
+            tables = new ConcurrentHashMap<Set<Class<?>>, ConcurrentMap<Method, MethodHandler>>();
+            ConcurrentMap<Set<Class<?>>, ConcurrentMap<Method, MethodHandler>> existing = DISPATCH_TABLES.putIfAbsent(entity.getClass(), tables);
+            if (existing != null) tables = existing;
+        }
+        ConcurrentMap<Method, MethodHandler> result = tables.get(interfaces);
+        if (result == null) {
+            result = new ConcurrentHashMap<Method, MethodHandler>();
+            for (Class<?> iface : interfaces) {
+                for (Method m : iface.getMethods()) {
+                    result.put(m, newMethodHandler(m));
+                }
+            }
+            for (Method m : Object.class.getMethods()) {
+                result.put(m, newMethodHandler(m));
+            }
+            ConcurrentMap<Method, MethodHandler> existing = tables.putIfAbsent(ImmutableSet.copyOf(interfaces), result);
+            if (existing != null) result = existing;
+        }
+        return result;
+    }
 
-        Object result;
+    /**
+     * The handler for calls to the given method. For other methods, the effector is looked up by name
+     * on the entity being called, as entities of the same class can have different effectors.
+     */
+    private static MethodHandler newMethodHandler(Method m) {
+        MethodSignature sig = new MethodSignature(m);
         if (OBJECT_METHODS.contains(sig)) {
-            result = m.invoke(this, args);
+            MethodHandler direct = DIRECT_OBJECT_METHOD_HANDLERS.get(sig);
+            return (direct != null) ? direct : OBJECT_METHOD_HANDLER;
         } else if (ENTITY_NON_EFFECTOR_METHODS.contains(sig)) {
-            result = m.invoke(delegate, args);
+            MethodHandler direct = DIRECT_ENTITY_METHOD_HANDLERS.get(sig);
+            return (direct != null) ? direct : DELEGATE_METHOD_HANDLER;
         } else {
-            Object[] nonNullArgs = (args == null) ? new Object[0] : args;
-            Effector<?> eff = findEffector(m, nonNullArgs);
-            if (eff != null) {
-                result = EffectorUtils.invokeEffector(delegate, eff, nonNullArgs);
-            } else {
-                result = m.invoke(delegate, nonNullArgs);
-            }
+            return new EffectorMethodHandler(m.getName());
         }
-        
-        return (result == delegate && delegate instanceof AbstractEntity) ? ((AbstractEntity)result).getProxy() : result;
     }
-    
-    private Effector<?> findEffector(Method m, Object[] args) {
-        String name = m.getName();
-        Set<Effector<?>> effectors = delegate.getEntityType().getEffectors();
+
+    private static Effector<?> findEffector(Entity entity, String name) {
+        if (entity instanceof AbstractEntity) {
+            return ((AbstractEntity)entity).getEffector(name);
+        }
+        Set<Effector<?>> effectors = entity.getEntityType().getEffectors();
         for (Effector<?> contender : effectors) {
             if (name.equals(contender.getName())) {
                 return contender;
@@ -100,6 +171,101 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         }
         return null;
     }
+
+    /** How a call to a method through the proxy is handled. */
+    private static abstract class MethodHandler {
+        abstract Object invoke(EntityProxyImpl proxy, Method m, Object[] args) throws Throwable;
+    }
+
+    private static final MethodHandler OBJECT_METHOD_HANDLER = new MethodHandler() {
+        @Override Object invoke(EntityProxyImpl proxy, Method m, Object[] args) throws Throwable {
+            return m.invoke(proxy, args);
+        }
+    };
+
+    private static final MethodHandler DELEGATE_METHOD_HANDLER = new MethodHandler() {
+        @Override Object invoke(EntityProxyImpl proxy, Method m, Object[] args) throws Throwable {
+            return m.invoke(proxy.delegate, (args == null) ? new Object[0] : args);
+        }
+    };
+
+    private static class EffectorMethodHandler extends MethodHandler {
+        private final String effectorName;
+
+        EffectorMethodHandler(String effectorName) {
+            this.effectorName = effectorName;
+        }
+
+        @Override Object invoke(EntityProxyImpl proxy, Method m, Object[] args) throws Throwable {
+            Object[] nonNullArgs = (args == null) ? new Object[0] : args;
+            Effector<?> eff = findEffector(proxy.delegate, effectorName);
+            if (eff != null) {
+                return EffectorUtils.invokeEffector(proxy.delegate, eff, nonNullArgs);
+            } else {
+                return m.invoke(proxy.delegate, nonNullArgs);
+            }
+        }
+    }
+
+    /**
+     * Calls the most frequently used methods without reflection. Exceptions are wrapped as
+     * {@link Method#invoke(Object, Object...)} would, so callers see the same as for other methods.
+     */
+    private static abstract class DirectMethodHandler extends MethodHandler {
+        @Override Object invoke(EntityProxyImpl proxy, Method m, Object[] args) throws Throwable {
+            try {
+                return invokeDirect(proxy, args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+        abstract Object invokeDirect(EntityProxyImpl proxy, Object[] args);
+    }
+
+    private static final Map<MethodSignature, MethodHandler> DIRECT_OBJECT_METHOD_HANDLERS;
+    private static final Map<MethodSignature, MethodHandler> DIRECT_ENTITY_METHOD_HANDLERS;
+    static {
+        try {
+            DIRECT_OBJECT_METHOD_HANDLERS = ImmutableMap.<MethodSignature, MethodHandler>of(
+                    new MethodSignature(Object.class.getMethod("toString")), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.toString();
+                        }},
+                    new MethodSignature(Object.class.getMethod("hashCode")), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.hashCode();
+                        }},
+                    new MethodSignature(Object.class.getMethod("equals", Object.class)), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.equals(args[0]);
+                        }});
+
+            DIRECT_ENTITY_METHOD_HANDLERS = ImmutableMap.<MethodSignature, MethodHandler>builder()
+                    .put(new MethodSignature(Entity.class.getMethod("getId")), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.delegate.getId();
+                        }})
+                    .put(new MethodSignature(Entity.class.getMethod("getDisplayName")), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.delegate.getDisplayName();
+                        }})
+                    .put(new MethodSignature(Entity.class.getMethod("getAttribute", AttributeSensor.class)), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.delegate.getAttribute((AttributeSensor<?>)args[0]);
+                        }})
+                    .put(new MethodSignature(Entity.class.getMethod("getConfig", ConfigKey.class)), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.delegate.getConfig((ConfigKey<?>)args[0]);
+                        }})
+                    .put(new MethodSignature(Entity.class.getMethod("getConfig", HasConfigKey.class)), new DirectMethodHandler() {
+                        @Override Object invokeDirect(EntityProxyImpl proxy, Object[] args) {
+                            return proxy.delegate.getConfig((HasConfigKey<?>)args[0]);
+                        }})
+                    .build();
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     
     private static class MethodSignature {
         private final String name;
@@ -117,7 +117,7 @@ public class InternalEntityFactory {
         return (T) java.lang.reflect.Proxy.newProxyInstance(
                 classloader,
                 interfaces.toArray(new Class[interfaces.size()]),
-                new EntityProxyImpl(entity));
+                new EntityProxyImpl(entity, interfaces));
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -0,0 +1,380 @@
+package brooklyn.entity.rebind.persister;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.entity.rebind.dto.BrooklynMementoImpl;
+import brooklyn.entity.rebind.persister.MementoJournal.Record;
+import brooklyn.entity.rebind.persister.MementoJournal.RecordType;
+import brooklyn.mementos.BrooklynMemento;
+import brooklyn.mementos.BrooklynMementoPersister;
+import brooklyn.mementos.EntityMemento;
+import brooklyn.mementos.LocationMemento;
+import brooklyn.mementos.Memento;
+import brooklyn.mementos.PolicyMemento;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Persists mementos as an append-only journal of changes, rather than (as with
+ * {@link BrooklynMementoPersisterToMultiFile}) rewriting a file per entity/location/policy on every change.
+ * <p>
+ * Calls to {@link #delta(Delta)} and {@link #checkpoint(BrooklynMemento)} just queue the change. A single
+ * writer thread takes all queued changes, serializes them, appends them to the current journal segment and
+ * then syncs once for the whole batch; so under load, many changes share one disk write. When the journal
+ * grows past a threshold since the last snapshot (or on {@link #checkpoint(BrooklynMemento)}), the current
+ * state is written as a new snapshot and the superseded segments are deleted.
+ * <p>
+ * The latest state is held in memory in its serialized form, so {@link #loadMemento()} needs no disk reads
+ * (other than those done once, on construction, to replay the journal); mementos are deserialized in parallel.
+ *
+ * @see MementoJournal for the on-disk format
+ */
+public class BrooklynMementoPersisterToJournal implements BrooklynMementoPersister {
+
+    protected static final Logger LOG = LoggerFactory.getLogger(BrooklynMementoPersisterToJournal.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 16*1024*1024;
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 64*1024*1024;
+
+    private static final int SHUTDOWN_TIMEOUT_MS = 10*1000;
+
+    private static final int MAX_SERIALIZATION_ATTEMPTS = 5;
+
+    private final File dir;
+    private final MementoJournal journal;
+    private final long compactionThresholdBytes;
+    private final MementoSerializer<Object> serializer;
+
+    // serialized form of the current state, keyed by id; guarded by synchronizing on this.state
+    private final State state = new State();
+
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<Op>();
+    private final ExecutorService writer;
+
+    // guarded by this
+    private long queuedCount;
+    private long writtenCount;
+
+    private volatile boolean running = true;
+
+    public BrooklynMementoPersisterToJournal(File dir, ClassLoader classLoader) {
+        this(dir, classLoader, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    public BrooklynMementoPersisterToJournal(File dir, ClassLoader classLoader, long maxSegmentBytes, long compactionThresholdBytes) {
+        this.dir = checkNotNull(dir, "dir");
+        checkArgument(dir.isDirectory() && dir.canWrite(), "dir "+dir+" is not a writable directory");
+        checkArgument(maxSegmentBytes > 0, "maxSegmentBytes must be positive");
+        checkArgument(compactionThresholdBytes > 0, "compactionThresholdBytes must be positive");
+
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.serializer = new RetryingMementoSerializer<Object>(new XmlMementoSerializer<Object>(classLoader), MAX_SERIALIZATION_ATTEMPTS);
+        this.journal = new MementoJournal(dir, maxSegmentBytes);
+        try {
+            journal.open(new MementoJournal.RecordHandler() {
+                @Override public void onRecord(Record record) {
+                    state.apply(record);
+                }});
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-memento-journal-writer-%d")
+                .setDaemon(true)
+                .build());
+        writer.execute(new Runnable() {
+            @Override public void run() {
+                writeLoop();
+            }});
+
+        LOG.info("Memento-persister will use journal in directory {}", dir);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        queue.add(Op.STOP);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    @Override
+    public BrooklynMemento loadMemento() throws IOException {
+        Map<String, String> entities, locations, policies;
+        synchronized (state) {
+            entities = Maps.newLinkedHashMap(state.entities);
+            locations = Maps.newLinkedHashMap(state.locations);
+            policies = Maps.newLinkedHashMap(state.policies);
+        }
+
+        LOG.info("Loading memento from journal in {}; {} entities, {} locations, {} policies",
+                new Object[] {dir, entities.size(), locations.size(), policies.size()});
+
+        List<String> all = Lists.newArrayList();
+        all.addAll(entities.values());
+        all.addAll(locations.values());
+        all.addAll(policies.values());
+
+        ListeningExecutorService deserializers = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(Math.max(1, Math.min(all.size(), Runtime.getRuntime().availableProcessors())),
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("brooklyn-memento-journal-loader-%d")
+                                .setDaemon(true)
+                                .build()));
+        try {
+            List<ListenableFuture<Object>> futures = Lists.newArrayList();
+            for (final String serialized : all) {
+                futures.add(deserializers.submit(new Callable<Object>() {
+                    @Override public Object call() {
+                        return serializer.fromString(serialized);
+                    }}));
+            }
+
+            BrooklynMementoImpl.Builder builder = BrooklynMementoImpl.builder();
+            for (Object memento : Futures.allAsList(futures).get()) {
+                if (memento instanceof EntityMemento) {
+                    builder.entity((EntityMemento) memento);
+                    if (((EntityMemento) memento).isTopLevelApp()) {
+                        builder.applicationId(((EntityMemento) memento).getId());
+                    }
+                } else if (memento instanceof LocationMemento) {
+                    builder.location((LocationMemento) memento);
+                } else if (memento instanceof PolicyMemento) {
+                    builder.policy((PolicyMemento) memento);
+                } else {
+                    throw new IllegalStateException("Unexpected memento type "+memento+" in journal in "+dir);
+                }
+            }
+            return builder.build();
+
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } finally {
+            deserializers.shutdownNow();
+        }
+    }
+
+    @Override
+    public void checkpoint(BrooklynMemento newMemento) {
+        if (!running) {
+            if (LOG.isDebugEnabled()) LOG.debug("Ignoring checkpointing entire memento, because not running");
+            return;
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("Checkpointing entire memento");
+
+        List<Memento> mementos = Lists.newArrayList();
+        mementos.addAll(newMemento.getEntityMementos().values());
+        mementos.addAll(newMemento.getLocationMementos().values());
+        mementos.addAll(newMemento.getPolicyMementos().values());
+        enqueue(new Op(mementos, true));
+    }
+
+    @Override
+    public void delta(Delta delta) {
+        if (!running) {
+            if (LOG.isDebugEnabled()) LOG.debug("Ignoring checkpointed delta of memento, because not running");
+            return;
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("Checkpointed delta of memento; updating {} entities, {} locations and {} policies; " +
+                "removing {} entities, {} locations and {} policies",
+                new Object[] {delta.entities(), delta.locations(), delta.policies(),
+                delta.removedEntityIds(), delta.removedLocationIds(), delta.removedPolicyIds()});
+
+        List<Memento> mementos = Lists.newArrayList();
+        mementos.addAll(delta.entities());
+        mementos.addAll(delta.locations());
+        mementos.addAll(delta.policies());
+
+        List<Record> removals = Lists.newArrayList();
+        for (String id : delta.removedEntityIds()) {
+            removals.add(new Record(RecordType.REMOVE_ENTITY, id, null));
+        }
+        for (String id : delta.removedLocationIds()) {
+            removals.add(new Record(RecordType.REMOVE_LOCATION, id, null));
+        }
+        for (String id : delta.removedPolicyIds()) {
+            removals.add(new Record(RecordType.REMOVE_POLICY, id, null));
+        }
+        enqueue(new Op(mementos, removals));
+    }
+
+    @Override
+    @VisibleForTesting
+    public void waitForWritesCompleted(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long endTime = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized (this) {
+            long target = queuedCount;
+            while (writtenCount < target) {
+                long remaining = endTime - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Timeout waiting for journal writes in "+dir+"; "+(target-writtenCount)+" outstanding");
+                }
+                wait(remaining);
+            }
+        }
+    }
+
+    private void enqueue(Op op) {
+        synchronized (this) {
+            queuedCount++;
+        }
+        queue.add(op);
+    }
+
+    private void writeLoop() {
+        List<Op> batch = Lists.newArrayList();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+
+                boolean stopping = false;
+                int written = 0;
+                boolean compact = false;
+                for (Op op : batch) {
+                    if (op == Op.STOP) {
+                        stopping = true;
+                        continue;
+                    }
+                    try {
+                        writeOp(op);
+                        compact |= op.checkpoint;
+                    } catch (Exception e) {
+                        LOG.error("Problem persisting memento change to journal in "+dir+"; continuing", e);
+                    }
+                    written++;
+                }
+                try {
+                    if (written > 0) {
+                        journal.sync();
+                        if (compact || journal.getBytesSinceSnapshot() > compactionThresholdBytes) {
+                            compact();
+                        }
+                    }
+                } catch (IOException e) {
+                    LOG.error("Problem writing memento journal in "+dir+"; continuing", e);
+                }
+                synchronized (this) {
+                    writtenCount += written;
+                    notifyAll();
+                }
+                batch.clear();
+                if (stopping) break;
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Memento journal writer for "+dir+" interrupted; {} changes not written", queue.size());
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.warn("Problem closing memento journal in "+dir, e);
+            }
+        }
+    }
+
+    private void writeOp(Op op) throws IOException {
+        for (Memento memento : op.mementos) {
+            Record record = new Record(typeOf(memento), memento.getId(), serializer.toString(memento));
+            journal.append(record);
+            state.apply(record);
+        }
+        for (Record record : op.removals) {
+            journal.append(record);
+            state.apply(record);
+        }
+    }
+
+    private void compact() throws IOException {
+        List<Record> snapshot = Lists.newArrayList();
+        synchronized (state) {
+            for (Map.Entry<String, String> entry : state.entities.entrySet()) {
+                snapshot.add(new Record(RecordType.ENTITY, entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<String, String> entry : state.locations.entrySet()) {
+                snapshot.add(new Record(RecordType.LOCATION, entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<String, String> entry : state.policies.entrySet()) {
+                snapshot.add(new Record(RecordType.POLICY, entry.getKey(), entry.getValue()));
+            }
+        }
+        journal.compact(snapshot);
+    }
+
+    private static RecordType typeOf(Memento memento) {
+        if (memento instanceof EntityMemento) return RecordType.ENTITY;
+        if (memento instanceof LocationMemento) return RecordType.LOCATION;
+        if (memento instanceof PolicyMemento) return RecordType.POLICY;
+        throw new IllegalArgumentException("Unexpected memento type "+memento);
+    }
+
+    /** A queued change: mementos to write, and removals; or a full checkpoint */
+    private static class Op {
+        static final Op STOP = new Op(Lists.<Memento>newArrayList(), false);
+
+        final List<Memento> mementos;
+        final List<Record> removals;
+        final boolean checkpoint;
+
+        Op(List<Memento> mementos, boolean checkpoint) {
+            this.mementos = mementos;
+            this.removals = Lists.newArrayList();
+            this.checkpoint = checkpoint;
+        }
+        Op(List<Memento> mementos, List<Record> removals) {
+            this.mementos = mementos;
+            this.removals = removals;
+            this.checkpoint = false;
+        }
+    }
+
+    private static class State {
+        final Map<String, String> entities = Maps.newLinkedHashMap();
+        final Map<String, String> locations = Maps.newLinkedHashMap();
+        final Map<String, String> policies = Maps.newLinkedHashMap();
+
+        synchronized void apply(Record record) {
+            switch (record.type) {
+            case ENTITY: entities.put(record.id, record.payload); break;
+            case LOCATION: locations.put(record.id, record.payload); break;
+            case POLICY: policies.put(record.id, record.payload); break;
+            case REMOVE_ENTITY: entities.remove(record.id); break;
+            case REMOVE_LOCATION: locations.remove(record.id); break;
+            case REMOVE_POLICY: policies.remove(record.id); break;
+            default: throw new IllegalStateException("Unexpected record type "+record.type);
+            }
+        }
+    }
+}
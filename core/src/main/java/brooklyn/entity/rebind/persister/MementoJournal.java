@@ -0,0 +1,286 @@
+package brooklyn.entity.rebind.persister;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+
+/**
+ * The files of a {@link BrooklynMementoPersisterToJournal}: a snapshot of the complete state, plus
+ * numbered journal segments of records appended since that snapshot.
+ * <p>
+ * Each record is framed with its length and checksum, so that a record torn by a crash mid-write
+ * is detected (and it and anything after it in that segment ignored) on load.
+ * <p>
+ * Snapshot {@code snapshot-N} holds the state as at the start of segment {@code journal-N}.
+ * A snapshot is written to a temp file and renamed, and only then are older segments and
+ * snapshots deleted; so a crash at any point leaves a loadable snapshot plus the segments after it.
+ * <p>
+ * Not thread-safe: all calls must be made by one thread at a time.
+ */
+class MementoJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    enum RecordType {
+        ENTITY, LOCATION, POLICY, REMOVE_ENTITY, REMOVE_LOCATION, REMOVE_POLICY;
+    }
+
+    static class Record {
+        final RecordType type;
+        final String id;
+        /** serialized memento, or null for removals */
+        final String payload;
+
+        Record(RecordType type, String id, String payload) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+
+    interface RecordHandler {
+        void onRecord(Record record);
+    }
+
+    private final File dir;
+    private final long maxSegmentBytes;
+
+    private long segmentSeq;
+    private FileOutputStream segmentFileStream;
+    private DataOutputStream segmentStream;
+    private long segmentBytes;
+    private long bytesSinceSnapshot;
+
+    MementoJournal(File dir, long maxSegmentBytes) {
+        this.dir = dir;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * Reads the latest snapshot and all subsequent segments, passing each record (in order) to the handler;
+     * then opens a new segment for appending. Must be called once, before any other method.
+     */
+    void open(RecordHandler handler) throws IOException {
+        for (File tmp : dir.listFiles(suffixFilter(TMP_SUFFIX))) {
+            tmp.delete();
+        }
+        long snapshotSeq = -1;
+        for (long seq : seqs(SNAPSHOT_PREFIX)) {
+            snapshotSeq = Math.max(snapshotSeq, seq);
+        }
+        long maxSeq = snapshotSeq;
+
+        if (snapshotSeq >= 0) {
+            readFile(fileFor(SNAPSHOT_PREFIX, snapshotSeq), handler);
+        }
+        for (long seq : seqs(SEGMENT_PREFIX)) {
+            maxSeq = Math.max(maxSeq, seq);
+            if (seq >= snapshotSeq) {
+                bytesSinceSnapshot += readFile(fileFor(SEGMENT_PREFIX, seq), handler);
+            }
+        }
+
+        // never append to an existing segment, as it may end with a torn record
+        openSegment(maxSeq + 1);
+    }
+
+    void append(Record record) throws IOException {
+        if (segmentBytes >= maxSegmentBytes) {
+            closeSegment();
+            openSegment(segmentSeq + 1);
+        }
+        int written = writeRecord(segmentStream, record);
+        segmentBytes += written;
+        bytesSinceSnapshot += written;
+    }
+
+    /** flushes appended records to disk (so a batch of appends costs one fsync) */
+    void sync() throws IOException {
+        segmentStream.flush();
+        segmentFileStream.getFD().sync();
+    }
+
+    long getBytesSinceSnapshot() {
+        return bytesSinceSnapshot;
+    }
+
+    /** writes a snapshot of the given complete state, and deletes the segments and snapshots it supersedes */
+    void compact(Iterable<Record> state) throws IOException {
+        closeSegment();
+        long newSeq = segmentSeq + 1;
+
+        File snapshot = fileFor(SNAPSHOT_PREFIX, newSeq);
+        File tmpSnapshot = new File(dir, snapshot.getName()+TMP_SUFFIX);
+        FileOutputStream fileStream = new FileOutputStream(tmpSnapshot);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            for (Record record : state) {
+                writeRecord(out, record);
+            }
+            out.flush();
+            fileStream.getFD().sync();
+        } finally {
+            Closeables.closeQuietly(fileStream);
+        }
+        if (!tmpSnapshot.renameTo(snapshot)) {
+            throw new IOException("Failed to rename "+tmpSnapshot+" to "+snapshot);
+        }
+
+        for (long seq : seqs(SEGMENT_PREFIX)) {
+            if (seq < newSeq) fileFor(SEGMENT_PREFIX, seq).delete();
+        }
+        for (long seq : seqs(SNAPSHOT_PREFIX)) {
+            if (seq < newSeq) fileFor(SNAPSHOT_PREFIX, seq).delete();
+        }
+
+        openSegment(newSeq);
+        bytesSinceSnapshot = 0;
+        if (LOG.isDebugEnabled()) LOG.debug("Compacted memento journal in {} to {}", dir, snapshot);
+    }
+
+    void close() throws IOException {
+        closeSegment();
+    }
+
+    private void openSegment(long seq) throws IOException {
+        segmentSeq = seq;
+        segmentFileStream = new FileOutputStream(fileFor(SEGMENT_PREFIX, seq), true);
+        segmentStream = new DataOutputStream(new BufferedOutputStream(segmentFileStream));
+        segmentBytes = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentStream != null) {
+            sync();
+            segmentStream.close();
+            segmentStream = null;
+            segmentFileStream = null;
+        }
+    }
+
+    /** frame is: length of body; crc of body; body (type, id, has-payload, payload) */
+    private static int writeRecord(DataOutputStream out, Record record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(record.type.ordinal());
+        body.writeUTF(record.id);
+        if (record.payload != null) {
+            byte[] payload = record.payload.getBytes(Charsets.UTF_8);
+            body.writeInt(payload.length);
+            body.write(payload);
+        } else {
+            body.writeInt(-1);
+        }
+        body.flush();
+
+        byte[] frame = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(frame);
+        out.writeInt(frame.length);
+        out.writeLong(crc.getValue());
+        out.write(frame);
+        return 4 + 8 + frame.length;
+    }
+
+    /** returns the number of bytes of valid records read */
+    private static long readFile(File file, RecordHandler handler) throws IOException {
+        long result = 0;
+        InputStream fileStream = new FileInputStream(file);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fileStream));
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return result;
+                }
+                try {
+                    long expectedCrc = in.readLong();
+                    if (length < 0) throw new IOException("negative record length "+length);
+                    byte[] frame = new byte[length];
+                    in.readFully(frame);
+                    CRC32 crc = new CRC32();
+                    crc.update(frame);
+                    if (crc.getValue() != expectedCrc) throw new IOException("checksum mismatch");
+                    handler.onRecord(readRecord(frame));
+                    result += 4 + 8 + length;
+                } catch (IOException e) {
+                    LOG.warn("Ignoring remainder of memento journal file "+file+" after "+result+" bytes, as record incomplete or corrupt: "+e);
+                    return result;
+                }
+            }
+        } finally {
+            Closeables.closeQuietly(fileStream);
+        }
+    }
+
+    private static Record readRecord(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        int typeOrdinal = in.readByte();
+        if (typeOrdinal < 0 || typeOrdinal >= RecordType.values().length) throw new IOException("unknown record type "+typeOrdinal);
+        RecordType type = RecordType.values()[typeOrdinal];
+        String id = in.readUTF();
+        int payloadLength = in.readInt();
+        String payload = null;
+        if (payloadLength >= 0) {
+            byte[] payloadBytes = new byte[payloadLength];
+            in.readFully(payloadBytes);
+            payload = new String(payloadBytes, Charsets.UTF_8);
+        }
+        return new Record(type, id, payload);
+    }
+
+    private File fileFor(String prefix, long seq) {
+        return new File(dir, String.format("%s%010d", prefix, seq));
+    }
+
+    /** sequence numbers of the complete files with the given prefix, in ascending order */
+    private List<Long> seqs(final String prefix) {
+        List<Long> result = Lists.newArrayList();
+        String[] names = dir.list(new FilenameFilter() {
+            @Override public boolean accept(File d, String name) {
+                return name.startsWith(prefix) && !name.endsWith(TMP_SUFFIX);
+            }});
+        Arrays.sort(names);
+        for (String name : names) {
+            try {
+                result.add(Long.parseLong(name.substring(prefix.length())));
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file {} in memento journal directory {}", name, dir);
+            }
+        }
+        return result;
+    }
+
+    private static FilenameFilter suffixFilter(final String suffix) {
+        return new FilenameFilter() {
+            @Override public boolean accept(File d, String name) {
+                return name.endsWith(suffix);
+            }};
+    }
+}
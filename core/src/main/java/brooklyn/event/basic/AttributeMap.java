@@ -2,9 +2,15 @@ package brooklyn.event.basic;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +19,6 @@ import brooklyn.entity.Entity;
 import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.event.AttributeSensor;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -21,6 +26,11 @@ import com.google.common.collect.Maps;
 
 /**
  * A {@link Map} of {@link Entity} attribute values.
+ * <p>
+ * Values are written through to the given storage map (keyed by sensor name parts, as required for
+ * persistence and rebind), but are read from a compact table keyed by interned slot number
+ * (see {@link AttributeSlots}), which is read without locking. Sensors cache their slot, so 
+ * {@link #getValue(AttributeSensor)} does no hashing of name parts.
  */
 public final class AttributeMap implements Serializable {
 
@@ -30,9 +40,24 @@ public final class AttributeMap implements Serializable {
 
     private final AbstractEntity entity;
 
-    // Note that we synchronize on the top-level map, to handle concurrent updates and and gets (ENGR-2111)
+    // the storage map, which keeps insertion order; written (as is table) while synchronized on this, and only 
+    // read (also while synchronized on this) for whole-map copies, as single values are read from table
     private final Map<Collection<String>, Object> values;
 
+    // read-optimised copy of values, read without locking
+    private transient volatile SlotTable table;
+
+    // only for sensors with an AttributePublicationPolicy; lazily created as most entities don't need it
+    private transient volatile ConcurrentMap<String, PublicationState> publicationStates;
+    
+    private final AtomicLong suppressedPublicationCount = new AtomicLong();
+
+    // a JVM-wide sequence, so that versions of different maps (e.g. before and after rebind) do not coincide
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+    
+    // written while synchronized on this
+    private transient volatile long version = VERSION_SEQUENCE.incrementAndGet();
+
     /**
      * Creates a new AttributeMap.
      *
@@ -42,18 +67,40 @@ public final class AttributeMap implements Serializable {
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.values = checkNotNull(storage, "storage map must not be null");
+        this.table = loadTable(storage);
+    }
+
+    private static SlotTable loadTable(Map<Collection<String>, Object> storage) {
+        // storage may already have values, e.g. if reconstituting the entity
+        SlotTable result = new SlotTable(SlotTable.INITIAL_CAPACITY);
+        synchronized (storage) {
+            for (Map.Entry<Collection<String>, Object> entry : storage.entrySet()) {
+                result = result.put(AttributeSlots.slotFor(entry.getKey()), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        table = loadTable(values);
+        version = VERSION_SEQUENCE.incrementAndGet();
     }
 
     public Map<Collection<String>, Object> asRawMap() {
-        return ImmutableMap.copyOf(values);
+        synchronized (this) {
+            return ImmutableMap.copyOf(values);
+        }
     }
 
+    /** the values, keyed by sensor name, in the order the sensors were first set */
     public Map<String, Object> asMap() {
         Map<String, Object> result = Maps.newLinkedHashMap();
-        for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-            String sensorName = Joiner.on('.').join(entry.getKey());
-            Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-            result.put(sensorName, val);
+        synchronized (this) {
+            for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
+                Object val = entry.getValue();
+                result.put(AttributeSlots.nameOf(AttributeSlots.slotFor(entry.getKey())), isNull(val) ? null : val);
+            }
         }
         return result;
     }
@@ -78,7 +125,12 @@ public final class AttributeMap implements Serializable {
             log.trace("setting sensor {}={} for {}", new Object[] {path, newValue, entity});
         }
 
-        T oldValue = (T) values.put(path, newValue);
+        T oldValue;
+        synchronized (this) {
+            oldValue = (T) values.put(path, newValue);
+            table = table.put(AttributeSlots.slotFor(path), newValue);
+            version = VERSION_SEQUENCE.incrementAndGet();
+        }
         return (isNull(oldValue)) ? null : oldValue;
     }
 
@@ -89,10 +141,65 @@ public final class AttributeMap implements Serializable {
 
     public <T> T update(AttributeSensor<T> attribute, T newValue) {
         T oldValue = updateWithoutPublishing(attribute, newValue);
-        entity.emitInternal(attribute, newValue);
+        if (shouldPublish(attribute, newValue)) {
+            entity.emitInternal(attribute, newValue);
+        } else {
+            suppressedPublicationCount.incrementAndGet();
+            if (log.isTraceEnabled()) log.trace("not publishing attribute {}={} on {}, due to its publication policy", new Object[] {attribute.getName(), newValue, entity});
+        }
         return oldValue;
     }
     
+    /**
+     * Changes whenever a value is updated or removed, so callers can cheaply tell whether any value may
+     * have changed since they last looked (e.g. for HTTP ETags). Values are unique across all attribute
+     * maps in this JVM.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /** the number of updates which were stored but not published, due to the sensors' {@link AttributePublicationPolicy} */
+    public long getSuppressedPublicationCount() {
+        return suppressedPublicationCount.get();
+    }
+    
+    private boolean shouldPublish(AttributeSensor<?> attribute, Object newValue) {
+        if (!(attribute instanceof BasicAttributeSensor)) return true;
+        AttributePublicationPolicy policy = ((BasicAttributeSensor<?>)attribute).getPublicationPolicy();
+        if (policy == null) return true;
+        
+        ConcurrentMap<String, PublicationState> states = publicationStates;
+        if (states == null) {
+            synchronized (this) {
+                if (publicationStates == null) publicationStates = new ConcurrentHashMap<String, PublicationState>();
+                states = publicationStates;
+            }
+        }
+        PublicationState state = states.get(attribute.getName());
+        if (state == null) {
+            states.putIfAbsent(attribute.getName(), new PublicationState());
+            state = states.get(attribute.getName());
+        }
+        long now = System.nanoTime();
+        synchronized (state) {
+            if (state.published && !policy.shouldPublish(state.lastPublishedValue, state.lastPublishedNanos, newValue, now)) {
+                return false;
+            }
+            state.published = true;
+            state.lastPublishedValue = newValue;
+            state.lastPublishedNanos = now;
+            return true;
+        }
+    }
+    
+    /** last value published for an attribute with a publication policy */
+    private static class PublicationState {
+        boolean published;
+        Object lastPublishedValue;
+        long lastPublishedNanos;
+    }
+    
     public <T> T updateWithoutPublishing(AttributeSensor<T> attribute, T newValue) {
         if (log.isTraceEnabled()) {
             Object oldValue = getValue(attribute);
@@ -124,7 +231,12 @@ public final class AttributeMap implements Serializable {
             log.trace("removing sensor {} for {}", new Object[] {path, entity});
         }
 
-        values.remove(path);
+        synchronized (this) {
+            values.remove(path);
+            int slot = AttributeSlots.existingSlotFor(path);
+            if (slot >= 0) table.remove(slot);
+            version = VERSION_SEQUENCE.incrementAndGet();
+        }
     }
 
     /**
@@ -139,11 +251,16 @@ public final class AttributeMap implements Serializable {
         // or the leaf value if only one value. Arguably that is not required - what is/was the use-case?
         // 
         checkPath(path);
-        Object result = values.get(path);
+        int slot = AttributeSlots.existingSlotFor(path);
+        Object result = (slot >= 0) ? table.get(slot) : null;
         return (isNull(result)) ? null : result;
     }
 
     public <T> T getValue(AttributeSensor<T> sensor) {
+        if (sensor instanceof BasicSensor) {
+            Object result = table.get(((BasicSensor<?>)sensor).getAttributeSlot());
+            return (T) ((isNull(result)) ? null : result);
+        }
         return (T) getValue(sensor.getNameParts());
     }
 
@@ -156,4 +273,89 @@ public final class AttributeMap implements Serializable {
     private boolean isNull(Object t) {
         return t == NULL;
     }
+    
+    /**
+     * Open-addressing hash table from slot to value, for lock-free reads.
+     * <p>
+     * Writers must be externally synchronized. A key is written before its value, and values are 
+     * written with volatile semantics, so a reader either sees a key's value or treats it as absent.
+     * Removal leaves the key in place with a null value. When the table gets too full, 
+     * {@link #put(int, Object)} returns a new larger copy, which the caller must publish.
+     */
+    static class SlotTable {
+        static final int INITIAL_CAPACITY = 16;
+        
+        /** slot+1, with zero meaning empty */
+        private final int[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+        private int used;
+        
+        SlotTable(int capacity) {
+            keys = new int[capacity];
+            values = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+        }
+        
+        private static int hash(int slot) {
+            int h = slot * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+        
+        Object get(int slot) {
+            int key = slot + 1;
+            for (int i = hash(slot) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == key) return values.get(i);
+                if (k == 0) return null;
+            }
+        }
+        
+        /** returns this table, or a new larger one containing all entries if this one was full */
+        SlotTable put(int slot, Object value) {
+            int key = slot + 1;
+            int i;
+            for (i = hash(slot) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == key) {
+                    values.set(i, value);
+                    return this;
+                }
+                if (k == 0) break;
+            }
+            if ((used + 1) * 2 > keys.length) {
+                SlotTable result = new SlotTable(keys.length * 2);
+                for (int j = 0; j < keys.length; j++) {
+                    Object v = values.get(j);
+                    if (keys[j] != 0 && v != null) result.putNew(keys[j] - 1, v);
+                }
+                result.putNew(slot, value);
+                return result;
+            }
+            keys[i] = key;
+            values.set(i, value);
+            used++;
+            return this;
+        }
+        
+        private void putNew(int slot, Object value) {
+            int i = hash(slot) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = slot + 1;
+            values.set(i, value);
+            used++;
+        }
+        
+        void remove(int slot) {
+            int key = slot + 1;
+            for (int i = hash(slot) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == key) {
+                    values.set(i, null);
+                    return;
+                }
+                if (k == 0) return;
+            }
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package brooklyn.event.basic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Objects;
+
+/**
+ * Says when a change to an attribute should be published as a sensor event, for high-frequency
+ * attributes where publishing every update (e.g. from a poller setting the same value every second)
+ * would cause needless subscription fan-out. Values are always stored; only the event is suppressed.
+ * <p>
+ * Attach to a sensor with {@link Sensors#newSensor(Class, String, String, AttributePublicationPolicy)}
+ * or {@link Sensors#withPublicationPolicy(brooklyn.event.AttributeSensor, AttributePublicationPolicy)}.
+ * The checks combine; an update is published only if none of them suppress it:
+ * <ul>
+ *   <li>on-change: suppress if equal to the last published value
+ *   <li>min-interval: suppress if the last publish was less than this long ago
+ *       (note the suppressed value is only published on a subsequent update, so use this for
+ *       attributes that are set regularly, such as by a feed)
+ *   <li>deadband: for numeric values, suppress if within this amount of the last published value
+ * </ul>
+ * The first update is always published.
+ */
+public final class AttributePublicationPolicy implements Serializable {
+
+    private static final long serialVersionUID = -3179432851530012462L;
+
+    public static final AttributePublicationPolicy ALWAYS = new AttributePublicationPolicy(false, 0, 0);
+
+    /** publishes only when the value differs from the last published value */
+    public static AttributePublicationPolicy onChange() {
+        return new AttributePublicationPolicy(true, 0, 0);
+    }
+
+    /** publishes at most once per the given period */
+    public static AttributePublicationPolicy minInterval(Duration minInterval) {
+        return ALWAYS.andMinInterval(minInterval);
+    }
+
+    /** for numeric values, publishes only when the value has moved by at least the given amount since last published */
+    public static AttributePublicationPolicy deadband(double deadband) {
+        return ALWAYS.andDeadband(deadband);
+    }
+
+    private final boolean onChangeOnly;
+    private final long minIntervalNanos;
+    private final double deadband;
+
+    private AttributePublicationPolicy(boolean onChangeOnly, long minIntervalNanos, double deadband) {
+        checkArgument(minIntervalNanos >= 0, "minInterval must not be negative");
+        checkArgument(deadband >= 0, "deadband must not be negative");
+        this.onChangeOnly = onChangeOnly;
+        this.minIntervalNanos = minIntervalNanos;
+        this.deadband = deadband;
+    }
+
+    public AttributePublicationPolicy andOnChange() {
+        return new AttributePublicationPolicy(true, minIntervalNanos, deadband);
+    }
+
+    public AttributePublicationPolicy andMinInterval(Duration minInterval) {
+        return new AttributePublicationPolicy(onChangeOnly, minInterval.toNanoseconds(), deadband);
+    }
+
+    public AttributePublicationPolicy andDeadband(double deadband) {
+        return new AttributePublicationPolicy(onChangeOnly, minIntervalNanos, deadband);
+    }
+
+    public boolean isOnChangeOnly() {
+        return onChangeOnly;
+    }
+
+    public Duration getMinInterval() {
+        return Duration.of(minIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    /**
+     * @param lastPublishedNanos  {@link System#nanoTime()} at last publish
+     * @param nowNanos  {@link System#nanoTime()} now
+     */
+    boolean shouldPublish(Object lastPublishedValue, long lastPublishedNanos, Object newValue, long nowNanos) {
+        if (onChangeOnly && Objects.equal(lastPublishedValue, newValue)) {
+            return false;
+        }
+        if (minIntervalNanos > 0 && (nowNanos - lastPublishedNanos) < minIntervalNanos) {
+            return false;
+        }
+        if (deadband > 0 && lastPublishedValue instanceof Number && newValue instanceof Number) {
+            double delta = Math.abs(((Number)newValue).doubleValue() - ((Number)lastPublishedValue).doubleValue());
+            if (delta < deadband) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof AttributePublicationPolicy)) return false;
+        AttributePublicationPolicy o = (AttributePublicationPolicy) obj;
+        return onChangeOnly == o.onChangeOnly && minIntervalNanos == o.minIntervalNanos && deadband == o.deadband;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(onChangeOnly, minIntervalNanos, deadband);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).omitNullValues()
+                .add("onChange", onChangeOnly ? true : null)
+                .add("minInterval", minIntervalNanos > 0 ? getMinInterval() : null)
+                .add("deadband", deadband > 0 ? deadband : null)
+                .toString();
+    }
+}
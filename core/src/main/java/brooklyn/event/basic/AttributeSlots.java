@@ -0,0 +1,79 @@
+package brooklyn.event.basic;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Interns attribute names (i.e. sensor name parts) to small integer slots, shared across all entities,
+ * so that {@link AttributeMap} can store values in a compact table keyed by int rather than by list.
+ * <p>
+ * Slots are never released; the number of distinct attribute names in a JVM is expected to be small
+ * (in the order of the number of sensors declared across all entity types).
+ */
+class AttributeSlots {
+
+    private static final ConcurrentMap<List<String>, Integer> slotsByPath = new ConcurrentHashMap<List<String>, Integer>();
+
+    // guarded by AttributeSlots.class for writes; arrays are replaced (never modified in place) when full
+    private static volatile List<String>[] pathsBySlot = newArray(64);
+    private static volatile String[] namesBySlot = new String[64];
+    private static volatile int numSlots = 0;
+
+    private AttributeSlots() {}
+
+    /** returns the slot for the given path, allocating one if this is the first use of the path */
+    static int slotFor(Collection<String> path) {
+        List<String> key = asList(path);
+        Integer result = slotsByPath.get(key);
+        if (result != null) return result;
+
+        synchronized (AttributeSlots.class) {
+            result = slotsByPath.get(key);
+            if (result != null) return result;
+
+            int slot = numSlots;
+            if (slot >= pathsBySlot.length) {
+                pathsBySlot = Arrays.copyOf(pathsBySlot, pathsBySlot.length*2);
+                namesBySlot = Arrays.copyOf(namesBySlot, namesBySlot.length*2);
+            }
+            List<String> immutablePath = ImmutableList.copyOf(path);
+            pathsBySlot[slot] = immutablePath;
+            namesBySlot[slot] = Joiner.on('.').join(immutablePath);
+            numSlots = slot+1;
+            // publish in the map last, so anyone who can get the slot can also get its name
+            slotsByPath.put(immutablePath, slot);
+            return slot;
+        }
+    }
+
+    /** returns the slot for the given path, or -1 if no attribute of that name has ever been stored */
+    static int existingSlotFor(Collection<String> path) {
+        Integer result = slotsByPath.get(asList(path));
+        return (result != null) ? result : -1;
+    }
+
+    /** the dot-separated attribute name for the slot */
+    static String nameOf(int slot) {
+        return namesBySlot[slot];
+    }
+
+    /** the attribute name parts for the slot */
+    static List<String> pathOf(int slot) {
+        return pathsBySlot[slot];
+    }
+
+    private static List<String> asList(Collection<String> path) {
+        return (path instanceof List) ? (List<String>) path : ImmutableList.copyOf(path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newArray(int size) {
+        return new List[size];
+    }
+}
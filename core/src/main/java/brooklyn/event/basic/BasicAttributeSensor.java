@@ -10,6 +10,8 @@ import com.google.common.reflect.TypeToken;
  */
 public class BasicAttributeSensor<T> extends BasicSensor<T> implements AttributeSensor<T> {
     private static final long serialVersionUID = -2493209215974820300L;
+    
+    private final AttributePublicationPolicy publicationPolicy;
 
     public BasicAttributeSensor(Class<T> type, String name) {
         this(type, name, name);
@@ -17,6 +19,7 @@ public class BasicAttributeSensor<T> extends BasicSensor<T> implements Attribute
     
     public BasicAttributeSensor(Class<T> type, String name, String description) {
         super(type, name, description);
+        this.publicationPolicy = null;
     }
     
     public BasicAttributeSensor(TypeToken<T> typeToken, String name) {
@@ -24,7 +27,17 @@ public class BasicAttributeSensor<T> extends BasicSensor<T> implements Attribute
     }
     
     public BasicAttributeSensor(TypeToken<T> typeToken, String name, String description) {
+        this(typeToken, name, description, null);
+    }
+    
+    /** @see AttributePublicationPolicy */
+    public BasicAttributeSensor(TypeToken<T> typeToken, String name, String description, AttributePublicationPolicy publicationPolicy) {
         super(typeToken, name, description);
+        this.publicationPolicy = publicationPolicy;
     }
     
+    /** the policy for when updates to this attribute are published, or null to publish every update */
+    public AttributePublicationPolicy getPublicationPolicy() {
+        return publicationPolicy;
+    }
 }
@@ -30,6 +30,8 @@ public class BasicSensor<T> implements Sensor<T> {
     private String name;
     private String description;
     private transient List<String> nameParts;
+    /** slot+1 (so that zero, the default after deserialization, means not yet known); see {@link AttributeSlots} */
+    private transient volatile int attributeSlotPlusOne;
     
     // FIXME In groovy, fields were `public final` with a default constructor; do we need the gson?
     public BasicSensor() { /* for gson */ }
@@ -69,6 +71,16 @@ public class BasicSensor<T> implements Sensor<T> {
         if (nameParts==null) nameParts = ImmutableList.copyOf(dots.split(name));
         return nameParts; 
     }
+
+    /** the interned slot of this sensor's name, for {@link AttributeMap} */
+    int getAttributeSlot() {
+        int result = attributeSlotPlusOne;
+        if (result == 0) {
+            result = AttributeSlots.slotFor(getNameParts()) + 1;
+            attributeSlotPlusOne = result;
+        }
+        return result - 1;
+    }
  
     /** @see Sensor#getDescription() */
     public String getDescription() { return description; }
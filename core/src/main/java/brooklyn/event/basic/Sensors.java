@@ -18,6 +18,21 @@ public class Sensors {
         return new BasicAttributeSensor<T>(type, name, description);
     }
 
+    /** @see AttributePublicationPolicy */
+    public static <T> AttributeSensor<T> newSensor(Class<T> type, String name, String description, AttributePublicationPolicy publicationPolicy) {
+        return new BasicAttributeSensor<T>(TypeToken.of(type), name, description, publicationPolicy);
+    }
+
+    /** 
+     * Returns a copy of the sensor which is published according to the given policy; the copy
+     * is equal to the original, so subscribers to either receive the events.
+     * 
+     * @see AttributePublicationPolicy
+     */
+    public static <T> AttributeSensor<T> withPublicationPolicy(AttributeSensor<T> sensor, AttributePublicationPolicy publicationPolicy) {
+        return new BasicAttributeSensor<T>(sensor.getTypeToken(), sensor.getName(), sensor.getDescription(), publicationPolicy);
+    }
+
     public static AttributeSensor<String> newStringSensor(String name) {
         return newSensor(String.class, name);
     }
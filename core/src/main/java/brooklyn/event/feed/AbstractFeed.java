@@ -50,6 +50,11 @@ public abstract class AbstractFeed {
         return entity;
     }
     
+    /** counts and durations of this feed's polls, including polls skipped because the previous one overran */
+    public PollScheduler.PollMetrics getPollMetrics() {
+        return poller.getMetrics();
+    }
+    
     protected boolean isConnected() {
         // TODO Default impl will result in multiple logs for same error if becomes unreachable
         // (e.g. if ssh gets NoRouteToHostException, then every AttributePollHandler for that
@@ -0,0 +1,170 @@
+package brooklyn.event.feed;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.management.ExecutionContext;
+import brooklyn.management.Task;
+import brooklyn.util.internal.BrooklynSystemProperties;
+import brooklyn.util.task.BasicTask;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Schedules the periodic polls of all {@link Poller}s in a management context from a single timer thread,
+ * rather than each poll job being a separate {@link brooklyn.util.task.ScheduledTask}.
+ * <p>
+ * On each tick the poll job is submitted as a task in the entity's execution context, as before.
+ * If the previous poll of that job has not yet finished, the tick is skipped (and counted as an overrun),
+ * so slow polls do not queue up. The first poll of each job is delayed by a random fraction
+ * (up to {@link #getJitter()}) of its period, so that feeds started at the same time do not all 
+ * poll in lockstep.
+ */
+public class PollScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PollScheduler.class);
+
+    public static final double DEFAULT_JITTER = 0.1;
+    
+    /** a scheduler with the jitter from {@link BrooklynSystemProperties#POLLER_JITTER}, if set */
+    public static PollScheduler newDefault() {
+        return new PollScheduler(BrooklynSystemProperties.POLLER_JITTER.isAvailable() ? 
+                BrooklynSystemProperties.POLLER_JITTER.getValue() : DEFAULT_JITTER);
+    }
+    
+    private final ScheduledExecutorService timer;
+    private final double jitter;
+    private final Random random = new Random();
+    
+    public PollScheduler(double jitter) {
+        checkArgument(jitter >= 0 && jitter <= 1, "jitter must be in range [0,1], but was %s", jitter);
+        this.jitter = jitter;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-poll-scheduler-%d")
+                .setDaemon(true)
+                .build());
+    }
+    
+    public double getJitter() {
+        return jitter;
+    }
+    
+    /**
+     * Schedules the job to be run periodically, each run being a task in the given execution context.
+     * The returned poll must be cancelled when no longer required.
+     */
+    public ScheduledPoll schedule(ExecutionContext executionContext, Runnable job, long periodMillis, PollMetrics metrics) {
+        checkArgument(periodMillis > 0, "period must be positive, but was %s", periodMillis);
+        long initialDelay;
+        synchronized (random) {
+            initialDelay = (long) (random.nextDouble() * jitter * periodMillis);
+        }
+        ScheduledPoll result = new ScheduledPoll(executionContext, job, metrics);
+        result.future = timer.scheduleAtFixedRate(result, initialDelay, periodMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /** shuts down the timer thread, so no further polls are run; e.g. when the management context terminates */
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+    
+    public static class ScheduledPoll implements Runnable {
+        private final ExecutionContext executionContext;
+        private final Runnable job;
+        private final PollMetrics metrics;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+        private volatile Task<?> currentTask;
+        
+        private final Runnable timedJob = new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    if (!cancelled) job.run();
+                } finally {
+                    metrics.onPollCompleted(System.nanoTime() - start);
+                    running.set(false);
+                }
+            }};
+        
+        ScheduledPoll(ExecutionContext executionContext, Runnable job, PollMetrics metrics) {
+            this.executionContext = executionContext;
+            this.job = job;
+            this.metrics = metrics;
+        }
+        
+        /** called on each tick, by the timer thread; must not throw, as that would stop subsequent ticks */
+        @Override
+        public void run() {
+            if (cancelled) return;
+            if (!running.compareAndSet(false, true)) {
+                // if the previous task was cancelled before it started, timedJob never ran to reset running
+                Task<?> previous = currentTask;
+                if (previous == null || !previous.isDone()) {
+                    metrics.onPollSkipped();
+                    if (log.isTraceEnabled()) log.trace("Skipping poll {}, as previous poll still running", job);
+                    return;
+                }
+            }
+            try {
+                currentTask = executionContext.submit(new BasicTask<Void>(timedJob));
+            } catch (Throwable t) {
+                running.set(false);
+                log.warn("Error submitting poll "+job+"; will retry on next tick", t);
+            }
+        }
+        
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = future;
+            if (f != null) f.cancel(false);
+        }
+    }
+    
+    /** Counts of polls run and skipped, and their durations; updated concurrently by the polls of a {@link Poller}. */
+    public static class PollMetrics {
+        private final AtomicLong pollCount = new AtomicLong();
+        private final AtomicLong skippedCount = new AtomicLong();
+        private volatile long lastDurationNanos;
+        private volatile long maxDurationNanos;
+        
+        void onPollCompleted(long durationNanos) {
+            pollCount.incrementAndGet();
+            lastDurationNanos = durationNanos;
+            if (durationNanos > maxDurationNanos) maxDurationNanos = durationNanos;
+        }
+        
+        void onPollSkipped() {
+            skippedCount.incrementAndGet();
+        }
+        
+        public long getPollCount() {
+            return pollCount.get();
+        }
+        
+        /** the number of times a poll was due but not run, because the previous poll of the same job was still running */
+        public long getOverrunCount() {
+            return skippedCount.get();
+        }
+        
+        public long getLastPollDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(lastDurationNanos);
+        }
+        
+        public long getMaxPollDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxDurationNanos);
+        }
+    }
+}
@@ -10,9 +10,8 @@ import org.slf4j.LoggerFactory;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
 import brooklyn.management.Task;
-import brooklyn.util.collections.MutableMap;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.task.BasicTask;
-import brooklyn.util.task.ScheduledTask;
 
 import com.google.common.base.Objects;
 
@@ -21,6 +20,7 @@ import com.google.common.base.Objects;
  * For executing periodic polls.
  * Jobs are added to the schedule, and then the poller is started.
  * The jobs will then be executed periodically, and the handler called for the result/failure.
+ * Scheduling is done by the entity's management context's {@link PollScheduler}; see there for jitter and overrun behaviour.
  * 
  * Assumes the schedule+start will be done single threaded, and that stop will not be done concurrently.
  */
@@ -31,7 +31,8 @@ public class Poller<V> {
     private final Set<Callable<?>> oneOffJobs = new LinkedHashSet<Callable<?>>();
     private final Set<PollJob<V>> pollJobs = new LinkedHashSet<PollJob<V>>();
     private final Set<Task> oneOffTasks = new LinkedHashSet<Task>();
-    private final Set<ScheduledTask> tasks = new LinkedHashSet<ScheduledTask>();
+    private final Set<PollScheduler.ScheduledPoll> scheduledPolls = new LinkedHashSet<PollScheduler.ScheduledPoll>();
+    private final PollScheduler.PollMetrics metrics = new PollScheduler.PollMetrics();
     private volatile boolean running = false;
     
     private static class PollJob<V> {
@@ -93,6 +94,7 @@ public class Poller<V> {
         
         running = true;
         
+        PollScheduler pollScheduler = ((ManagementContextInternal)((EntityInternal)entity).getManagementContext()).getPollScheduler();
         for (final Callable<?> oneOffJob : oneOffJobs) {
             BasicTask<?> task = new BasicTask(oneOffJob);
             oneOffTasks.add(((EntityInternal)entity).getExecutionContext().submit(task));
@@ -100,12 +102,8 @@ public class Poller<V> {
         
         for (final PollJob<V> pollJob : pollJobs) {
             if (pollJob.pollPeriod > 0) {
-                Callable<Task<?>> pollingTaskFactory = new Callable<Task<?>>() {
-                    public Task<?> call() {
-                        return new BasicTask<V>(MutableMap.of("entity", entity), pollJob.wrappedJob); }
-                };
-                ScheduledTask task = new ScheduledTask(MutableMap.of("period", pollJob.pollPeriod), pollingTaskFactory);
-                tasks.add((ScheduledTask) ((EntityInternal)entity).getExecutionContext().submit(task));
+                scheduledPolls.add(pollScheduler.schedule(((EntityInternal)entity).getExecutionContext(), 
+                        pollJob.wrappedJob, pollJob.pollPeriod, metrics));
             } else {
                 if (log.isDebugEnabled()) log.debug("Activating poll (but leaving off, as period {}) for {} (using {})", new Object[] {pollJob.pollPeriod, entity, this});
             }
@@ -123,13 +121,18 @@ public class Poller<V> {
         for (Task task : oneOffTasks) {
             task.cancel(true);
         }
-        for (ScheduledTask task : tasks) {
-            task.cancel();
+        for (PollScheduler.ScheduledPoll poll : scheduledPolls) {
+            poll.cancel();
         }
         oneOffTasks.clear();
-        tasks.clear();
+        scheduledPolls.clear();
     }
 
+    /** poll counts and durations, across all jobs of this poller */
+    public PollScheduler.PollMetrics getMetrics() {
+        return metrics;
+    }
+    
     public boolean isRunning() {
         return running;
     }
@@ -5,8 +5,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,11 +20,12 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.ssl.SSLSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,6 +91,10 @@ import com.google.common.collect.Sets;
  * and it may report errors if that sensor is not available.
  * Some guidance for controlling enablement of a feed based on availability of a sensor
  * can be seen in HttpLatencyDetector (in brooklyn-policy). 
+ * <p>
+ * By default each feed creates its own http client for each distinct request. For large numbers of 
+ * feeds, use {@link Builder#pooled()} so that all such feeds share one http client, with a bounded pool 
+ * of keep-alive connections per host (see {@link SharedHttpClient}).
  * 
  * @author aled
  */
@@ -113,6 +116,7 @@ public class HttpFeed extends AbstractFeed {
         private Map<String, String> headers = Maps.newLinkedHashMap();
         private boolean suspended = false;
         private Credentials credentials;
+        private boolean pooled = false;
         private volatile boolean built;
 
         public Builder entity(EntityLocal val) {
@@ -184,6 +188,14 @@ public class HttpFeed extends AbstractFeed {
             }
             return this;
         }
+        /** use the http client and connection pool shared by all pooled feeds, rather than creating new clients */
+        public Builder pooled() {
+            return pooled(true);
+        }
+        public Builder pooled(boolean val) {
+            this.pooled = val;
+            return this;
+        }
         public HttpFeed build() {
             built = true;
             HttpFeed result = new HttpFeed(this);
@@ -242,8 +254,11 @@ public class HttpFeed extends AbstractFeed {
     // Treat as immutable once built
     private final SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = HashMultimap.<HttpPollIdentifier,HttpPollConfig<?>>create();
     
+    private final boolean pooled;
+    
     protected HttpFeed(Builder builder) {
         super(builder.entity);
+        pooled = builder.pooled;
         Map<String,String> baseHeaders = ImmutableMap.copyOf(checkNotNull(builder.headers, "headers"));
         
         for (HttpPollConfig<?> config : builder.polls) {
@@ -281,7 +296,7 @@ public class HttpFeed extends AbstractFeed {
             //     threads of execution, it is highly recommended that each thread maintains its
             //     own dedicated instance of HttpContext.
             //  http://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
-            final HttpClient httpClient = createHttpClient(pollInfo);
+            final HttpClient httpClient = pooled ? SharedHttpClient.get() : createHttpClient(pollInfo);
 
             Set<HttpPollConfig<?>> configs = polls.get(pollInfo);
             long minPeriod = Integer.MAX_VALUE;
@@ -298,19 +313,23 @@ public class HttpFeed extends AbstractFeed {
                 pollJob = new Callable<HttpPollValue>() {
                     public HttpPollValue call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return httpGet(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                        URI uri = pollInfo.uriProvider.get();
+                        return httpGet(httpClient, newContext(uri, pollInfo), uri, pollInfo.headers);
                     }};
             } else if (pollInfo.method.equals("post")) {
                 pollJob = new Callable<HttpPollValue>() {
                     public HttpPollValue call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return httpPost(httpClient, pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body);
+                        URI uri = pollInfo.uriProvider.get();
+                        return httpPost(httpClient, newContext(uri, pollInfo), uri, pollInfo.headers, pollInfo.body);
                     }};
             } else {
                 throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
             }
             
-            getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpPollValue>(handlers), minPeriod);
+            getPoller().scheduleAtFixedRate(pollJob, 
+                    pooled ? new PooledPollHandler(handlers) : new DelegatingPollHandler<HttpPollValue>(handlers), 
+                    minPeriod);
         }
     }
 
@@ -343,19 +362,24 @@ public class HttpFeed extends AbstractFeed {
         return httpClient;
     }
 
+    /** for the shared client, credentials are per request; otherwise they are set on the poll's own client */
+    private HttpContext newContext(URI uri, HttpPollIdentifier pollIdentifier) {
+        return pooled ? SharedHttpClient.newContext(uri, pollIdentifier.credentials) : null;
+    }
+
     @SuppressWarnings("unchecked")
     private Poller<HttpPollValue> getPoller() {
         return (Poller<HttpPollValue>) poller;
     }
     
-    private HttpPollValue httpGet(HttpClient httpClient, URI uri, Map<String,String> headers) throws ClientProtocolException, IOException {
+    private HttpPollValue httpGet(HttpClient httpClient, HttpContext context, URI uri, Map<String,String> headers) throws ClientProtocolException, IOException {
         HttpGet httpGet = new HttpGet(uri);
         for (Map.Entry<String,String> entry : headers.entrySet()) {
             httpGet.addHeader(entry.getKey(), entry.getValue());
         }
 
         long startTime = System.currentTimeMillis();
-        HttpResponse httpResponse = httpClient.execute(httpGet);
+        HttpResponse httpResponse = httpClient.execute(httpGet, context);
         try {
             return new HttpPollValue(httpResponse, startTime);
         } finally {
@@ -363,7 +387,7 @@ public class HttpFeed extends AbstractFeed {
         }
     }
     
-    private HttpPollValue httpPost(HttpClient httpClient, URI uri, Map<String,String> headers, byte[] body) throws ClientProtocolException, IOException {
+    private HttpPollValue httpPost(HttpClient httpClient, HttpContext context, URI uri, Map<String,String> headers, byte[] body) throws ClientProtocolException, IOException {
         HttpPost httpPost = new HttpPost(uri);
         for (Map.Entry<String,String> entry : headers.entrySet()) {
             httpPost.addHeader(entry.getKey(), entry.getValue());
@@ -374,7 +398,7 @@ public class HttpFeed extends AbstractFeed {
         }
         
         long startTime = System.currentTimeMillis();
-        HttpResponse httpResponse = httpClient.execute(httpPost);
+        HttpResponse httpResponse = httpClient.execute(httpPost, context);
         
         try {
             return new HttpPollValue(httpResponse, startTime);
@@ -382,11 +406,23 @@ public class HttpFeed extends AbstractFeed {
             EntityUtils.consume(httpResponse.getEntity());
         }
     }
-    
-    private static class TrustAllStrategy implements TrustStrategy {
+
+    /**
+     * For polls using the {@link SharedHttpClient}: a poll that could not get a connection from the pool in 
+     * time is skipped, rather than reported as failing, as that says nothing about the entity being polled.
+     */
+    static class PooledPollHandler extends DelegatingPollHandler<HttpPollValue> {
+        PooledPollHandler(Iterable<AttributePollHandler<? super HttpPollValue>> delegates) {
+            super(delegates);
+        }
+
         @Override
-        public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-            return true;
+        public void onException(Exception exception) {
+            if (exception instanceof ConnectionPoolTimeoutException) {
+                if (log.isDebugEnabled()) log.debug("Skipping http poll, as no pooled connection available: {}", exception.getMessage());
+                return;
+            }
+            super.onException(exception);
         }
     }
 }
@@ -0,0 +1,90 @@
+package brooklyn.event.feed.http;
+
+import java.net.URI;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.internal.BrooklynSystemProperties;
+import brooklyn.util.internal.IntegerSystemProperty;
+
+import com.google.common.base.Optional;
+
+/**
+ * A single http client, with a pool of keep-alive connections, shared by all {@link HttpFeed}s
+ * built with {@link HttpFeed.Builder#pooled()}.
+ * <p>
+ * The number of connections to each host:port is limited (default {@value #DEFAULT_MAX_CONNECTIONS_PER_HOST}; 
+ * see {@link BrooklynSystemProperties#HTTP_FEED_MAX_CONNECTIONS_PER_HOST}), as is the total. Polls wait 
+ * for a free connection for at most {@value #CONNECTION_REQUEST_TIMEOUT_MILLIS}ms, so that they do not hold 
+ * threads while the pool is exhausted; if none is available, that poll is skipped (rather than reported to 
+ * the poll handler as an exception), and the next poll tries again.
+ * <p>
+ * Like the per-feed clients, https connections trust all certificates.
+ */
+class SharedHttpClient {
+
+    static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+    static final int DEFAULT_MAX_CONNECTIONS = 200;
+    static final int CONNECTION_REQUEST_TIMEOUT_MILLIS = 500;
+
+    private static class Holder {
+        static final DefaultHttpClient INSTANCE = newHttpClient();
+    }
+
+    private SharedHttpClient() {}
+
+    static HttpClient get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * A context for executing a request for the given poll; contexts must not be shared between threads,
+     * so one should be created per request.
+     */
+    static HttpContext newContext(URI uri, Optional<Credentials> credentials) {
+        HttpContext result = new BasicHttpContext();
+        if (uri != null && credentials.isPresent()) {
+            BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), credentials.get());
+            result.setAttribute(ClientContext.CREDS_PROVIDER, credentialsProvider);
+        }
+        return result;
+    }
+
+    private static DefaultHttpClient newHttpClient() {
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+        try {
+            SSLSocketFactory socketFactory = new SSLSocketFactory(new TrustAllStrategy(), SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+            schemes.register(new Scheme("https", 443, socketFactory));
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+
+        ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager(schemes);
+        connectionManager.setDefaultMaxPerRoute(getOrDefault(BrooklynSystemProperties.HTTP_FEED_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_CONNECTIONS_PER_HOST));
+        connectionManager.setMaxTotal(getOrDefault(BrooklynSystemProperties.HTTP_FEED_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+
+        DefaultHttpClient result = new DefaultHttpClient(connectionManager);
+        HttpClientParams.setConnectionManagerTimeout(result.getParams(), CONNECTION_REQUEST_TIMEOUT_MILLIS);
+        return result;
+    }
+
+    private static int getOrDefault(IntegerSystemProperty property, int defaultVal) {
+        return property.isAvailable() ? property.getValue() : defaultVal;
+    }
+}
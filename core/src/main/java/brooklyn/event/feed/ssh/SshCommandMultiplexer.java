@@ -0,0 +1,111 @@
+package brooklyn.event.feed.ssh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import brooklyn.util.text.Identifiers;
+import brooklyn.util.text.StringEscapes.BashStringEscapes;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * Combines several commands into a single script, so they can all be run with one ssh invocation,
+ * and splits the output of that script back into the exit status, stdout and stderr of each command.
+ * <p>
+ * Each command is run in its own subshell (with its own env). Its stdout and stderr are delimited
+ * in the script's stdout and stderr by lines containing a marker which is random for each instance,
+ * so cannot be confused with the commands' output. The stdout of the whole script can optionally be
+ * gzipped (and base64 encoded) on the remote machine, for commands whose output is large.
+ */
+class SshCommandMultiplexer {
+
+    private final String marker;
+    private final boolean compress;
+
+    SshCommandMultiplexer(boolean compress) {
+        this("BROOKLYN-SSH-"+Identifiers.makeRandomId(8), compress);
+    }
+
+    @VisibleForTesting
+    SshCommandMultiplexer(String marker, boolean compress) {
+        this.marker = marker;
+        this.compress = compress;
+    }
+
+    /** the script running each of the given commands with the corresponding env */
+    String toScript(List<String> commands, List<Map<String,String>> envs) {
+        StringBuilder result = new StringBuilder();
+        // the script is run with "bash -e", which would otherwise stop at the first command to fail
+        result.append("set +e\n");
+        if (compress) result.append("{\n");
+        for (int i = 0; i < commands.size(); i++) {
+            String begin = marker+"-begin-"+i;
+            String end = marker+"-end-"+i;
+            result.append("printf '%s\\n' '"+begin+"'; printf '%s\\n' '"+begin+"' >&2\n");
+            result.append("(\n");
+            for (Map.Entry<String,String> entry : envs.get(i).entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) continue;
+                result.append("export "+entry.getKey()+"=\""+BashStringEscapes.escapeLiteralForDoubleQuotedBash(entry.getValue())+"\"\n");
+            }
+            result.append(commands.get(i)).append("\n");
+            result.append(")\n");
+            // the preceding newline means a command's output need not end with one
+            result.append("printf '\\n%s %s\\n' '"+end+"' $?; printf '\\n%s\\n' '"+end+"' >&2\n");
+        }
+        if (compress) result.append("} | gzip -c | base64\n");
+        return result.toString();
+    }
+
+    /**
+     * Splits the stdout and stderr of the script for the given number of commands; the result for a command is
+     * null if its output is incomplete (e.g. because the script was killed).
+     */
+    List<SshPollValue> demultiplex(SshPollValue scriptResult, int count) throws IOException {
+        String stdout = compress ? decompress(scriptResult.getStdout()) : scriptResult.getStdout();
+        String stderr = scriptResult.getStderr();
+
+        List<SshPollValue> result = Lists.newArrayListWithCapacity(count);
+        int stdoutPos = 0;
+        int stderrPos = 0;
+        for (int i = 0; i < count; i++) {
+            String begin = marker+"-begin-"+i+"\n";
+            String end = "\n"+marker+"-end-"+i;
+
+            int stdoutStart = stdout.indexOf(begin, stdoutPos);
+            int stdoutEnd = (stdoutStart < 0) ? -1 : stdout.indexOf(end+" ", stdoutStart + begin.length());
+            int statusEnd = (stdoutEnd < 0) ? -1 : stdout.indexOf("\n", stdoutEnd + end.length() + 1);
+            int stderrStart = stderr.indexOf(begin, stderrPos);
+            int stderrEnd = (stderrStart < 0) ? -1 : stderr.indexOf(end+"\n", stderrStart + begin.length());
+            if (statusEnd < 0 || stderrEnd < 0) {
+                result.add(null);
+                continue;
+            }
+
+            int exitStatus = Integer.parseInt(stdout.substring(stdoutEnd + end.length() + 1, statusEnd).trim());
+            result.add(new SshPollValue(scriptResult.getMachine(), exitStatus,
+                    stdout.substring(stdoutStart + begin.length(), stdoutEnd),
+                    stderr.substring(stderrStart + begin.length(), stderrEnd)));
+            stdoutPos = statusEnd;
+            stderrPos = stderrEnd + end.length();
+        }
+        return result;
+    }
+
+    private static String decompress(String base64) throws IOException {
+        byte[] compressed = BaseEncoding.base64().decode(CharMatcher.WHITESPACE.removeFrom(base64));
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        try {
+            return new String(ByteStreams.toByteArray(in));
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+}
@@ -17,13 +17,17 @@ import brooklyn.entity.basic.EntityLocal;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.event.feed.DelegatingPollHandler;
+import brooklyn.event.feed.PollHandler;
 import brooklyn.event.feed.Poller;
 import brooklyn.location.basic.SshMachineLocation;
 import brooklyn.util.collections.MutableMap;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
@@ -75,6 +79,8 @@ public class SshFeed extends AbstractFeed {
         private long period = 500;
         private TimeUnit periodUnits = TimeUnit.MILLISECONDS;
         private List<SshPollConfig<?>> polls = Lists.newArrayList();
+        private boolean multiplexCommands = true;
+        private boolean compressOutput = false;
         private volatile boolean built;
         
         public Builder entity(EntityLocal val) {
@@ -97,6 +103,19 @@ public class SshFeed extends AbstractFeed {
             polls.add(config);
             return this;
         }
+        /**
+         * whether to run the commands polled at the same period with a single ssh invocation (default true);
+         * not done if the machine allocates a PTY, as their stdout and stderr cannot then be separated
+         */
+        public Builder multiplexCommands(boolean val) {
+            this.multiplexCommands = val;
+            return this;
+        }
+        /** whether to gzip the output of commands run with a single ssh invocation, e.g. if it is large (default false) */
+        public Builder compressOutput(boolean val) {
+            this.compressOutput = val;
+            return this;
+        }
         public SshFeed build() {
             built = true;
             SshFeed result = new SshFeed(this);
@@ -135,6 +154,8 @@ public class SshFeed extends AbstractFeed {
     }
     
     private final SshMachineLocation machine;
+    private final boolean multiplexCommands;
+    private final SshCommandMultiplexer multiplexer;
     
     // Treat as immutable once built
     private final SetMultimap<SshPollIdentifier, SshPollConfig<?>> polls = HashMultimap.<SshPollIdentifier,SshPollConfig<?>>create();
@@ -142,6 +163,9 @@ public class SshFeed extends AbstractFeed {
     protected SshFeed(Builder builder) {
         super(builder.entity);
         machine = checkNotNull(builder.machine, "machine");
+        // with a PTY, stderr is merged into stdout (with CRLF line endings), so commands' output cannot be demultiplexed
+        multiplexCommands = builder.multiplexCommands && !machine.isAllocatePty();
+        multiplexer = new SshCommandMultiplexer(builder.compressOutput);
         
         for (SshPollConfig<?> config : builder.polls) {
             SshPollConfig<?> configCopy = new SshPollConfig(config);
@@ -153,8 +177,12 @@ public class SshFeed extends AbstractFeed {
     }
 
     @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     protected void preStart() {
-        for (final SshPollIdentifier pollInfo : polls.keySet()) {
+        // commands polled at the same period are run together, with one ssh invocation, if multiplexing
+        Map<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> handlersByPeriod = Maps.newLinkedHashMap();
+        
+        for (SshPollIdentifier pollInfo : polls.keySet()) {
             Set<SshPollConfig<?>> configs = polls.get(pollInfo);
             long minPeriod = Integer.MAX_VALUE;
             Set<AttributePollHandler<SshPollValue>> handlers = Sets.newLinkedHashSet();
@@ -164,13 +192,107 @@ public class SshFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
             
-            getPoller().scheduleAtFixedRate(
-                    new Callable<SshPollValue>() {
-                        public SshPollValue call() throws Exception {
-                            return exec(pollInfo.command, pollInfo.env);
-                        }}, 
-                    new DelegatingPollHandler(handlers), 
-                    minPeriod);
+            Map<SshPollIdentifier, PollHandler<SshPollValue>> group = handlersByPeriod.get(minPeriod);
+            if (group == null) {
+                group = Maps.newLinkedHashMap();
+                handlersByPeriod.put(minPeriod, group);
+            }
+            group.put(pollInfo, (PollHandler<SshPollValue>) new DelegatingPollHandler(handlers));
+        }
+        
+        for (Map.Entry<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> entry : handlersByPeriod.entrySet()) {
+            long period = entry.getKey();
+            Map<SshPollIdentifier, PollHandler<SshPollValue>> group = entry.getValue();
+            
+            if (multiplexCommands && group.size() > 1) {
+                registerMultiplexedPoller(group, period);
+            } else {
+                for (Map.Entry<SshPollIdentifier, PollHandler<SshPollValue>> poll : group.entrySet()) {
+                    final SshPollIdentifier pollInfo = poll.getKey();
+                    getPoller().scheduleAtFixedRate(
+                            new Callable<SshPollValue>() {
+                                public SshPollValue call() throws Exception {
+                                    return exec(pollInfo.command, pollInfo.env);
+                                }}, 
+                            poll.getValue(), 
+                            period);
+                }
+            }
+        }
+    }
+    
+    private void registerMultiplexedPoller(Map<SshPollIdentifier, PollHandler<SshPollValue>> handlers, long period) {
+        List<String> commands = Lists.newArrayList();
+        List<Map<String,String>> envs = Lists.newArrayList();
+        for (SshPollIdentifier pollInfo : handlers.keySet()) {
+            commands.add(pollInfo.command);
+            envs.add(pollInfo.env);
+        }
+        final String script = multiplexer.toScript(commands, envs);
+        
+        getPoller().scheduleAtFixedRate(
+                new Callable<SshPollValue>() {
+                    public SshPollValue call() throws Exception {
+                        return exec(script, ImmutableMap.<String,String>of());
+                    }}, 
+                new MultiplexedPollHandler(ImmutableList.copyOf(handlers.values())), 
+                period);
+    }
+    
+    /**
+     * Splits the result of the combined script into the result of each command, passing that to the handler for the command.
+     */
+    private class MultiplexedPollHandler implements PollHandler<SshPollValue> {
+        private final List<PollHandler<SshPollValue>> handlers;
+        
+        MultiplexedPollHandler(List<PollHandler<SshPollValue>> handlers) {
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public boolean checkSuccess(SshPollValue val) {
+            // checked per command, in onSuccess
+            return true;
+        }
+
+        @Override
+        public void onSuccess(SshPollValue val) {
+            List<SshPollValue> vals;
+            try {
+                vals = multiplexer.demultiplex(val, handlers.size());
+            } catch (Exception e) {
+                onException(e);
+                return;
+            }
+            for (int i = 0; i < handlers.size(); i++) {
+                PollHandler<SshPollValue> handler = handlers.get(i);
+                SshPollValue commandVal = vals.get(i);
+                if (commandVal == null) {
+                    handler.onException(new IllegalStateException("No result for command on "+machine+" (exit status "+
+                            val.getExitStatus()+" for all commands polled together; stderr "+val.getStderr()+")"));
+                } else if (handler.checkSuccess(commandVal)) {
+                    handler.onSuccess(commandVal);
+                } else {
+                    handler.onFailure(commandVal);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(SshPollValue val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            onException(error);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<SshPollValue> handler : handlers) {
+                handler.onException(exception);
+            }
         }
     }
     
@@ -139,7 +139,17 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
 
     /** specifies config keys where a change in the value does not require a new SshTool instance,
      * i.e. these can be specified per command on the tool */ 
-    public static final Set<ConfigKey<?>> REUSABLE_SSH_PROPS = ImmutableSet.of(STDOUT, STDERR, SCRIPT_DIR);
+    public static final Set<ConfigKey<?>> REUSABLE_SSH_PROPS = ImmutableSet.<ConfigKey<?>>of(STDOUT, STDERR, SCRIPT_DIR, 
+            LOG_PREFIX, NO_STDOUT_LOGGING, NO_STDERR_LOGGING, SshTool.PROP_RUN_AS_ROOT, SshTool.PROP_NO_EXTRA_OUTPUT, 
+            SshTool.PROP_SEPARATOR, SshTool.PROP_SCRIPT_HEADER, SshTool.PROP_DIRECT_HEADER, SshTool.PROP_PERMISSIONS, 
+            SshTool.PROP_LAST_MODIFICATION_DATE, SshTool.PROP_LAST_ACCESS_DATE, SshjTool.PROP_STREAM_CONTENT);
+    
+    private static final Set<String> REUSABLE_SSH_PROP_NAMES;
+    static {
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        for (ConfigKey<?> key : REUSABLE_SSH_PROPS) names.add(key.getName());
+        REUSABLE_SSH_PROP_NAMES = names.build();
+    }
 
     public static final Set<HasConfigKey<?>> ALL_SSH_CONFIG_KEYS = 
             ImmutableSet.<HasConfigKey<?>>builder().
@@ -281,7 +291,7 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     }
 
     protected <T> T execSsh(Map props, Function<SshTool,T> task) {
-        if (props.isEmpty() || Sets.difference(props.keySet(), REUSABLE_SSH_PROPS).isEmpty()) {
+        if (isReusableSshProps(props)) {
             return vanillaSshToolPool.exec(task);
         } else {
             SshTool ssh = connectSsh(props);
@@ -293,10 +303,58 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
         }
     }
 
+    /** whether the props only configure individual commands, so the commands can use a pooled (already connected) ssh tool */
+    private static boolean isReusableSshProps(Map<?,?> props) {
+        for (Object key : props.keySet()) {
+            String name = (key instanceof HasConfigKey) ? ((HasConfigKey<?>)key).getConfigKey().getName() 
+                    : (key instanceof ConfigKey) ? ((ConfigKey<?>)key).getName() 
+                    : String.valueOf(key);
+            if (!REUSABLE_SSH_PROP_NAMES.contains(name)) return false;
+        }
+        return true;
+    }
+
     protected SshTool connectSsh() {
         return connectSsh(ImmutableMap.of());
     }
     
+    /**
+     * The name of the {@link SshTool} property for the given key of this location's config,
+     * or null if the key is not for the ssh tool.
+     */
+    private static String toSshToolKey(String key) {
+        if (key.startsWith(SshTool.BROOKLYN_CONFIG_KEY_PREFIX)) {
+            return Strings.removeFromStart(key, SshTool.BROOKLYN_CONFIG_KEY_PREFIX);
+        } else if (key.startsWith(SSHCONFIG_PREFIX)) {
+            return Strings.removeFromStart(key, SSHCONFIG_PREFIX);
+        } else if (ALL_SSH_CONFIG_KEY_NAMES.contains(key)) {
+            // key should be included, and does not need to be changed
+            
+            // TODO make this config-setting mechanism more universal
+            // currently e.g. it will not admit a tool-specific property.
+            // thinking either we know about the tool here,
+            // or we don't allow unadorned keys to be set
+            // (require use of BROOKLYN_CONFOG_KEY_PREFIX)
+            return key;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Whether ssh sessions to this machine allocate a PTY, as configured by {@link #ALLOCATE_PTY};
+     * if so, commands' stderr is merged into their stdout.
+     */
+    public boolean isAllocatePty() {
+        boolean result = false;
+        for (Map.Entry<String,Object> entry: getAllConfig(true).entrySet()) {
+            if (ALLOCATE_PTY.getName().equals(toSshToolKey(entry.getKey()))) {
+                result = truth(entry.getValue());
+            }
+        }
+        return result;
+    }
+
     protected boolean previouslyConnected = false;
     protected SshTool connectSsh(Map props) {
         try {
@@ -309,23 +367,9 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
                 putAll(props);
 
             for (Map.Entry<String,Object> entry: getAllConfig(true).entrySet()) {
-                String key = entry.getKey();
-                if (key.startsWith(SshTool.BROOKLYN_CONFIG_KEY_PREFIX)) {
-                    key = Strings.removeFromStart(key, SshTool.BROOKLYN_CONFIG_KEY_PREFIX);
-                } else if (key.startsWith(SSHCONFIG_PREFIX)) {
-                    key = Strings.removeFromStart(key, SSHCONFIG_PREFIX);
-                } else if (ALL_SSH_CONFIG_KEY_NAMES.contains(entry.getKey())) {
-                    // key should be included, and does not need to be changed
-                    
-                    // TODO make this config-setting mechanism more universal
-                    // currently e.g. it will not admit a tool-specific property.
-                    // thinking either we know about the tool here,
-                    // or we don't allow unadorned keys to be set
-                    // (require use of BROOKLYN_CONFOG_KEY_PREFIX)
-                } else {
-                    // this key is not applicatble here; ignore it
-                    continue;
-                }
+                String key = toSshToolKey(entry.getKey());
+                // null if this key is not applicable here; ignore it
+                if (key == null) continue;
                 args.putStringKey(key, entry.getValue());
             }
             if (LOG.isTraceEnabled()) LOG.trace("creating ssh session for "+args);
@@ -29,6 +29,7 @@ import brooklyn.entity.drivers.downloads.BasicDownloadsManager;
 import brooklyn.entity.drivers.downloads.DownloadResolverManager;
 import brooklyn.entity.rebind.RebindManager;
 import brooklyn.entity.rebind.RebindManagerImpl;
+import brooklyn.event.feed.PollScheduler;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.internal.storage.DataGrid;
 import brooklyn.internal.storage.impl.BrooklynStorageImpl;
@@ -38,6 +39,7 @@ import brooklyn.location.basic.BasicLocationRegistry;
 import brooklyn.management.ExecutionContext;
 import brooklyn.management.SubscriptionContext;
 import brooklyn.management.Task;
+import brooklyn.policy.basic.PolicyScheduler;
 import brooklyn.util.GroovyJavaMethods;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableList;
@@ -73,6 +75,12 @@ public abstract class AbstractManagementContext implements ManagementContextInte
 
     private final BrooklynStorage storage = new BrooklynStorageImpl(datagrid);
 
+    private final DynamicMembershipEngine dynamicMembershipEngine = new DynamicMembershipEngine(this);
+
+    // created on first use, so contexts without feeds do not start a timer thread
+    private PollScheduler pollScheduler;
+    private PolicyScheduler policyScheduler;
+
     public AbstractManagementContext(BrooklynProperties brooklynProperties){
        this.configMap = brooklynProperties;
        this.entityDriverManager = new BasicEntityDriverManager();
@@ -102,6 +110,10 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         running = false;
         rebindManager.stop();
         storage.terminate();
+        synchronized (this) {
+            if (pollScheduler != null) pollScheduler.shutdown();
+            if (policyScheduler != null) policyScheduler.shutdown();
+        }
         // Don't unmanage everything; different entities get given their events at different times 
         // so can cause problems (e.g. a group finds out that a member is unmanaged, before the
         // group itself has been told that it is unmanaged).
@@ -115,7 +127,30 @@ public abstract class AbstractManagementContext implements ManagementContextInte
     public BrooklynStorage getStorage() {
         return storage;
     }
+
+    @Override
+    public DynamicMembershipEngine getDynamicMembershipEngine() {
+        return dynamicMembershipEngine;
+    }
     
+    @Override
+    public synchronized PollScheduler getPollScheduler() {
+        if (pollScheduler == null) {
+            if (!running) throw new IllegalStateException("Management context "+this+" has been terminated");
+            pollScheduler = PollScheduler.newDefault();
+        }
+        return pollScheduler;
+    }
+
+    @Override
+    public synchronized PolicyScheduler getPolicyScheduler() {
+        if (policyScheduler == null) {
+            if (!running) throw new IllegalStateException("Management context "+this+" has been terminated");
+            policyScheduler = PolicyScheduler.newDefault();
+        }
+        return policyScheduler;
+    }
+
     @Override
     public RebindManager getRebindManager() {
         return rebindManager;
@@ -168,7 +203,7 @@ public abstract class AbstractManagementContext implements ManagementContextInte
 
     @Deprecated
     @Override
-    public synchronized Collection<Entity> getEntities() {
+    public Collection<Entity> getEntities() {
         return getEntityManager().getEntities();
     }
     
@@ -1,8 +1,5 @@
 package brooklyn.management.internal;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -21,17 +18,18 @@ import brooklyn.management.Task;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.exceptions.RuntimeInterruptedException;
 import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.CompletedTaskRegistry;
 import brooklyn.util.task.ExecutionListener;
 import brooklyn.util.text.Strings;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Deletes record of old tasks, to prevent space leaks and the eating up of more and more memory.
  * 
  * The deletion policy is configurable:
  * <ul>
- *   <li>Period - how frequently to look at the existing tasks to delete some, if required
+ *   <li>Period - how frequently to look for tasks which have exceeded the max task age
  *   <li>Max tasks per tag - the maximum number of tasks to be kept for a given tag (e.g. for  
  *       effector calls invoked on a particular entity)
  *   <li>Max task age - the time after which a completed task will be automatically deleted
@@ -39,6 +37,9 @@ import com.google.common.collect.Lists;
  *       be deleted.
  * </ul>
  * 
+ * The limits are enforced by the execution manager's {@link CompletedTaskRegistry} as each task
+ * completes, so the periodic check is cheap: it only looks at the oldest completed tasks.
+ * 
  * The default is to check with a period of one minute, to keep at most 100 tasks per tag, and to
  * delete old completed tasks after one day.
  * 
@@ -80,6 +81,10 @@ public class BrooklynGarbageCollector {
         maxTaskAge = brooklynProperties.getConfig(MAX_TASK_AGE);
         doSystemGc = brooklynProperties.getConfig(DO_SYSTEM_GC);
         
+        // the effector tag is shared by all effector calls; they are limited by their entity tags instead
+        executionManager.getCompletedTaskRegistry().setRetention(maxTasksPerTag, maxTaskAge, 
+                ImmutableSet.of(ManagementContextInternal.EFFECTOR_TAG));
+        
         executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
                 @Override public Thread newThread(Runnable r) {
                     return new Thread(r, "brooklyn-gc");
@@ -128,7 +133,9 @@ public class BrooklynGarbageCollector {
                 executionManager.getNumActiveTasks()+" active, "+
                 executionManager.getNumInMemoryTasks()+" in memory "+
                 "("+executionManager.getNumIncompleteTasks()+" incomplete and "+
-                executionManager.getTotalTasksSubmitted()+" total submitted)"
+                executionManager.getTotalTasksSubmitted()+" total submitted); "+
+                executionManager.getCompletedTaskRegistry().getNumCompletedTasks()+" completed tasks retained, using approx "+
+                Strings.makeSizeString(executionManager.getCompletedTaskRegistry().getEstimatedMemoryBytes())+" for bookkeeping"
                 );
     }
     
@@ -155,44 +162,13 @@ public class BrooklynGarbageCollector {
     }
     
     /**
-     * Deletes old tasks. The age/number of tasks to keep is controlled by fields like 
-     * {@link #maxTasksPerTag} and {@link #maxTaskAge}. 
+     * Deletes tasks older than {@link #maxTaskAge}. The {@link #maxTasksPerTag} limit is applied
+     * as each task completes, so needs no periodic check.
      */
     private void gcTasks() {
         if (!running) return;
         
-        Set<Object> taskTags = executionManager.getTaskTags();
-        for (Object tag : taskTags) {
-            if (tag == null || tag.equals(ManagementContextInternal.EFFECTOR_TAG)) {
-                continue; // there'll be other tags
-            }
-            Set<Task<?>> tasksWithTag = executionManager.getTasksWithTag(tag);
-            int numTasksToDelete = (tasksWithTag.size() - maxTasksPerTag);
-            if (numTasksToDelete > 0 || maxTaskAge > 0) {
-                List<Task<?>> sortedTasks = Lists.newArrayList(tasksWithTag);
-                Collections.sort(sortedTasks, new Comparator<Task<?>>() {
-                    @Override public int compare(Task<?> t1, Task<?> t2) {
-                        long end1 = t1.isDone() ? t1.getEndTimeUtc() : Long.MAX_VALUE;
-                        long end2 = t2.isDone() ? t2.getEndTimeUtc() : Long.MAX_VALUE;
-                        return (end1 < end2) ? -1 : ((end1 == end2) ? 0 : 1);
-                    }
-                });
-                if (numTasksToDelete > 0) {
-                    for (Task<?> taskToDelete : sortedTasks.subList(0, numTasksToDelete)) {
-                        if (!taskToDelete.isDone()) break;
-                        executionManager.deleteTask(taskToDelete);
-                    }
-                }
-                if (maxTaskAge > 0) {
-                    for (Task<?> taskContender : sortedTasks.subList((numTasksToDelete > 0 ? numTasksToDelete : 0), sortedTasks.size())) {
-                        if (taskContender.isDone() && (System.currentTimeMillis() - taskContender.getEndTimeUtc() > maxTaskAge)) {
-                            executionManager.deleteTask(taskContender);
-                        } else {
-                            break; // all subsequent tasks will be newer; stop looking
-                        }
-                    }
-                }
-            }
-        }
+        int deleted = executionManager.getCompletedTaskRegistry().expire();
+        if (deleted > 0 && LOG.isDebugEnabled()) LOG.debug("brooklyn gc deleted {} tasks older than {}ms", deleted, maxTaskAge);
     }
 }
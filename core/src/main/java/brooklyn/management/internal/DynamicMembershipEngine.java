@@ -0,0 +1,304 @@
+package brooklyn.management.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityPredicates;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.event.SensorEventListener;
+import brooklyn.management.SubscriptionHandle;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Evaluates the membership of all dynamic groups in a management context, on behalf of those groups.
+ * <p>
+ * There is a single listener for entities being managed and unmanaged (rather than one per group),
+ * and each change is only passed to the groups whose filter could match the entity. Filters created with
+ * {@link EntityPredicates#instanceOf(Class)}, {@link EntityPredicates#isDescendantOf(Entity)} and
+ * {@link EntityPredicates#attributeEqualTo(AttributeSensor, Object)} are indexed by type, ancestor and
+ * attribute value respectively; for those with an attribute filter, changes to that attribute on any entity
+ * are also tracked. Groups with any other filter are given every change, as before.
+ */
+public class DynamicMembershipEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DynamicMembershipEngine.class);
+
+    /** A dynamic group, whose membership is maintained by this engine */
+    public interface Member {
+        Predicate<? super Entity> getEntityFilter();
+        void onEntityAdded(Entity item);
+        void onEntityRemoved(Entity item);
+        void onEntityChanged(Entity item);
+    }
+
+    private final ManagementContextInternal managementContext;
+
+    private final Set<Member> members = new CopyOnWriteArraySet<Member>();
+    private final Set<Member> unindexed = new CopyOnWriteArraySet<Member>();
+    private final ConcurrentMap<Class<?>, Set<Member>> byType = new ConcurrentHashMap<Class<?>, Set<Member>>();
+    private final ConcurrentMap<String, Set<Member>> byAncestorId = new ConcurrentHashMap<String, Set<Member>>();
+    private final ConcurrentMap<String, AttributeIndex> byAttribute = new ConcurrentHashMap<String, AttributeIndex>();
+
+    // guarded by this
+    private final Map<Member, Predicate<? super Entity>> indexedFilters = Maps.newHashMap();
+    private CollectionChangeListener<Entity> setChangeListener;
+
+    /** all types (classes and interfaces) of each entity class, for type-index lookups */
+    private final ConcurrentMap<Class<?>, List<Class<?>>> typesOfClass = new ConcurrentHashMap<Class<?>, List<Class<?>>>();
+
+    public DynamicMembershipEngine(ManagementContextInternal managementContext) {
+        this.managementContext = checkNotNull(managementContext, "managementContext");
+    }
+
+    public synchronized void register(Member member) {
+        if (!members.add(member)) {
+            LOG.warn("{} registered twice with {}", member, this);
+            return;
+        }
+        index(member);
+        if (setChangeListener == null) {
+            setChangeListener = new CollectionChangeListener<Entity>() {
+                @Override public void onItemAdded(Entity item) { onEntityAdded(item); }
+                @Override public void onItemRemoved(Entity item) { onEntityRemoved(item); }
+            };
+            managementContext.addEntitySetListener(setChangeListener);
+        }
+    }
+
+    public synchronized void unregister(Member member) {
+        if (members.remove(member)) {
+            unindex(member);
+        }
+    }
+
+    /** to be called when the member's filter has changed, before it rescans */
+    public synchronized void onFilterChanged(Member member) {
+        if (members.contains(member)) {
+            unindex(member);
+            index(member);
+        }
+    }
+
+    /**
+     * The managed entities which could match the given filter, for a full rescan of a group's membership.
+     * For most filters this is all entities.
+     */
+    public Iterable<Entity> getCandidates(Predicate<? super Entity> filter) {
+        if (filter instanceof EntityPredicates.DescendantOf) {
+            Entity ancestor = ((EntityPredicates.DescendantOf)filter).getAncestor();
+            List<Entity> result = Lists.newArrayList();
+            addDescendants(ancestor, result);
+            return result;
+        }
+        return managementContext.getEntityManager().getEntities();
+    }
+
+    private void addDescendants(Entity entity, List<Entity> result) {
+        for (Entity child : entity.getChildren()) {
+            if (Entities.isManaged(child)) result.add(child);
+            addDescendants(child, result);
+        }
+    }
+
+    private void onEntityAdded(Entity item) {
+        for (Member member : getInterestedMembers(item)) {
+            try {
+                member.onEntityAdded(item);
+            } catch (Exception e) {
+                LOG.warn("Error notifying "+member+" of entity "+item+" added (continuing)", e);
+            }
+        }
+    }
+
+    private void onEntityRemoved(Entity item) {
+        // cheap for groups that do not have the entity as a member
+        for (Member member : members) {
+            try {
+                member.onEntityRemoved(item);
+            } catch (Exception e) {
+                LOG.warn("Error notifying "+member+" of entity "+item+" removed (continuing)", e);
+            }
+        }
+    }
+
+    private void onAttributeChanged(AttributeIndex index, Entity item) {
+        // the entity may have left groups for the old value and joined groups for the new one
+        for (Member member : index.all) {
+            try {
+                member.onEntityChanged(item);
+            } catch (Exception e) {
+                LOG.warn("Error notifying "+member+" of entity "+item+" changed (continuing)", e);
+            }
+        }
+    }
+
+    private Set<Member> getInterestedMembers(Entity item) {
+        Set<Member> result = new LinkedHashSet<Member>(unindexed);
+        if (!byType.isEmpty()) {
+            for (Class<?> type : typesOf(item.getClass())) {
+                Set<Member> matches = byType.get(type);
+                if (matches != null) result.addAll(matches);
+            }
+        }
+        if (!byAncestorId.isEmpty()) {
+            for (Entity ancestor = item.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+                Set<Member> matches = byAncestorId.get(ancestor.getId());
+                if (matches != null) result.addAll(matches);
+            }
+        }
+        for (AttributeIndex index : byAttribute.values()) {
+            Set<Member> matches = index.byValue.get(new ValueKey(item.getAttribute(index.attribute)));
+            if (matches != null) result.addAll(matches);
+        }
+        return result;
+    }
+
+    private List<Class<?>> typesOf(Class<?> clazz) {
+        List<Class<?>> result = typesOfClass.get(clazz);
+        if (result == null) {
+            Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+            addTypes(clazz, types);
+            result = ImmutableList.copyOf(types);
+            typesOfClass.put(clazz, result);
+        }
+        return result;
+    }
+
+    private static void addTypes(Class<?> clazz, Set<Class<?>> result) {
+        if (clazz == null || !result.add(clazz)) return;
+        addTypes(clazz.getSuperclass(), result);
+        for (Class<?> iface : clazz.getInterfaces()) {
+            addTypes(iface, result);
+        }
+    }
+
+    // must be called while synchronized
+    private void index(Member member) {
+        Predicate<? super Entity> filter = member.getEntityFilter();
+        indexedFilters.put(member, filter);
+        if (filter == null) {
+            // matches nothing
+        } else if (filter instanceof EntityPredicates.InstanceOf) {
+            add(byType, ((EntityPredicates.InstanceOf)filter).getType(), member);
+        } else if (filter instanceof EntityPredicates.DescendantOf) {
+            add(byAncestorId, ((EntityPredicates.DescendantOf)filter).getAncestor().getId(), member);
+        } else if (filter instanceof EntityPredicates.AttributeEqualTo) {
+            EntityPredicates.AttributeEqualTo<?> attributeFilter = (EntityPredicates.AttributeEqualTo<?>) filter;
+            AttributeIndex index = byAttribute.get(attributeFilter.getAttribute().getName());
+            if (index == null) {
+                index = new AttributeIndex(attributeFilter.getAttribute());
+                byAttribute.put(attributeFilter.getAttribute().getName(), index);
+                index.subscribe();
+            }
+            index.all.add(member);
+            add(index.byValue, new ValueKey(attributeFilter.getValue()), member);
+        } else {
+            unindexed.add(member);
+        }
+    }
+
+    // must be called while synchronized
+    private void unindex(Member member) {
+        Predicate<? super Entity> filter = indexedFilters.remove(member);
+        if (filter == null) {
+            // was not indexed
+        } else if (filter instanceof EntityPredicates.InstanceOf) {
+            remove(byType, ((EntityPredicates.InstanceOf)filter).getType(), member);
+        } else if (filter instanceof EntityPredicates.DescendantOf) {
+            remove(byAncestorId, ((EntityPredicates.DescendantOf)filter).getAncestor().getId(), member);
+        } else if (filter instanceof EntityPredicates.AttributeEqualTo) {
+            EntityPredicates.AttributeEqualTo<?> attributeFilter = (EntityPredicates.AttributeEqualTo<?>) filter;
+            AttributeIndex index = byAttribute.get(attributeFilter.getAttribute().getName());
+            if (index != null) {
+                index.all.remove(member);
+                remove(index.byValue, new ValueKey(attributeFilter.getValue()), member);
+                if (index.all.isEmpty()) {
+                    byAttribute.remove(attributeFilter.getAttribute().getName());
+                    index.unsubscribe();
+                }
+            }
+        } else {
+            unindexed.remove(member);
+        }
+    }
+
+    private static <K> void add(ConcurrentMap<K, Set<Member>> map, K key, Member member) {
+        Set<Member> members = map.get(key);
+        if (members == null) {
+            members = new CopyOnWriteArraySet<Member>();
+            map.put(key, members);
+        }
+        members.add(member);
+    }
+
+    private static <K> void remove(ConcurrentMap<K, Set<Member>> map, K key, Member member) {
+        Set<Member> members = map.get(key);
+        if (members != null) {
+            members.remove(member);
+            if (members.isEmpty()) map.remove(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DynamicMembershipEngine("+managementContext+")";
+    }
+
+    /** Members whose filter is on the given attribute, indexed by the required value */
+    private class AttributeIndex {
+        final AttributeSensor<?> attribute;
+        final Set<Member> all = new CopyOnWriteArraySet<Member>();
+        final ConcurrentMap<ValueKey, Set<Member>> byValue = new ConcurrentHashMap<ValueKey, Set<Member>>();
+        SubscriptionHandle subscription;
+
+        AttributeIndex(AttributeSensor<?> attribute) {
+            this.attribute = attribute;
+        }
+
+        void subscribe() {
+            subscription = managementContext.getSubscriptionManager().subscribe(null, attribute, new SensorEventListener<Object>() {
+                @Override public void onEvent(SensorEvent<Object> event) {
+                    onAttributeChanged(AttributeIndex.this, event.getSource());
+                }});
+        }
+
+        void unsubscribe() {
+            if (subscription != null) managementContext.getSubscriptionManager().unsubscribe(subscription);
+        }
+    }
+
+    /** Wraps a value (which may be null) as a map key */
+    private static class ValueKey {
+        final Object value;
+
+        ValueKey(Object value) {
+            this.value = value;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof ValueKey) && Objects.equal(value, ((ValueKey)obj).value);
+        }
+        @Override
+        public int hashCode() {
+            return (value == null) ? 0 : value.hashCode();
+        }
+    }
+}
@@ -4,9 +4,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import groovy.util.ObservableList;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,9 +33,14 @@ import brooklyn.util.exceptions.Exceptions;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
+/**
+ * Reads of the managed entities ({@link #getEntity(String)}, {@link #isManaged(Entity)}, {@link #getEntities()} 
+ * and the index lookups such as {@link #getEntitiesInApplication(String)}) do not lock, so do not contend 
+ * with entities being managed and unmanaged. Changes to management are synchronized.
+ */
 public class LocalEntityManager implements EntityManager {
 
     private static final Logger log = LoggerFactory.getLogger(LocalEntityManager.class);
@@ -45,17 +55,32 @@ public class LocalEntityManager implements EntityManager {
     /** Entities that are in the process of being managed, but where management is not yet complete */
     protected final Map<String,Entity> preManagedEntitiesById = new WeakHashMap<String, Entity>();
     
-    /** Proxies of the managed entities */
+    /** Proxies of the managed entities, in the order they were managed; guarded by this */
     protected final Map<String,Entity> entityProxiesById = Maps.newLinkedHashMap();
     
+    /** Proxies of the managed entities, for lock-free lookup */
+    protected final ConcurrentMap<String,Entity> entityProxiesByIdConcurrent = new ConcurrentHashMap<String, Entity>();
+    
     /** Real managed entities */
-    protected final Map<String,Entity> entitiesById = Maps.newLinkedHashMap();
+    protected final ConcurrentMap<String,Entity> entitiesById = new ConcurrentHashMap<String, Entity>();
     
     /** Proxies of the managed entities */
     protected final ObservableList entities = new ObservableList();
     
     /** Proxies of the managed entities that are applications */
-    protected final Set<Application> applications = Sets.newLinkedHashSet();
+    protected final Set<Application> applications = new CopyOnWriteArraySet<Application>();
+
+    /** Snapshot of {@link #entityProxiesById} values; set to null when that changes, and recreated on next read */
+    private volatile Collection<Entity> entitiesSnapshot = ImmutableList.of();
+    
+    private final EntityIndex entitiesByApplicationId = new EntityIndex();
+    private final EntityIndex entitiesByTypeName = new EntityIndex();
+    private final EntityIndex entitiesByDisplayName = new EntityIndex();
+    
+    /** The display name under which each entity is indexed; guarded by this */
+    private final Map<String,String> indexedDisplayNames = Maps.newHashMap();
+    
+    private final AtomicLong version = new AtomicLong();
 
     public LocalEntityManager(LocalManagementContext managementContext) {
         this.managementContext = checkNotNull(managementContext, "managementContext");
@@ -88,16 +113,68 @@ public class LocalEntityManager implements EntityManager {
     }
 
     @Override
-    public synchronized Collection<Entity> getEntities() {
-        return ImmutableList.copyOf(entityProxiesById.values());
+    public Collection<Entity> getEntities() {
+        Collection<Entity> result = entitiesSnapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = entitiesSnapshot;
+                if (result == null) {
+                    result = ImmutableList.copyOf(entityProxiesById.values());
+                    entitiesSnapshot = result;
+                }
+            }
+        }
+        return result;
     }
     
     @Override
-    public synchronized Entity getEntity(String id) {
-        return entityProxiesById.get(id);
+    public Entity getEntity(String id) {
+        return entityProxiesByIdConcurrent.get(id);
+    }
+    
+    /** Proxies of the managed entities in the given application (including the application itself) */
+    public Collection<Entity> getEntitiesInApplication(String applicationId) {
+        return entitiesByApplicationId.get(applicationId);
+    }
+    
+    /** Proxies of the managed entities whose {@link Entity#getEntityType()} has the given name */
+    public Collection<Entity> getEntitiesOfTypeName(String entityTypeName) {
+        return entitiesByTypeName.get(entityTypeName);
+    }
+    
+    /** Proxies of the managed entities with the given display name */
+    public Collection<Entity> getEntitiesWithDisplayName(String displayName) {
+        return entitiesByDisplayName.get(displayName);
+    }
+    
+    /** To be called by the entity when its display name changes, to update the index */
+    public synchronized void onDisplayNameChanged(Entity e) {
+        String id = e.getId();
+        if (!indexedDisplayNames.containsKey(id)) return; // not managed
+        Entity proxyE = entityProxiesById.get(id);
+        String oldName = indexedDisplayNames.get(id);
+        String newName = e.getDisplayName();
+        if (oldName != null) entitiesByDisplayName.remove(oldName, proxyE);
+        if (newName != null) entitiesByDisplayName.add(newName, proxyE);
+        indexedDisplayNames.put(id, newName);
+        version.incrementAndGet();
+    }
+    
+    /** To be called by the entity when a child is added or removed, so that {@link #getVersion()} changes */
+    public void onChildrenChanged(Entity e) {
+        if (entitiesById.containsKey(e.getId())) version.incrementAndGet();
     }
     
-    synchronized Collection<Application> getApplications() {
+    /**
+     * Changes whenever an entity is managed or unmanaged, or a managed entity's display name or children
+     * change; callers can use this to tell cheaply whether the entity hierarchy may have changed
+     * since they last looked (e.g. for HTTP ETags).
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    Collection<Application> getApplications() {
         return ImmutableList.copyOf(applications);
     }
     
@@ -266,6 +343,8 @@ public class LocalEntityManager implements EntityManager {
         // If we don't already know about the proxy, then use the real thing; presumably it's 
         // the legacy way of creating the entity so didn't get a preManage() call
         entityProxiesById.put(e.getId(), proxyE);
+        entityProxiesByIdConcurrent.put(e.getId(), proxyE);
+        entitiesSnapshot = null;
         
         Object old = entitiesById.put(e.getId(), realE);
         if (old!=null) {
@@ -281,7 +360,9 @@ public class LocalEntityManager implements EntityManager {
             if ((e instanceof Application) && (e.getParent()==null)) {
                 applications.add((Application)proxyE);
             }
+            addToIndexes(realE, proxyE);
             entities.add(proxyE);
+            version.incrementAndGet();
             return true;
         }
     }
@@ -293,11 +374,15 @@ public class LocalEntityManager implements EntityManager {
     private synchronized boolean unmanageNonRecursive(Entity e) {
         Entity proxyE = toProxyEntityIfAvailable(e);
         
+        removeFromIndexes(e, proxyE);
         e.clearParent();
         if (e instanceof Application) applications.remove(proxyE);
         entities.remove(proxyE);
         entityProxiesById.remove(e.getId());
+        entityProxiesByIdConcurrent.remove(e.getId());
+        entitiesSnapshot = null;
         Object old = entitiesById.remove(e.getId());
+        version.incrementAndGet();
         
         if (old==null) {
             log.warn("{} call to stop management of unknown entity (already unmanaged?) {}", this, e);
@@ -312,6 +397,48 @@ public class LocalEntityManager implements EntityManager {
         }
     }
 
+    private void addToIndexes(Entity realE, Entity proxyE) {
+        if (realE.getApplicationId() != null) entitiesByApplicationId.add(realE.getApplicationId(), proxyE);
+        entitiesByTypeName.add(realE.getEntityType().getName(), proxyE);
+        String displayName = realE.getDisplayName();
+        if (displayName != null) entitiesByDisplayName.add(displayName, proxyE);
+        indexedDisplayNames.put(realE.getId(), displayName);
+    }
+    
+    private void removeFromIndexes(Entity e, Entity proxyE) {
+        if (e.getApplicationId() != null) entitiesByApplicationId.remove(e.getApplicationId(), proxyE);
+        entitiesByTypeName.remove(e.getEntityType().getName(), proxyE);
+        String displayName = indexedDisplayNames.remove(e.getId());
+        if (displayName != null) entitiesByDisplayName.remove(displayName, proxyE);
+    }
+    
+    /** Multi-map from key to entities, for lock-free reads; writes are made while synchronized on the entity manager */
+    private static class EntityIndex {
+        private final ConcurrentMap<String, Set<Entity>> entitiesByKey = new ConcurrentHashMap<String, Set<Entity>>();
+        
+        Collection<Entity> get(String key) {
+            Set<Entity> result = entitiesByKey.get(key);
+            return (result == null) ? ImmutableSet.<Entity>of() : ImmutableSet.copyOf(result);
+        }
+        
+        void add(String key, Entity entity) {
+            Set<Entity> entities = entitiesByKey.get(key);
+            if (entities == null) {
+                entities = Collections.newSetFromMap(new ConcurrentHashMap<Entity, Boolean>());
+                entitiesByKey.put(key, entities);
+            }
+            entities.add(entity);
+        }
+        
+        void remove(String key, Entity entity) {
+            Set<Entity> entities = entitiesByKey.get(key);
+            if (entities != null) {
+                entities.remove(entity);
+                if (entities.isEmpty()) entitiesByKey.remove(key);
+            }
+        }
+    }
+    
     void addEntitySetListener(CollectionChangeListener<Entity> listener) {
         //must notify listener in a different thread to avoid deadlock (issue #378)
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
@@ -31,7 +31,7 @@ public class LocalManagementContext extends AbstractManagementContext {
 
     private BasicExecutionManager execution;
     private SubscriptionManager subscriptions;
-    private LocalEntityManager entityManager;
+    private volatile LocalEntityManager entityManager;
     private final LocalLocationManager locationManager;
     
     private final String shortid = Identifiers.getBase64IdFromValue(System.identityHashCode(this), 5);
@@ -59,7 +59,7 @@ public class LocalManagementContext extends AbstractManagementContext {
     }
 
     @Override
-    public synchronized Collection<Application> getApplications() {
+    public Collection<Application> getApplications() {
         return getEntityManager().getApplications();
     }
     
@@ -79,13 +79,19 @@ public class LocalManagementContext extends AbstractManagementContext {
     }
     
     @Override
-    public synchronized LocalEntityManager getEntityManager() {
+    public LocalEntityManager getEntityManager() {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
         
-        if (entityManager == null) {
-            entityManager = new LocalEntityManager(this);
+        LocalEntityManager result = entityManager;
+        if (result == null) {
+            synchronized (this) {
+                if (entityManager == null) {
+                    entityManager = new LocalEntityManager(this);
+                }
+                result = entityManager;
+            }
         }
-        return entityManager;
+        return result;
     }
 
     @Override
@@ -99,7 +105,10 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
         
         if (subscriptions == null) {
-            subscriptions = new LocalSubscriptionManager(getExecutionManager());
+            subscriptions = new LocalSubscriptionManager(getExecutionManager(), 
+                    configMap.getConfig(SUBSCRIPTION_BATCH_DELIVERY), 
+                    configMap.getConfig(SUBSCRIPTION_MAILBOX_CAPACITY), 
+                    configMap.getConfig(SUBSCRIPTION_MAILBOX_OVERFLOW_POLICY));
         }
         return subscriptions;
     }
@@ -109,12 +118,26 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
         
         if (execution == null) {
-            execution = new BasicExecutionManager(shortid);
+            execution = newExecutionManager();
             gc = new BrooklynGarbageCollector(configMap, execution);
         }
         return execution;
     }
     
+    protected BasicExecutionManager newExecutionManager() {
+        String mode = configMap.getConfig(EXECUTION_MANAGER_MODE);
+        if (mode == null || mode.trim().isEmpty() || "unbounded".equalsIgnoreCase(mode.trim())) {
+            return new BasicExecutionManager(shortid);
+        } else if ("workStealing".equalsIgnoreCase(mode.trim())) {
+            return new BasicExecutionManager(shortid, 
+                    configMap.getConfig(EXECUTION_MANAGER_MAX_THREADS), 
+                    configMap.getConfig(EXECUTION_MANAGER_LOCAL_QUEUE_CAPACITY), 
+                    configMap.getConfig(EXECUTION_MANAGER_OVERFLOW_CAPACITY));
+        } else {
+            throw new IllegalArgumentException("Unknown "+EXECUTION_MANAGER_MODE.getName()+" '"+mode+"'; expected unbounded or workStealing");
+        }
+    }
+    
     @Override
     public void terminate() {
         super.terminate();
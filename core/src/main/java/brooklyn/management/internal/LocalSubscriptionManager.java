@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -55,8 +56,42 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
     
+    /** lock-free view of subscriptionsByToken for publishing; maintained when subscriptions change */
+    private final SubscriptionIndex index = new SubscriptionIndex(subscriptionsByToken);
+    
+    /** if true, deliveries for the same subscriber tag are coalesced so that one task delivers a batch of events */
+    private final boolean batchDelivery;
+    private final int mailboxCapacity;
+    private final SubscriberMailbox.OverflowPolicy mailboxOverflowPolicy;
+    private final ConcurrentMap<Object, SubscriberMailbox> mailboxesByTag = new ConcurrentHashMap<Object, SubscriberMailbox>();
+    
     public LocalSubscriptionManager(ExecutionManager m) {
+        this(m, false);
+    }
+    
+    /**
+     * @param batchDelivery  whether to coalesce event deliveries for the same subscriber into one task
+     *        (rather than one task per event), for subscriptions with a subscriber execution-manager tag;
+     *        events are still delivered in order
+     */
+    public LocalSubscriptionManager(ExecutionManager m, boolean batchDelivery) {
+        this(m, batchDelivery, 0, null);
+    }
+    
+    /**
+     * Creates a subscription manager which delivers events via a per-subscriber mailbox, 
+     * bounded if mailboxCapacity is positive (which implies batchDelivery).
+     * 
+     * @param mailboxOverflowPolicy  one of BLOCK (the default), DROP_OLDEST or CONFLATE; 
+     *        what to do when a subscriber's mailbox is full
+     */
+    public LocalSubscriptionManager(ExecutionManager m, boolean batchDelivery, int mailboxCapacity, String mailboxOverflowPolicy) {
         this.em = m;
+        this.batchDelivery = batchDelivery || mailboxCapacity > 0;
+        this.mailboxCapacity = mailboxCapacity;
+        this.mailboxOverflowPolicy = (mailboxOverflowPolicy == null || mailboxOverflowPolicy.trim().isEmpty()) ? 
+                SubscriberMailbox.OverflowPolicy.BLOCK : 
+                SubscriberMailbox.OverflowPolicy.valueOf(mailboxOverflowPolicy.trim().toUpperCase());
     }
         
     public long getNumSubscriptions() {
@@ -92,6 +127,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
         allSubscriptions.put(s.id, s);
         addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        index.onChanged(s.producer, s.sensor);
         if (s.subscriber!=null) {
             addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
         }
@@ -106,13 +142,9 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
-        Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
-        return subscriptions;
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+        return new LinkedHashSet<SubscriptionHandle>((List)index.lookup(source, sensor));
     }
 
     /**
@@ -127,6 +159,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         boolean result = allSubscriptions.remove(s.id) != null;
         boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
         assert result==b2;
+        index.onChanged(s.producer, s.sensor);
         if (s.subscriber!=null) {
             boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
             assert b3 == b2;
@@ -135,8 +168,11 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         // TODO Requires code review: why did we previously do exactly same check twice in a row (with no synchronization in between)? 
         if ((subscriptionsBySubscriber.size() == 0 || !groovyTruth(subscriptionsBySubscriber.get(s.subscriber))) && !s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
             //if subscriber has gone away forget about his task; but check in synch block to ensure setTaskPreprocessor call above will win in any race
-            if ((subscriptionsBySubscriber.size() == 0 || !groovyTruth(subscriptionsBySubscriber.get(s.subscriber))))
+            if ((subscriptionsBySubscriber.size() == 0 || !groovyTruth(subscriptionsBySubscriber.get(s.subscriber)))) {
                 ((BasicExecutionManager)em).clearTaskPreprocessorForTag(s.subscriberExecutionManagerTag);
+                // any events still pending will be delivered by the batch's current task
+                mailboxesByTag.remove(s.subscriberExecutionManagerTag);
+            }
         }
 
 		//FIXME ALEX - this seems wrong
@@ -161,22 +197,38 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
-        if (groovyTruth(subs)) {
+        List<Subscription> subs = index.lookup(event.getSource(), event.getSensor());
+        if (!subs.isEmpty()) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
             for (Subscription s : subs) {
                 if (s.eventFilter!=null && !s.eventFilter.apply(event))
                     continue;
-                final Subscription sAtClosureCreation = s;
-                em.submit(mapOf("tag", s.subscriberExecutionManagerTag), new Runnable() {
-                    public void run() {
-                        sAtClosureCreation.listener.onEvent(event);
-                    }});
+                if (batchDelivery && s.subscriberExecutionManagerTag!=null) {
+                    getMailbox(s).add(s, event);
+                } else {
+                    final Subscription sAtClosureCreation = s;
+                    em.submit(mapOf("tag", s.subscriberExecutionManagerTag), new Runnable() {
+                        public void run() {
+                            sAtClosureCreation.listener.onEvent(event);
+                        }});
+                }
                 totalEventsDeliveredCount.incrementAndGet();
             }
         }
     }
     
+    private SubscriberMailbox getMailbox(Subscription<?> s) {
+        Object tag = s.subscriberExecutionManagerTag;
+        SubscriberMailbox result = mailboxesByTag.get(tag);
+        if (result == null) {
+            mailboxesByTag.putIfAbsent(tag, new SubscriberMailbox(em, tag, s.subscriber, mailboxCapacity, mailboxOverflowPolicy));
+            result = mailboxesByTag.get(tag);
+            // could have been removed concurrently by unsubscribe; then just use a transient mailbox
+            if (result == null) result = new SubscriberMailbox(em, tag, s.subscriber, mailboxCapacity, mailboxOverflowPolicy);
+        }
+        return result;
+    }
+    
     @Override
     public String toString() {
         return tostring;
@@ -8,9 +8,11 @@ import brooklyn.config.ConfigKey;
 import brooklyn.entity.Effector;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.event.feed.PollScheduler;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.management.ManagementContext;
 import brooklyn.management.Task;
+import brooklyn.policy.basic.PolicyScheduler;
 
 public interface ManagementContextInternal extends ManagementContext {
 
@@ -20,6 +22,32 @@ public interface ManagementContextInternal extends ManagementContext {
     public static final ConfigKey<String> BROOKLYN_CATALOG_URL = ConfigKeys.newStringConfigKey("brooklyn.catalog.url",
             "The URL of a catalog.xml descriptor; absent for default (~/.brooklyn/catalog.xml), " +
             "or empty for no URL (use default scanner)", "file://~/.brooklyn/catalog.xml");
+
+    public static final ConfigKey<String> EXECUTION_MANAGER_MODE = ConfigKeys.newStringConfigKey("brooklyn.executionManager.mode",
+            "How tasks are run: 'unbounded' (default) for a thread per concurrent task, " +
+            "or 'workStealing' for a bounded work-stealing pool with backpressure when its queues are full", "unbounded");
+
+    public static final ConfigKey<Integer> EXECUTION_MANAGER_MAX_THREADS = ConfigKeys.newIntegerConfigKey("brooklyn.executionManager.maxThreads",
+            "Number of threads in the pool, when brooklyn.executionManager.mode is workStealing", 256);
+
+    public static final ConfigKey<Integer> EXECUTION_MANAGER_LOCAL_QUEUE_CAPACITY = ConfigKeys.newIntegerConfigKey("brooklyn.executionManager.localQueueCapacity",
+            "Max tasks queued per thread, when brooklyn.executionManager.mode is workStealing", 1000);
+
+    public static final ConfigKey<Integer> EXECUTION_MANAGER_OVERFLOW_CAPACITY = ConfigKeys.newIntegerConfigKey("brooklyn.executionManager.overflowCapacity",
+            "Max tasks in the shared overflow queue, when brooklyn.executionManager.mode is workStealing; " +
+            "beyond this, submitters block until space is available", 10000);
+
+    public static final ConfigKey<Boolean> SUBSCRIPTION_BATCH_DELIVERY = ConfigKeys.newBooleanConfigKey("brooklyn.subscriptions.batchDelivery",
+            "Whether to coalesce sensor event deliveries for the same subscriber into one task per batch, " +
+            "rather than one task per event", false);
+
+    public static final ConfigKey<Integer> SUBSCRIPTION_MAILBOX_CAPACITY = ConfigKeys.newIntegerConfigKey("brooklyn.subscriptions.mailboxCapacity",
+            "If positive, sensor events are delivered via a mailbox of this size per subscriber " +
+            "(implying brooklyn.subscriptions.batchDelivery); zero for unbounded", 0);
+
+    public static final ConfigKey<String> SUBSCRIPTION_MAILBOX_OVERFLOW_POLICY = ConfigKeys.newStringConfigKey("brooklyn.subscriptions.mailboxOverflowPolicy",
+            "What to do when a subscriber's mailbox is full: BLOCK the publisher, DROP_OLDEST event, " +
+            "or CONFLATE to the latest value per sensor", "BLOCK");
     
     ClassLoader getBaseClassLoader();
 
@@ -31,6 +59,15 @@ public interface ManagementContextInternal extends ManagementContext {
 
     void removeEntitySetListener(CollectionChangeListener<Entity> listener);
 
+    /** the engine maintaining the membership of dynamic groups in this management context */
+    DynamicMembershipEngine getDynamicMembershipEngine();
+
+    /** the scheduler for the periodic polls of feeds in this management context; shut down on {@link #terminate()} */
+    PollScheduler getPollScheduler();
+
+    /** the scheduler for the deferred and periodic work of policies etc in this management context; shut down on {@link #terminate()} */
+    PolicyScheduler getPolicyScheduler();
+
     void terminate();
     
     long getTotalEffectorInvocations();
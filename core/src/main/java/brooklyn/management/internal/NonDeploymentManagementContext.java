@@ -22,6 +22,7 @@ import brooklyn.entity.drivers.EntityDriverManager;
 import brooklyn.entity.drivers.downloads.DownloadResolverManager;
 import brooklyn.entity.rebind.ChangeListener;
 import brooklyn.entity.rebind.RebindManager;
+import brooklyn.event.feed.PollScheduler;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.location.LocationRegistry;
 import brooklyn.management.EntityManager;
@@ -32,6 +33,7 @@ import brooklyn.management.SubscriptionContext;
 import brooklyn.management.Task;
 import brooklyn.mementos.BrooklynMemento;
 import brooklyn.mementos.BrooklynMementoPersister;
+import brooklyn.policy.basic.PolicyScheduler;
 import brooklyn.util.task.AbstractExecutionContext;
 
 public class NonDeploymentManagementContext implements ManagementContextInternal {
@@ -159,6 +161,24 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         checkInitialManagementContextReal();
         return initialManagementContext.getStorage();
     }
+
+    @Override
+    public DynamicMembershipEngine getDynamicMembershipEngine() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getDynamicMembershipEngine();
+    }
+
+    @Override
+    public PollScheduler getPollScheduler() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getPollScheduler();
+    }
+
+    @Override
+    public PolicyScheduler getPolicyScheduler() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getPolicyScheduler();
+    }
     
     @Override
     public RebindManager getRebindManager() {
@@ -0,0 +1,329 @@
+package brooklyn.management.internal;
+
+import static brooklyn.util.JavaGroovyEquivalents.mapOf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Attributes;
+import brooklyn.entity.basic.EntityLocal;
+import brooklyn.event.Sensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.management.ExecutionManager;
+import brooklyn.util.exceptions.RuntimeInterruptedException;
+import brooklyn.util.task.BasicTask;
+import brooklyn.util.task.ScheduledTask;
+
+import com.google.common.base.Objects;
+
+/**
+ * Pending sensor-event deliveries for one subscriber tag, held in a ring buffer.
+ * <p>
+ * At most one task at a time is submitted to the execution manager to drain the mailbox, so events
+ * are delivered in the order published (and the tag's {@link brooklyn.util.task.SingleThreadedScheduler}
+ * semantics are preserved), but with one task per batch of events rather than per event.
+ * <p>
+ * If a capacity is given, the {@link OverflowPolicy} says what happens when the mailbox is full.
+ * If the subscriber is an entity, the mailbox's depth, drop count and max latency are published as
+ * sensors on it (see {@link Attributes#SUBSCRIPTION_MAILBOX_DEPTH} etc), at most once per second;
+ * after a burst, the final values are published once the interval has elapsed.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+class SubscriberMailbox {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriberMailbox.class);
+
+    public enum OverflowPolicy {
+        /** publisher waits until there is space (unless the publisher is delivering from this mailbox) */
+        BLOCK,
+        /** the oldest pending event is discarded */
+        DROP_OLDEST,
+        /**
+         * a pending event for the same subscription, producer and sensor is replaced with the newer one
+         * (whether or not the mailbox is full); if full and there is no such event, the oldest is discarded
+         */
+        CONFLATE
+    }
+
+    /** max events delivered by a single task, so that one busy subscriber does not hog a thread */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int INITIAL_UNBOUNDED_SIZE = 16;
+
+    private static final long METRICS_PUBLISH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ExecutionManager em;
+    private final Object tag;
+    private final Object subscriber;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // guarded by this
+    private Delivery[] ring;
+    private int head = 0;
+    private int size = 0;
+    private boolean scheduled = false;
+    private boolean metricsPublishScheduled = false;
+    private final Map<Delivery, Delivery> pendingForConflation;
+
+    private volatile Thread drainingThread;
+    private volatile long droppedCount = 0;
+    private volatile long conflatedCount = 0;
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    /** whether the metrics have changed since last published */
+    private volatile boolean metricsChanged = false;
+    private volatile long lastMetricsPublishNanos;
+    // last values published; guarded by metricsLock
+    private final Object metricsLock = new Object();
+    private int lastPublishedDepth = -1;
+    private long lastPublishedDropped = -1;
+    private long lastPublishedMaxLatencyMillis = -1;
+
+    /**
+     * @param capacity  max pending events, or zero (or negative) for unbounded
+     */
+    SubscriberMailbox(ExecutionManager em, Object tag, Object subscriber, int capacity, OverflowPolicy overflowPolicy) {
+        this.em = em;
+        this.tag = tag;
+        this.subscriber = subscriber;
+        this.capacity = capacity;
+        this.overflowPolicy = (overflowPolicy != null) ? overflowPolicy : OverflowPolicy.BLOCK;
+        this.ring = new Delivery[capacity > 0 ? capacity : INITIAL_UNBOUNDED_SIZE];
+        this.pendingForConflation = (this.overflowPolicy == OverflowPolicy.CONFLATE) ? new HashMap<Delivery, Delivery>() : null;
+        this.lastMetricsPublishNanos = System.nanoTime() - METRICS_PUBLISH_INTERVAL_NANOS;
+    }
+
+    public void add(Subscription s, SensorEvent<?> event) {
+        Delivery delivery = new Delivery(s, event, System.nanoTime());
+        boolean needsScheduling;
+        synchronized (this) {
+            if (pendingForConflation != null) {
+                Delivery existing = pendingForConflation.get(delivery);
+                if (existing != null) {
+                    // keep its place (and original enqueue time, so latency reflects the oldest undelivered change)
+                    existing.event = event;
+                    conflatedCount++;
+                    return;
+                }
+            }
+            if (capacity > 0 && size >= capacity) {
+                if (overflowPolicy == OverflowPolicy.BLOCK && drainingThread != Thread.currentThread()) {
+                    while (size >= capacity) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RuntimeInterruptedException(e);
+                        }
+                    }
+                } else if (overflowPolicy != OverflowPolicy.BLOCK) {
+                    Delivery dropped = poll();
+                    droppedCount++;
+                    metricsChanged = true;
+                    if (LOG.isTraceEnabled()) LOG.trace("Mailbox {} full; dropped {}", tag, dropped);
+                }
+            }
+            offer(delivery);
+            needsScheduling = !scheduled;
+            scheduled = true;
+        }
+        if (needsScheduling) submitDrain();
+    }
+
+    public synchronized int getDepth() {
+        return size;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getConflatedCount() {
+        return conflatedCount;
+    }
+
+    /** the max time between an event being published and it being delivered, since metrics were last published */
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    private void submitDrain() {
+        em.submit(mapOf("tag", tag), new Runnable() {
+            public void run() {
+                drain();
+            }});
+    }
+
+    private void drain() {
+        drainingThread = Thread.currentThread();
+        try {
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                Delivery delivery;
+                synchronized (this) {
+                    delivery = poll();
+                    if (delivery == null) break;
+                    // wake any blocked publishers
+                    if (capacity > 0 && overflowPolicy == OverflowPolicy.BLOCK) notifyAll();
+                }
+                recordLatency(System.nanoTime() - delivery.enqueueTimeNanos);
+                try {
+                    delivery.subscription.listener.onEvent(delivery.event);
+                } catch (Exception e) {
+                    LOG.warn("Error delivering event "+delivery.event+" to "+delivery.subscription+" (continuing with other events)", e);
+                }
+            }
+            publishMetricsIfDue();
+        } finally {
+            drainingThread = null;
+            boolean needsScheduling;
+            synchronized (this) {
+                // events may have arrived after our last poll; or we may have stopped at MAX_BATCH_SIZE
+                needsScheduling = (size > 0);
+                scheduled = needsScheduling;
+            }
+            if (needsScheduling) {
+                submitDrain();
+            } else {
+                schedulePendingMetricsPublish();
+            }
+        }
+    }
+
+    private void recordLatency(long latencyNanos) {
+        metricsChanged = true;
+        long current;
+        while (latencyNanos > (current = maxLatencyNanos.get())) {
+            if (maxLatencyNanos.compareAndSet(current, latencyNanos)) break;
+        }
+    }
+
+    private void publishMetricsIfDue() {
+        if (!(subscriber instanceof EntityLocal)) return;
+        if (System.nanoTime() - lastMetricsPublishNanos < METRICS_PUBLISH_INTERVAL_NANOS) return;
+        publishMetrics();
+    }
+
+    /**
+     * Once the mailbox is empty, ensures the final values are published even if no further events arrive;
+     * delayed until the publish interval has elapsed.
+     */
+    private void schedulePendingMetricsPublish() {
+        if (!(subscriber instanceof EntityLocal) || !metricsChanged) return;
+        synchronized (this) {
+            if (metricsPublishScheduled) return;
+            metricsPublishScheduled = true;
+        }
+        long delayNanos = Math.max(0, lastMetricsPublishNanos + METRICS_PUBLISH_INTERVAL_NANOS - System.nanoTime());
+        ScheduledTask task = new ScheduledTask(new BasicTask<Void>(new Runnable() {
+            public void run() {
+                synchronized (SubscriberMailbox.this) {
+                    metricsPublishScheduled = false;
+                }
+                if (metricsChanged) publishMetrics();
+            }}));
+        em.submit(task.delay(TimeUnit.NANOSECONDS.toMillis(delayNanos)));
+    }
+
+    private void publishMetrics() {
+        int depth;
+        long dropped;
+        long maxLatencyMillis;
+        synchronized (metricsLock) {
+            lastMetricsPublishNanos = System.nanoTime();
+            metricsChanged = false;
+            depth = getDepth();
+            dropped = droppedCount;
+            maxLatencyMillis = TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.getAndSet(0));
+            
+            // skipping unchanged values means an entity subscribed to its own sensors does not keep
+            // re-publishing these, in response to receiving the events from the last publish
+            if (depth == lastPublishedDepth && dropped == lastPublishedDropped && maxLatencyMillis == lastPublishedMaxLatencyMillis) return;
+            lastPublishedDepth = depth;
+            lastPublishedDropped = dropped;
+            lastPublishedMaxLatencyMillis = maxLatencyMillis;
+        }
+
+        // note these emit events themselves, so if the entity subscribes to its own sensors it will
+        // receive these (at most once per interval)
+        EntityLocal entity = (EntityLocal) subscriber;
+        entity.setAttribute(Attributes.SUBSCRIPTION_MAILBOX_DEPTH, depth);
+        entity.setAttribute(Attributes.SUBSCRIPTION_MAILBOX_DROPPED, dropped);
+        entity.setAttribute(Attributes.SUBSCRIPTION_MAILBOX_MAX_LATENCY, maxLatencyMillis);
+    }
+
+    // must hold lock
+    private void offer(Delivery delivery) {
+        if (size == ring.length) {
+            // only when unbounded
+            Delivery[] newRing = new Delivery[ring.length*2];
+            for (int i = 0; i < size; i++) {
+                newRing[i] = ring[(head + i) % ring.length];
+            }
+            ring = newRing;
+            head = 0;
+        }
+        ring[(head + size) % ring.length] = delivery;
+        size++;
+        if (pendingForConflation != null) pendingForConflation.put(delivery, delivery);
+    }
+
+    // must hold lock
+    private Delivery poll() {
+        if (size == 0) return null;
+        Delivery result = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        if (pendingForConflation != null) pendingForConflation.remove(result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberMailbox["+tag+"]";
+    }
+
+    /** equality (used for conflation) is by subscription, producer and sensor; not by value */
+    private static class Delivery {
+        final Subscription subscription;
+        final long enqueueTimeNanos;
+        volatile SensorEvent event;
+
+        Delivery(Subscription subscription, SensorEvent event, long enqueueTimeNanos) {
+            this.subscription = subscription;
+            this.event = event;
+            this.enqueueTimeNanos = enqueueTimeNanos;
+        }
+
+        private Entity source() {
+            return event.getSource();
+        }
+
+        private Sensor sensor() {
+            return event.getSensor();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(subscription, source(), sensor());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Delivery)) return false;
+            Delivery o = (Delivery) obj;
+            return subscription.equals(o.subscription) && Objects.equal(source(), o.source()) && Objects.equal(sensor(), o.sensor());
+        }
+
+        @Override
+        public String toString() {
+            return "Delivery["+subscription+": "+event+"]";
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package brooklyn.management.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import brooklyn.entity.Entity;
+import brooklyn.event.Sensor;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Read-optimised index of subscriptions, keyed by (producer, sensor), for use when publishing.
+ * <p>
+ * Each entry is an immutable list which already includes the matching wildcard subscriptions
+ * (i.e. those for any producer and/or any sensor), in the same order as
+ * {@link LocalSubscriptionManager#getSubscriptionsForEntitySensor(Entity, Sensor)} previously gave:
+ * exact, then any-producer, then any-sensor, then any-producer-and-sensor.
+ * So {@link #lookup(Entity, Sensor)} takes no locks and allocates nothing.
+ * <p>
+ * Entries are replaced copy-on-write by {@link #onChanged(Entity, Sensor)}; callers must serialize
+ * calls to that method (the subscription manager calls it while holding its own lock).
+ */
+@SuppressWarnings("rawtypes")
+class SubscriptionIndex {
+
+    /** the raw subscriptions, as maintained by the subscription manager (not owned by this index) */
+    private final Map<Object, Set<Subscription>> subscriptionsByToken;
+
+    /** producer -> sensor -> merged subscriptions; inner maps are never modified once published */
+    private final ConcurrentMap<Entity, Map<Sensor<?>, List<Subscription>>> byProducerAndSensor = new ConcurrentHashMap<Entity, Map<Sensor<?>, List<Subscription>>>();
+    /** producer -> merged subscriptions for that producer with any sensor, plus any-producer-and-sensor */
+    private final ConcurrentMap<Entity, List<Subscription>> byProducerAnySensor = new ConcurrentHashMap<Entity, List<Subscription>>();
+    /** sensor -> merged subscriptions for that sensor from any producer, plus any-producer-and-sensor */
+    private final ConcurrentMap<Sensor<?>, List<Subscription>> bySensorAnyProducer = new ConcurrentHashMap<Sensor<?>, List<Subscription>>();
+    private volatile List<Subscription> anyProducerAnySensor = Collections.emptyList();
+
+    /** bookkeeping for maintenance only (not used by lookup) */
+    private final Map<Entity, Set<Sensor<?>>> exactSensorsByProducer = new HashMap<Entity, Set<Sensor<?>>>();
+    private final Map<Sensor<?>, Set<Entity>> exactProducersBySensor = new HashMap<Sensor<?>, Set<Entity>>();
+
+    SubscriptionIndex(Map<Object, Set<Subscription>> subscriptionsByToken) {
+        this.subscriptionsByToken = subscriptionsByToken;
+    }
+
+    /** returns all subscriptions matching the given producer and sensor; the result must not be modified */
+    List<Subscription> lookup(Entity producer, Sensor<?> sensor) {
+        if (producer != null) {
+            Map<Sensor<?>, List<Subscription>> perSensor = byProducerAndSensor.get(producer);
+            if (perSensor != null) {
+                List<Subscription> result = perSensor.get(sensor);
+                if (result != null) return result;
+            }
+            List<Subscription> result = byProducerAnySensor.get(producer);
+            if (result != null) return result;
+        }
+        if (sensor != null) {
+            List<Subscription> result = bySensorAnyProducer.get(sensor);
+            if (result != null) return result;
+        }
+        return anyProducerAnySensor;
+    }
+
+    /**
+     * To be called whenever a subscription for the given (producer, sensor) token is added or removed,
+     * after the raw subscriptionsByToken map has been updated.
+     */
+    void onChanged(Entity producer, Sensor<?> sensor) {
+        if (producer != null && sensor != null) {
+            updateExactBookkeeping(producer, sensor);
+            reindexProducer(producer);
+
+        } else if (producer != null) {
+            reindexProducerAnySensor(producer);
+            reindexProducer(producer);
+
+        } else if (sensor != null) {
+            reindexSensorAnyProducer(sensor);
+            Set<Entity> producers = new LinkedHashSet<Entity>(byProducerAnySensor.keySet());
+            Set<Entity> exactProducers = exactProducersBySensor.get(sensor);
+            if (exactProducers != null) producers.addAll(exactProducers);
+            for (Entity p : producers) {
+                reindexProducer(p);
+            }
+
+        } else {
+            anyProducerAnySensor = merge(null, null);
+            for (Sensor<?> s : new ArrayList<Sensor<?>>(bySensorAnyProducer.keySet())) {
+                reindexSensorAnyProducer(s);
+            }
+            for (Entity p : new ArrayList<Entity>(byProducerAnySensor.keySet())) {
+                reindexProducerAnySensor(p);
+            }
+            for (Entity p : new ArrayList<Entity>(exactSensorsByProducer.keySet())) {
+                reindexProducer(p);
+            }
+        }
+    }
+
+    private void updateExactBookkeeping(Entity producer, Sensor<?> sensor) {
+        boolean present = !isEmpty(subscriptionsByToken.get(AbstractSubscriptionManager.makeEntitySensorToken(producer, sensor)));
+        Set<Sensor<?>> sensors = exactSensorsByProducer.get(producer);
+        Set<Entity> producers = exactProducersBySensor.get(sensor);
+        if (present) {
+            if (sensors == null) exactSensorsByProducer.put(producer, sensors = new LinkedHashSet<Sensor<?>>());
+            if (producers == null) exactProducersBySensor.put(sensor, producers = new LinkedHashSet<Entity>());
+            sensors.add(sensor);
+            producers.add(producer);
+        } else {
+            if (sensors != null) {
+                sensors.remove(sensor);
+                if (sensors.isEmpty()) exactSensorsByProducer.remove(producer);
+            }
+            if (producers != null) {
+                producers.remove(producer);
+                if (producers.isEmpty()) exactProducersBySensor.remove(sensor);
+            }
+        }
+    }
+
+    private void reindexSensorAnyProducer(Sensor<?> sensor) {
+        if (isEmpty(subscriptionsByToken.get(AbstractSubscriptionManager.makeEntitySensorToken(null, sensor)))) {
+            bySensorAnyProducer.remove(sensor);
+        } else {
+            bySensorAnyProducer.put(sensor, merge(null, sensor));
+        }
+    }
+
+    private void reindexProducerAnySensor(Entity producer) {
+        if (isEmpty(subscriptionsByToken.get(AbstractSubscriptionManager.makeEntitySensorToken(producer, null)))) {
+            byProducerAnySensor.remove(producer);
+        } else {
+            byProducerAnySensor.put(producer, merge(producer, null));
+        }
+    }
+
+    /**
+     * Rebuilds the per-sensor entries for the producer: one for each sensor it has exact subscriptions for,
+     * and (if there are subscriptions to any sensor of this producer) one for each sensor with
+     * any-producer subscriptions, as those cannot be answered by a single fallback list.
+     */
+    private void reindexProducer(Entity producer) {
+        Set<Sensor<?>> sensors = new LinkedHashSet<Sensor<?>>();
+        Set<Sensor<?>> exactSensors = exactSensorsByProducer.get(producer);
+        if (exactSensors != null) sensors.addAll(exactSensors);
+        if (byProducerAnySensor.containsKey(producer)) sensors.addAll(bySensorAnyProducer.keySet());
+
+        if (sensors.isEmpty()) {
+            byProducerAndSensor.remove(producer);
+        } else {
+            Map<Sensor<?>, List<Subscription>> perSensor = new HashMap<Sensor<?>, List<Subscription>>(sensors.size()*2);
+            for (Sensor<?> s : sensors) {
+                perSensor.put(s, merge(producer, s));
+            }
+            byProducerAndSensor.put(producer, Collections.unmodifiableMap(perSensor));
+        }
+    }
+
+    private List<Subscription> merge(Entity producer, Sensor<?> sensor) {
+        ImmutableList.Builder<Subscription> result = ImmutableList.builder();
+        if (producer != null && sensor != null) addAll(result, producer, sensor);
+        if (sensor != null) addAll(result, null, sensor);
+        if (producer != null) addAll(result, producer, null);
+        addAll(result, null, null);
+        return result.build();
+    }
+
+    private void addAll(ImmutableList.Builder<Subscription> result, Entity producer, Sensor<?> sensor) {
+        Set<Subscription> subs = subscriptionsByToken.get(AbstractSubscriptionManager.makeEntitySensorToken(producer, sensor));
+        if (subs != null) {
+            synchronized (subs) {
+                result.addAll(subs);
+            }
+        }
+    }
+
+    private static boolean isEmpty(Collection<?> c) {
+        if (c == null) return true;
+        synchronized (c) {
+            return c.isEmpty();
+        }
+    }
+}
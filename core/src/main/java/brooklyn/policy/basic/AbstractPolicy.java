@@ -15,6 +15,7 @@ import brooklyn.entity.rebind.BasicPolicyRebindSupport;
 import brooklyn.entity.rebind.RebindSupport;
 import brooklyn.entity.trait.Configurable;
 import brooklyn.management.ExecutionContext;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.mementos.PolicyMemento;
 import brooklyn.policy.Policy;
 import brooklyn.policy.PolicyType;
@@ -39,6 +40,8 @@ public abstract class AbstractPolicy extends AbstractEntityAdjunct implements Po
 
     protected transient ExecutionContext execution;
 
+    private transient volatile PolicyScheduler.SerialScheduler scheduler;
+
     /**
      * The config values of this entity. Updating this map should be done
      * via getConfig/setConfig.
@@ -138,6 +141,8 @@ public abstract class AbstractPolicy extends AbstractEntityAdjunct implements Po
 
     public void suspend() {
         suspended.set(true);
+        PolicyScheduler.SerialScheduler s = scheduler;
+        if (s != null) s.cancelAll();
     }
 
     public void resume() {
@@ -148,6 +153,26 @@ public abstract class AbstractPolicy extends AbstractEntityAdjunct implements Po
         return suspended.get();
     }
 
+    /**
+     * For running this policy's scheduled and asynchronous work, one job at a time, on threads shared 
+     * by all policies in the management context (see {@link ManagementContextInternal#getPolicyScheduler()}).
+     * Jobs not yet started are cancelled on {@link #suspend()}. Only available once the policy has an entity.
+     */
+    protected PolicyScheduler.SerialScheduler getScheduler() {
+        PolicyScheduler.SerialScheduler result = scheduler;
+        if (result == null) {
+            synchronized (this) {
+                result = scheduler;
+                if (result == null) {
+                    Preconditions.checkState(entity != null, "Policy %s has no entity, so no scheduler", this);
+                    result = ((ManagementContextInternal)getManagementContext()).getPolicyScheduler().newSerialScheduler(getClass().getSimpleName()+":"+getId());
+                    scheduler = result;
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public void destroy(){
         suspend();
@@ -0,0 +1,200 @@
+package brooklyn.policy.basic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.util.internal.BrooklynSystemProperties;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the scheduled and asynchronous work of all policies in a management context on a single timer
+ * thread and a bounded shared pool of worker threads, rather than each policy having its own thread(s).
+ * When all workers are busy (e.g. blocked), jobs wait for a free worker; idle workers expire.
+ * <p>
+ * Each policy uses its own {@link SerialScheduler} (see {@link AbstractPolicy#getScheduler()}),
+ * whose jobs are run one at a time and in the order they became due, as they would be with a
+ * single-threaded executor per policy. Cancelling a policy's jobs (e.g. on suspend) does not
+ * stop its scheduler, so jobs can be scheduled again on resume.
+ */
+public class PolicyScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PolicyScheduler.class);
+
+    // allows for some jobs blocking, e.g. resizing a cluster
+    public static final int DEFAULT_NUM_THREADS = Math.max(8, 2*Runtime.getRuntime().availableProcessors());
+
+    /** a scheduler with the number of threads from {@link BrooklynSystemProperties#POLICY_SCHEDULER_THREADS}, if set */
+    public static PolicyScheduler newDefault() {
+        return new PolicyScheduler(BrooklynSystemProperties.POLICY_SCHEDULER_THREADS.isAvailable() ?
+                BrooklynSystemProperties.POLICY_SCHEDULER_THREADS.getValue() : DEFAULT_NUM_THREADS);
+    }
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+
+    /**
+     * @param numThreads  max number of worker threads
+     */
+    public PolicyScheduler(int numThreads) {
+        checkArgument(numThreads > 0, "numThreads must be positive, but was %s", numThreads);
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-policy-scheduler-%d")
+                .setDaemon(true)
+                .build());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS, 
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("brooklyn-policy-worker-%d")
+                        .setDaemon(true)
+                        .build());
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+
+    /** a new scheduler for the jobs of a single policy; the name is used in logging */
+    public SerialScheduler newSerialScheduler(String name) {
+        return new SerialScheduler(name);
+    }
+
+    /** shuts down the threads, discarding any jobs not yet run; e.g. when the management context terminates */
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Runs the jobs of one policy, one at a time. Jobs which throw are logged, and do not affect
+     * subsequent jobs.
+     */
+    public class SerialScheduler {
+        private final String name;
+
+        // guarded by this
+        private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+        private boolean draining = false;
+        private long generation = 0;
+
+        private final Set<ScheduledFuture<?>> timers = Collections.newSetFromMap(new ConcurrentHashMap<ScheduledFuture<?>, Boolean>());
+
+        private final Runnable drainer = new Runnable() {
+            public void run() {
+                drain();
+            }};
+
+        SerialScheduler(String name) {
+            this.name = checkNotNull(name, "name");
+        }
+
+        /** runs the job as soon as this policy's preceding jobs have completed */
+        public void submit(Runnable job) {
+            long gen;
+            synchronized (this) {
+                gen = generation;
+            }
+            enqueue(gen, job);
+        }
+
+        /** runs the job after the given delay, once this policy's preceding jobs have completed */
+        public void schedule(final Runnable job, long delay, TimeUnit unit) {
+            final long gen;
+            synchronized (this) {
+                gen = generation;
+            }
+            if (delay <= 0) {
+                enqueue(gen, job);
+                return;
+            }
+            final ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
+            Runnable fire = new Runnable() {
+                public void run() {
+                    synchronized (future) {
+                        if (future[0] != null) timers.remove(future[0]);
+                    }
+                    enqueue(gen, job);
+                }};
+            synchronized (future) {
+                future[0] = timer.schedule(fire, delay, unit);
+                if (!future[0].isDone()) timers.add(future[0]);
+            }
+        }
+
+        /**
+         * Cancels all jobs not yet started (including those scheduled for later); a job that is
+         * already running is left to complete. Jobs can still be submitted and scheduled afterwards.
+         */
+        public void cancelAll() {
+            synchronized (this) {
+                generation++;
+                queue.clear();
+            }
+            for (ScheduledFuture<?> f : timers) {
+                f.cancel(false);
+            }
+            timers.clear();
+        }
+
+        /** the number of jobs due to run, but waiting for preceding jobs (for testing) */
+        public synchronized int getQueueSize() {
+            return queue.size();
+        }
+
+        private void enqueue(final long gen, final Runnable job) {
+            synchronized (this) {
+                if (gen != generation) return; // cancelled
+                queue.add(job);
+                if (draining) return;
+                draining = true;
+            }
+            try {
+                workers.execute(drainer);
+            } catch (RuntimeException e) {
+                // e.g. RejectedExecutionException, if shut down
+                synchronized (this) {
+                    draining = false;
+                    queue.clear();
+                }
+                log.warn("Unable to run job for "+name+"; discarding its queued jobs", e);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable job;
+                synchronized (this) {
+                    job = queue.poll();
+                    if (job == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    job.run();
+                } catch (Throwable t) {
+                    log.warn("Error in job for "+name+" (continuing)", t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "SerialScheduler["+name+"]";
+        }
+    }
+}
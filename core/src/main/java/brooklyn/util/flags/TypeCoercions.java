@@ -16,6 +16,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,6 +35,7 @@ import brooklyn.util.time.Duration;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
@@ -46,6 +48,30 @@ public class TypeCoercions {
 
     private static Map<Class,Map<Class,Function>> registeredAdapters = Collections.synchronizedMap(
             new LinkedHashMap<Class,Map<Class,Function>>());
+    
+    /**
+     * The reflective coercion strategies found for a (target type, value class) pair, including where 
+     * none were found; so the methods of the types need only be scanned once.
+     * Cleared whenever an adapter is registered. Keys are weak so the cache does not keep classes (and their
+     * class loaders) loaded; values are soft, as the strategies' methods refer to the classes.
+     */
+    private static final ConcurrentMap<Class<?>,ConcurrentMap<Class<?>,ResolvedCoercion>> resolvedCoercions = 
+            newClassKeyedCache();
+    private static volatile int adaptersVersion = 0;
+    
+    /** the wrapper types' valueOf(String) methods */
+    private static final Map<Class<?>,Method> VALUE_OF_STRING_METHODS;
+    static {
+        ImmutableMap.Builder<Class<?>,Method> builder = ImmutableMap.builder();
+        for (Class<?> type : Primitives.allWrapperTypes()) {
+            try {
+                builder.put(type, type.getMethod("valueOf", String.class));
+            } catch (NoSuchMethodException e) {
+                // e.g. Character and Void; handled elsewhere
+            }
+        }
+        VALUE_OF_STRING_METHODS = builder.build();
+    }
         
     /** attempts to coerce 'value' to 'targetType', 
      * using a variety of strategies,
@@ -89,35 +115,23 @@ public class TypeCoercions {
             return (T) value.toString();
         }
 
+        ResolvedCoercion resolved = resolveCoercion(value.getClass(), targetType);
+        
         //look for value.asType where Type is castable to targetType
-        String targetTypeSimpleName = getVerySimpleName(targetType);
-        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
-            for (Method m: value.getClass().getMethods()) {
-                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
-                        targetType.isAssignableFrom(m.getReturnType()) ) {
-                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
-                        try {
-                            return (T) m.invoke(value);
-                        } catch (Exception e) {
-                            throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                        }
-                    }
-                }
+        if (resolved.asMethod != null) {
+            try {
+                return (T) resolved.asMethod.invoke(value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+resolved.asMethod.getName()+" adapting failed, "+e);
             }
         }
         
         //now look for static TargetType.fromType(Type t) where value instanceof Type  
-        for (Method m: targetType.getMethods()) {
-            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
-                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
-                    m.getParameterTypes()[0].isInstance(value)) {
-                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
-                    try {
-                        return (T) m.invoke(null, value);
-                    } catch (Exception e) {
-                        throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                    }
-                }
+        if (resolved.fromMethod != null) {
+            try {
+                return (T) resolved.fromMethod.invoke(null, value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+resolved.fromMethod.getName()+" adapting failed, "+e);
             }
         }
         
@@ -148,19 +162,95 @@ public class TypeCoercions {
         }
 
         //now look in registry - TODO use registry first?
-        Map<?,?> adaptersToTarget = registeredAdapters.get(targetType);
-        if (adaptersToTarget!=null) {
-            for (Map.Entry e: adaptersToTarget.entrySet()) {
-                if ( ((Class)e.getKey()).isInstance(value) ) {
-                    return (T) ((Function)e.getValue()).apply(value);
-                }
-            }
+        if (resolved.adapter != null) {
+            return (T) resolved.adapter.apply(value);
         }
                 
         //not found
         throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): no adapter known");
     }
 
+    /** the strategies which {@link #coerce(Object, TypeToken)} would find by reflection or in the registry */
+    private static ResolvedCoercion resolveCoercion(Class<?> valueType, Class<?> targetType) {
+        ConcurrentMap<Class<?>,ResolvedCoercion> byValueType = resolvedCoercions.get(targetType);
+        if (byValueType == null) {
+            resolvedCoercions.putIfAbsent(targetType, TypeCoercions.<ResolvedCoercion>newClassKeyedCache());
+            byValueType = resolvedCoercions.get(targetType);
+        }
+        ResolvedCoercion result = byValueType.get(valueType);
+        if (result == null) {
+            int version = adaptersVersion;
+            result = new ResolvedCoercion(findAsMethod(valueType, targetType), findFromMethod(valueType, targetType), 
+                    findAdapter(valueType, targetType));
+            byValueType.put(valueType, result);
+            // don't keep it if an adapter was registered concurrently (it may have been missed)
+            if (version != adaptersVersion) byValueType.remove(valueType);
+        }
+        return result;
+    }
+    
+    private static <V> ConcurrentMap<Class<?>,V> newClassKeyedCache() {
+        return CacheBuilder.newBuilder().weakKeys().softValues().<Class<?>,V>build().asMap();
+    }
+    
+    /** value.asType() where Type is castable to targetType */
+    private static Method findAsMethod(Class<?> valueType, Class<?> targetType) {
+        String targetTypeSimpleName = getVerySimpleName(targetType);
+        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
+            for (Method m: valueType.getMethods()) {
+                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
+                        targetType.isAssignableFrom(m.getReturnType()) ) {
+                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
+                        return m;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** static TargetType.fromType(Type t) where value instanceof Type */
+    private static Method findFromMethod(Class<?> valueType, Class<?> targetType) {
+        for (Method m: targetType.getMethods()) {
+            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
+                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
+                    m.getParameterTypes()[0].isAssignableFrom(valueType)) {
+                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static Function findAdapter(Class<?> valueType, Class<?> targetType) {
+        Map<Class,Function> adaptersToTarget = registeredAdapters.get(targetType);
+        if (adaptersToTarget!=null) {
+            synchronized (adaptersToTarget) {
+                for (Map.Entry<Class,Function> e: adaptersToTarget.entrySet()) {
+                    if (e.getKey().isAssignableFrom(valueType)) {
+                        return e.getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class ResolvedCoercion {
+        final Method asMethod;
+        final Method fromMethod;
+        final Function adapter;
+        
+        ResolvedCoercion(Method asMethod, Method fromMethod, Function adapter) {
+            this.asMethod = asMethod;
+            this.fromMethod = fromMethod;
+            this.adapter = adapter;
+        }
+    }
+
     /**
      * Sometimes need to explicitly cast primitives, rather than relying on Java casting.
      * For example, when using generics then type-erasure means it doesn't actually cast,
@@ -264,7 +354,9 @@ public class TypeCoercions {
         }
         
         try {
-            return (T) wrappedType.getMethod("valueOf", String.class).invoke(null, value);
+            Method valueOf = VALUE_OF_STRING_METHODS.get(wrappedType);
+            if (valueOf == null) valueOf = wrappedType.getMethod("valueOf", String.class);
+            return (T) valueOf.invoke(null, value);
         } catch (Exception e) {
             ClassCoercionException tothrow = new ClassCoercionException("Cannot coerce type String to "+targetType.getCanonicalName()+" ("+value+"): adapting failed");
             tothrow.initCause(e);
@@ -327,6 +419,8 @@ public class TypeCoercions {
             registeredAdapters.put(targetType, sources);
         }
         sources.put(sourceType, fn);
+        adaptersVersion++;
+        resolvedCoercions.clear();
     }
     
     static {
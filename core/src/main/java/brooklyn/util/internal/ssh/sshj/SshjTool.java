@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Throwables.getCausalChain;
 import static com.google.common.collect.Iterables.any;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +26,8 @@ import net.schmizz.sshj.connection.channel.direct.Session.Command;
 import net.schmizz.sshj.connection.channel.direct.Session.Shell;
 import net.schmizz.sshj.connection.channel.direct.SessionChannel;
 import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
 import net.schmizz.sshj.sftp.SFTPClient;
 import net.schmizz.sshj.transport.TransportException;
 import net.schmizz.sshj.xfer.InMemorySourceFile;
@@ -33,6 +37,8 @@ import org.bouncycastle.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.ConfigKey;
+import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.internal.ssh.BackoffLimitedRetryHandler;
 import brooklyn.util.internal.ssh.SshAbstractTool;
@@ -41,6 +47,7 @@ import brooklyn.util.ssh.CommonCommands;
 import brooklyn.util.stream.InputStreamSupplier;
 import brooklyn.util.stream.StreamGobbler;
 import brooklyn.util.text.Identifiers;
+import brooklyn.util.text.StringEscapes.BashStringEscapes;
 import brooklyn.util.time.Time;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -51,6 +58,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
@@ -69,9 +77,14 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     private static final Logger LOG = LoggerFactory.getLogger(SshjTool.class);
 
+    public static final ConfigKey<Boolean> PROP_STREAM_CONTENT = ConfigKeys.newConfigKey("streamContent", 
+            "Whether to stream scripts to the stdin of a single exec channel, and to stream uploads from an InputStream " +
+            "directly over sftp, rather than first copying them (saving round-trips, but such uploads cannot then be retried)", false);
+
     protected final int sshTriesTimeout;
     protected final int sshTries;
     protected final BackoffLimitedRetryHandler backoffLimitedRetryHandler;
+    protected final boolean streamContent;
 
     private class CloseFtpChannelOnCloseInputStream extends ProxyInputStream {
         private final SFTPClient sftp;
@@ -103,6 +116,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         protected int sshTries = 4;  //allow 4 tries by default, much safer
         protected int sshTriesTimeout = 2*60*1000;  //allow 2 minutesby default (so if too slow trying sshTries times, abort anyway)
         protected long sshRetryDelay = 50L;
+        protected boolean streamContent = false;
         
         @Override
         public B from(Map<String,?> props) {
@@ -112,6 +126,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
             sshRetryDelay = getOptionalVal(props, PROP_SSH_RETRY_DELAY);
             connectTimeout = getOptionalVal(props, PROP_CONNECT_TIMEOUT);
             sessionTimeout = getOptionalVal(props, PROP_SESSION_TIMEOUT);
+            streamContent = getOptionalVal(props, PROP_STREAM_CONTENT);
             return self();
         }
         public B connectTimeout(int val) {
@@ -129,6 +144,9 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         public B sshRetryDelay(long val) {
             this.sshRetryDelay = val; return self();
         }
+        public B streamContent(boolean val) {
+            this.streamContent = val; return self();
+        }
         @Override
         @SuppressWarnings("unchecked")
         public T build() {
@@ -146,6 +164,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         sshTries = builder.sshTries;
         sshTriesTimeout = builder.sshTriesTimeout;
         backoffLimitedRetryHandler = new BackoffLimitedRetryHandler(sshTries, builder.sshRetryDelay);
+        streamContent = builder.streamContent;
 
         sshClientConnection = SshjClientConnection.builder()
                 .hostAndPort(HostAndPort.fromParts(host, port))
@@ -200,6 +219,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
     
     @Override
     public int copyToServer(Map<String,?> props, InputStream contents, String pathAndFileOnRemoteServer) {
+        if (getOptionalVal(props, PROP_STREAM_CONTENT, streamContent)) {
+            acquire(new PutStreamAction(props, pathAndFileOnRemoteServer, contents));
+            return 0;
+        }
         /* sshj needs to:
          *   1) to know the length of the InputStream to copy the file to perform copy; and
          *   2) re-read the input stream on retry if the first attempt fails.
@@ -268,6 +291,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
      * 
      * So on balance, the script-based approach seems most reliable, even if there is an overhead
      * of separate message(s) for copying the file!
+     * <p>
+     * If {@link #PROP_STREAM_CONTENT} is set (and no PTY is allocated), the copy is avoided: a single exec
+     * channel runs a login bash which writes its stdin to the script file, runs it and deletes it, and the 
+     * script is streamed to that stdin.
      */
     @Override
     public int execScript(Map<String,?> props, List<String> commands, Map<String,?> env) {
@@ -283,6 +310,11 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         
         if (LOG.isTraceEnabled()) LOG.trace("Running shell command at {} as script: {}", host, scriptContents);
         
+        if (getOptionalVal(props, PROP_STREAM_CONTENT, streamContent) && !allocatePTY) {
+            // a pty would echo and interpret the streamed script
+            return execScriptViaStdin(scriptPath, scriptContents, runAsRoot, noExtraOutput, out, err);
+        }
+        
         copyToServer(ImmutableMap.of("permissions", "0700"), scriptContents.getBytes(), scriptPath);
         
         // use "-f" because some systems have "rm" aliased to "rm -i"; use "< /dev/null" to guarantee doesn't hang
@@ -298,6 +330,26 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         return result != null ? result : -1;
     }
 
+    private int execScriptViaStdin(String scriptPath, String scriptContents, Boolean runAsRoot, Boolean noExtraOutput, 
+            OutputStream out, OutputStream err) {
+        // create the script with umask 077, so that it is never readable by others (as it may contain secrets);
+        // use "-f" because some systems have "rm" aliased to "rm -i"; use "< /dev/null" to guarantee doesn't hang
+        ImmutableList.Builder<String> cmds = ImmutableList.<String>builder()
+                .add("(umask 077 && cat > "+scriptPath+") && chmod 0700 "+scriptPath+" || exit 1")
+                .add((runAsRoot ? CommonCommands.sudo(scriptPath) : scriptPath) + " < /dev/null")
+                .add("RESULT=$?");
+        if (noExtraOutput==null || !noExtraOutput)
+            cmds.add("echo Executed "+scriptPath+", result $RESULT"); 
+        cmds.add("rm -f "+scriptPath+" < /dev/null"); 
+        cmds.add("exit $RESULT");
+        
+        // run as a login shell, for the same environment as when run with a shell session
+        String command = "bash -l -c "+BashStringEscapes.wrapBash(Joiner.on("\n").join(cmds.build()));
+        
+        Integer result = acquire(new ExecWithInputAction(command, scriptContents.getBytes(), out, err));
+        return result != null ? result : -1;
+    }
+
     public int execShellDirect(Map<String,?> props, List<String> commands, Map<String,?> env) {
         OutputStream out = getOptionalVal(props, PROP_OUT_STREAM);
         OutputStream err = getOptionalVal(props, PROP_ERR_STREAM);
@@ -377,6 +429,9 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 if (i + 1 == sshTries) {
                     LOG.warn("<< {}: {}", fullMessage, e.getMessage());
                     throw propagate(e, fullMessage + "; out of retries");
+                } else if (connection instanceof PutStreamAction && ((PutStreamAction)connection).isStarted()) {
+                    LOG.warn("<< {}: {}", fullMessage, e.getMessage());
+                    throw propagate(e, fullMessage + "; cannot retry, stream already read");
                 } else if (sshTriesTimeout > 0 && stopwatch.elapsed(TimeUnit.MILLISECONDS) > sshTriesTimeout) {
                     LOG.warn("<< {}: {}", fullMessage, e.getMessage());
                     throw propagate(e, fullMessage + "; out of time");
@@ -513,6 +568,77 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         }
     };
 
+    /**
+     * Writes the stream to the remote file as it is read, so does not need to know its length up-front;
+     * but it can be read only once, so the put cannot be retried once started.
+     */
+    private class PutStreamAction implements SshAction<Void> {
+        private final String path;
+        private SFTPClient sftp;
+        private RemoteFile remoteFile;
+        private final int permissionsMask;
+        private final long lastModificationDate;
+        private final long lastAccessDate;
+        private final InputStream contents;
+        private boolean started;
+        
+        PutStreamAction(Map<String,?> props, String path, InputStream contents) {
+            String permissions = getOptionalVal(props, PROP_PERMISSIONS, "0644");
+            long lastModificationDateVal = getOptionalVal(props, PROP_LAST_MODIFICATION_DATE, 0L);
+            long lastAccessDateVal = getOptionalVal(props, PROP_LAST_ACCESS_DATE, 0L);
+            if (lastAccessDateVal <= 0 ^ lastModificationDateVal <= 0) {
+                lastAccessDateVal = Math.max(lastAccessDateVal, lastModificationDateVal);
+                lastModificationDateVal = Math.max(lastAccessDateVal, lastModificationDateVal);
+            }
+            this.permissionsMask = Integer.parseInt(permissions, 8);
+            this.lastAccessDate = lastAccessDateVal;
+            this.lastModificationDate = lastModificationDateVal;
+            this.path = checkNotNull(path, "path");
+            this.contents = checkNotNull(contents, "contents");
+        }
+
+        boolean isStarted() {
+            return started;
+        }
+        
+        @Override
+        public void clear() {
+            closeWhispering(remoteFile, this);
+            closeWhispering(sftp, this);
+            remoteFile = null;
+            sftp = null;
+        }
+
+        @Override
+        public Void create() throws Exception {
+            sftp = acquire(sftpConnection);
+            try {
+                remoteFile = sftp.getSFTPEngine().open(path, EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.TRUNC));
+                started = true;
+                // buffered so that each sftp write request (which waits for its response) carries a good chunk
+                OutputStream remoteOut = new BufferedOutputStream(remoteFile.getOutputStream(), 32*1024);
+                ByteStreams.copy(contents, remoteOut);
+                remoteOut.flush();
+                closeWhispering(remoteFile, this);
+                remoteFile = null;
+                sftp.chmod(path, permissionsMask);
+                if (lastAccessDate > 0) {
+                    sftp.setattr(path, new FileAttributes.Builder()
+                            .withAtimeMtime(lastAccessDate, lastModificationDate)
+                            .build());
+                }
+            } finally {
+                Closeables.closeQuietly(contents);
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "PutStream(path=[" + path + "])";
+        }
+    };
+
     @VisibleForTesting
     Predicate<String> causalChainHasMessageContaining(final Exception from) {
         return new Predicate<String>() {
@@ -637,6 +763,85 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         }
     }
 
+    /**
+     * Executes the command with a single exec channel, writing the given bytes to its stdin then closing it.
+     */
+    class ExecWithInputAction implements SshAction<Integer> {
+        private final String command;
+        private final byte[] input;
+        
+        private Session session;
+        private Command output;
+        private StreamGobbler outgobbler;
+        private StreamGobbler errgobbler;
+        private OutputStream out;
+        private OutputStream err;
+
+        ExecWithInputAction(String command, byte[] input, OutputStream out, OutputStream err) {
+            this.command = checkNotNull(command, "command");
+            this.input = checkNotNull(input, "input");
+            this.out = out;
+            this.err = err;
+        }
+
+        @Override
+        public void clear() throws TransportException, ConnectionException {
+            closeWhispering(session, this);
+            closeWhispering(output, this);
+            closeWhispering(outgobbler, this);
+            closeWhispering(errgobbler, this);
+            session = null;
+            output = null;
+        }
+
+        @Override
+        public Integer create() throws Exception {
+            try {
+                session = acquire(newSessionAction());
+                
+                output = session.exec(command);
+                
+                // always consume the streams (even if not wanted), so the remote side is never blocked writing
+                outgobbler = new StreamGobbler(output.getInputStream(), out, (Logger)null);
+                outgobbler.start();
+                errgobbler = new StreamGobbler(output.getErrorStream(), err, (Logger)null);
+                errgobbler.start();
+                
+                OutputStream stdin = output.getOutputStream();
+                stdin.write(input);
+                stdin.flush();
+                // workaround attempt for SSHJ deadlock - https://github.com/shikhar/sshj/issues/105
+                synchronized (stdin) {
+                    output.sendEOF();
+                }
+                closeWhispering(stdin, this);
+                
+                try {
+                    output.join(sshClientConnection.getSessionTimeout(), TimeUnit.MILLISECONDS);
+                    return output.getExitStatus();
+                    
+                } finally {
+                    // wait for all stdout/stderr to have been re-directed
+                    try {
+                        outgobbler.join();
+                        errgobbler.join();
+                    } catch (InterruptedException e) {
+                        LOG.warn("Interrupted gobbling streams from ssh: "+command, e);
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                
+            } finally {
+                clear();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ExecWithInput(command=[" + command + "])";
+        }
+    }
+
     class ShellAction implements SshAction<Integer> {
         private final List<String> commands;
         
@@ -116,16 +116,38 @@ public class BasicExecutionManager implements ExecutionManager {
     
     private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<ExecutionListener>();
     
+    private final CompletedTaskRegistry completedTasks = new CompletedTaskRegistry(this);
+    
     public BasicExecutionManager(String contextid) {
+        this(contextid, 0, 0, 0);
+    }
+    
+    /**
+     * Creates an execution manager whose tasks run in a bounded {@link WorkStealingExecutorService}
+     * if maxThreads is positive, or otherwise in an unbounded cached thread pool (the default).
+     * <p>
+     * A bounded pool protects against thousands of threads being spawned under load, but
+     * tasks which block waiting on many other tasks can then starve the pool, so size it generously.
+     * 
+     * @param maxThreads  number of worker threads, or zero for an unbounded pool
+     * @param localQueueCapacity  max tasks queued per worker (ignored for unbounded pool)
+     * @param overflowCapacity  max tasks queued when workers' queues are full, after which 
+     *        submitters are blocked (ignored for unbounded pool)
+     */
+    public BasicExecutionManager(String contextid, int maxThreads, int localQueueCapacity, int overflowCapacity) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
                 
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        if (maxThreads > 0) {
+            runner = new WorkStealingExecutorService(maxThreads, localQueueCapacity, overflowCapacity, daemonThreadFactory);
+        } else {
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+        }
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
     }
@@ -165,6 +187,7 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
+        completedTasks.onTagDeleted(tag);
         Set<Task> tasks = tasksByTag.remove(tag);
         if (tasks != null) {
             for (Task task : tasks) {
@@ -182,6 +205,12 @@ public class BasicExecutionManager implements ExecutionManager {
             }
         }
         tasksById.remove(task.getId());
+        completedTasks.onTaskDeleted(task);
+    }
+
+    /** the retention policy and bookkeeping for completed tasks */
+    public CompletedTaskRegistry getCompletedTaskRegistry() {
+        return completedTasks;
     }
 
     public boolean isShutdown() {
@@ -204,6 +233,19 @@ public class BasicExecutionManager implements ExecutionManager {
         return tasksById.size();
     }
 
+    /** number of tasks queued waiting for a thread; always zero for the default (unbounded) pool */
+    public long getExecutorQueueDepth() {
+        if (runner instanceof WorkStealingExecutorService) return ((WorkStealingExecutorService)runner).getQueueDepth();
+        if (runner instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor)runner).getQueue().size();
+        return 0;
+    }
+
+    /** number of tasks taken by one idle thread from another thread's queue; always zero for the default (unbounded) pool */
+    public long getExecutorStealCount() {
+        if (runner instanceof WorkStealingExecutorService) return ((WorkStealingExecutorService)runner).getStealCount();
+        return 0;
+    }
+
     private Set<Task> getMutableTasksWithTag(Object tag) {
         if (tag == null) {
             System.out.println("argph, null");
@@ -476,6 +518,10 @@ public class BasicExecutionManager implements ExecutionManager {
                 log.warn("Error notifying listener "+listener+" of task "+task+" done", e);
             }
         }
+        // only track tasks being kept, i.e. not already deleted by a listener
+        if (tasksById.get(task.getId()) == task) {
+            completedTasks.onTaskCompleted(task);
+        }
     }
 
     /** Returns {@link TaskPreprocessor} defined for tasks with the given tag, or null if none. */
@@ -0,0 +1,173 @@
+package brooklyn.util.task;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import brooklyn.management.Task;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Tracks the completed tasks retained by a {@link BasicExecutionManager}, so that retention limits
+ * are enforced incrementally as each task completes, rather than by periodically scanning and sorting
+ * every tag's tasks.
+ * <p>
+ * For each tag, completed tasks are held in completion (i.e. end time) order; when a tag has more than
+ * the max tasks per tag, its oldest are deleted. All completed tasks are also held in a single
+ * completion-ordered set, so expiring by age only ever looks at the oldest tasks.
+ * <p>
+ * Retention is unlimited (and nothing is tracked) until {@link #setRetention(int, long, Set)} is called.
+ */
+public class CompletedTaskRegistry {
+
+    // rough per-entry costs on a 64-bit JVM, for reporting footprint
+    private static final int ESTIMATED_BYTES_PER_TAG = 128;
+    private static final int ESTIMATED_BYTES_PER_TAG_ENTRY = 8;
+    private static final int ESTIMATED_BYTES_PER_COMPLETED_TASK = 56;
+
+    private final BasicExecutionManager executionManager;
+
+    private volatile boolean enabled = false;
+    private volatile int maxTasksPerTag = Integer.MAX_VALUE;
+    private volatile long maxTaskAgeMillis = 0;
+    private volatile Set<Object> unboundedTags = ImmutableSet.of();
+
+    // each tag's queue is guarded by synchronizing on the queue
+    private final ConcurrentMap<Object, ArrayDeque<Task<?>>> completedByTag = new ConcurrentHashMap<Object, ArrayDeque<Task<?>>>();
+    // guarded by synchronizing on the set
+    private final Set<Task<?>> completedInOrder = new LinkedHashSet<Task<?>>();
+
+    private final AtomicLong tagEntryCount = new AtomicLong();
+    private final AtomicLong deletedCount = new AtomicLong();
+
+    CompletedTaskRegistry(BasicExecutionManager executionManager) {
+        this.executionManager = executionManager;
+    }
+
+    /**
+     * @param maxTasksPerTag  max completed tasks to keep for any one tag
+     * @param maxTaskAgeMillis  time after completion at which a task is deleted, or zero to keep tasks regardless of age
+     * @param unboundedTags  tags to which maxTasksPerTag does not apply (e.g. tags common to very many tasks)
+     */
+    public void setRetention(int maxTasksPerTag, long maxTaskAgeMillis, Set<?> unboundedTags) {
+        checkArgument(maxTasksPerTag >= 0, "maxTasksPerTag must not be negative");
+        checkArgument(maxTaskAgeMillis >= 0, "maxTaskAgeMillis must not be negative");
+        this.maxTasksPerTag = maxTasksPerTag;
+        this.maxTaskAgeMillis = maxTaskAgeMillis;
+        this.unboundedTags = ImmutableSet.copyOf(unboundedTags);
+        this.enabled = true;
+    }
+
+    /** number of completed tasks currently retained */
+    public int getNumCompletedTasks() {
+        synchronized (completedInOrder) {
+            return completedInOrder.size();
+        }
+    }
+
+    /** number of completed tasks deleted for exceeding the max per tag or max age */
+    public long getNumDeletedTasks() {
+        return deletedCount.get();
+    }
+
+    /** approximate memory used by this registry's own bookkeeping (excluding the tasks themselves) */
+    public long getEstimatedMemoryBytes() {
+        return completedByTag.size() * (long)ESTIMATED_BYTES_PER_TAG
+                + tagEntryCount.get() * ESTIMATED_BYTES_PER_TAG_ENTRY
+                + getNumCompletedTasks() * (long)ESTIMATED_BYTES_PER_COMPLETED_TASK;
+    }
+
+    /** deletes tasks older than the max task age; cheap to call, as only the oldest tasks are examined */
+    public int expire() {
+        if (!enabled) return 0;
+        Set<Task<?>> toDelete = Sets.newLinkedHashSet();
+        collectExpired(System.currentTimeMillis(), toDelete);
+        delete(toDelete);
+        return toDelete.size();
+    }
+
+    void onTaskCompleted(Task<?> task) {
+        if (!enabled) return;
+        Set<Task<?>> toDelete = Sets.newLinkedHashSet();
+
+        synchronized (completedInOrder) {
+            completedInOrder.add(task);
+        }
+        int max = maxTasksPerTag;
+        Set<Object> unbounded = unboundedTags;
+        for (Object tag : task.getTags()) {
+            if (unbounded.contains(tag)) continue;
+            ArrayDeque<Task<?>> completed = completedByTag.get(tag);
+            if (completed == null) {
+                completedByTag.putIfAbsent(tag, new ArrayDeque<Task<?>>());
+                completed = completedByTag.get(tag);
+            }
+            synchronized (completed) {
+                completed.addLast(task);
+                tagEntryCount.incrementAndGet();
+                while (completed.size() > max) {
+                    toDelete.add(completed.removeFirst());
+                    tagEntryCount.decrementAndGet();
+                }
+            }
+        }
+        collectExpired(System.currentTimeMillis(), toDelete);
+
+        // delete outside of the locks, as deleting removes the task from its other tags' queues
+        delete(toDelete);
+    }
+
+    void onTaskDeleted(Task<?> task) {
+        if (!enabled) return;
+        synchronized (completedInOrder) {
+            completedInOrder.remove(task);
+        }
+        for (Object tag : task.getTags()) {
+            ArrayDeque<Task<?>> completed = completedByTag.get(tag);
+            if (completed != null) {
+                synchronized (completed) {
+                    if (completed.remove(task)) tagEntryCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    void onTagDeleted(Object tag) {
+        ArrayDeque<Task<?>> completed = completedByTag.remove(tag);
+        if (completed != null) {
+            synchronized (completed) {
+                tagEntryCount.addAndGet(-completed.size());
+                completed.clear();
+            }
+        }
+    }
+
+    private void collectExpired(long now, Collection<Task<?>> result) {
+        long maxAge = maxTaskAgeMillis;
+        if (maxAge <= 0) return;
+        synchronized (completedInOrder) {
+            for (Iterator<Task<?>> iter = completedInOrder.iterator(); iter.hasNext();) {
+                Task<?> task = iter.next();
+                if (now - task.getEndTimeUtc() <= maxAge) break; // all subsequent tasks are newer
+                iter.remove();
+                result.add(task);
+            }
+        }
+    }
+
+    private void delete(Collection<Task<?>> tasks) {
+        for (Task<?> task : tasks) {
+            executionManager.deleteTask(task);
+            deletedCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package brooklyn.util.task;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded executor, with a fixed number of worker threads each owning a local deque of work.
+ * <p>
+ * Submissions go to an idle worker where possible (otherwise round-robin), and workers with
+ * nothing of their own to do steal from the tail of other workers' deques (so a worker stuck on a
+ * long-running job does not hold up the jobs queued behind it). Idle workers park until a
+ * submission signals one of them, rather than polling. When a worker's deque is full, work spills to
+ * a shared bounded overflow queue; when that is also full, external callers block until space
+ * is available (backpressure), whereas callers that are themselves workers of this executor
+ * run the job inline (to avoid deadlocking the pool against itself).
+ * <p>
+ * Note that jobs which block waiting on other jobs submitted to the same executor can starve
+ * a bounded pool; hence {@link BasicExecutionManager} only uses this when explicitly configured.
+ * <p>
+ * (Java 6 has no ForkJoinPool, so this is a deliberately simple work-stealing scheme.)
+ */
+public class WorkStealingExecutorService extends AbstractExecutorService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkStealingExecutorService.class);
+
+    /** how often a submitter blocked on a full overflow queue checks for shutdown */
+    private static final long BLOCKED_SUBMIT_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Worker[] workers;
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+    private final BlockingQueue<Runnable> overflow;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final AtomicLong stealCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong blockedSubmissionCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown = false;
+    private volatile boolean shutdownNow = false;
+    /** jobs taken by workers as {@link #shutdownNow()} started, so not run; returned from there */
+    private final BlockingQueue<Runnable> abandoned = new LinkedBlockingQueue<Runnable>();
+
+    /**
+     * @param numThreads  number of worker threads
+     * @param localQueueCapacity  max jobs queued at each worker
+     * @param overflowCapacity  max jobs queued in the shared overflow queue, after which submitters block
+     */
+    public WorkStealingExecutorService(int numThreads, int localQueueCapacity, int overflowCapacity, ThreadFactory threadFactory) {
+        checkArgument(numThreads > 0, "numThreads must be positive");
+        checkArgument(localQueueCapacity > 0, "localQueueCapacity must be positive");
+        checkArgument(overflowCapacity > 0, "overflowCapacity must be positive");
+        checkNotNull(threadFactory, "threadFactory");
+
+        overflow = new LinkedBlockingQueue<Runnable>(overflowCapacity);
+        terminated = new CountDownLatch(numThreads);
+        workers = new Worker[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Worker(i, localQueueCapacity);
+        }
+        for (Worker worker : workers) {
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        checkNotNull(command, "command");
+        if (shutdown) throw new RejectedExecutionException("Executor "+this+" has been shut down");
+
+        // Not pushing to the submitting worker's own deque: brooklyn tasks commonly block on the
+        // tasks they submit, which would leave that work reliant on being stolen
+        Worker target = pickWorker();
+        if (target.deque.offerLast(command)) {
+            // if the target is busy, an idle worker can steal the job
+            if (!target.wake()) wakeIdleWorker();
+            return;
+        }
+
+        overflowCount.incrementAndGet();
+        if (overflow.offer(command)) {
+            wakeIdleWorker();
+            return;
+        }
+
+        if (currentWorker.get() != null) {
+            // queues full, and we are a worker so must not block; run it here
+            callerRunsCount.incrementAndGet();
+            command.run();
+            return;
+        }
+
+        blockedSubmissionCount.incrementAndGet();
+        try {
+            while (!overflow.offer(command, BLOCKED_SUBMIT_CHECK_NANOS, TimeUnit.NANOSECONDS)) {
+                if (shutdown) throw new RejectedExecutionException("Executor "+this+" has been shut down");
+            }
+            wakeIdleWorker();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting to submit to "+this, e);
+        }
+    }
+
+    private Worker pickWorker() {
+        int start = (nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length;
+        for (int i = 0; i < workers.length; i++) {
+            Worker w = workers[(start + i) % workers.length];
+            if (w.idle.get() && w.deque.isEmpty()) return w;
+        }
+        return workers[start];
+    }
+
+    /** wakes one idle worker (if any), which will find queued work by stealing it if necessary */
+    private void wakeIdleWorker() {
+        for (Worker w : workers) {
+            if (w.wake()) return;
+        }
+    }
+
+    private Runnable steal(Worker thief) {
+        int n = workers.length;
+        int start = thief.index + 1;
+        for (int i = 0; i < n-1; i++) {
+            Worker victim = workers[(start + i) % n];
+            Runnable r = victim.deque.pollLast();
+            if (r != null) {
+                stealCount.incrementAndGet();
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /** number of jobs queued, across all worker deques and the overflow queue */
+    public int getQueueDepth() {
+        int result = overflow.size();
+        for (Worker w : workers) result += w.deque.size();
+        return result;
+    }
+
+    /** number of jobs that one worker took from another worker's deque */
+    public long getStealCount() {
+        return stealCount.get();
+    }
+
+    /** number of jobs that went to the shared overflow queue because a worker's deque was full */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /** number of external submissions that had to wait for space (i.e. backpressure was applied) */
+    public long getBlockedSubmissionCount() {
+        return blockedSubmissionCount.get();
+    }
+
+    /** number of submissions from a worker that were run inline because all queues were full */
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    public int getPoolSize() {
+        return workers.length;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker w : workers) {
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        shutdownNow = true;
+        // wait for any worker part way through taking a job; it will have seen shutdownNow, so
+        // either left the job queued or handed it back via abandoned
+        for (Worker w : workers) {
+            while (w.taking) Thread.yield();
+        }
+        List<Runnable> result = new ArrayList<Runnable>();
+        for (Worker w : workers) {
+            w.deque.drainTo(result);
+        }
+        overflow.drainTo(result);
+        abandoned.drainTo(result);
+        for (Worker w : workers) {
+            w.thread.interrupt();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkStealingExecutorService[threads="+workers.length+"; queued="+getQueueDepth()+"; steals="+stealCount.get()+"]";
+    }
+
+    private class Worker implements Runnable {
+        final int index;
+        final LinkedBlockingDeque<Runnable> deque;
+        volatile Thread thread;
+        /** set while parked waiting for work; cleared by whoever wakes it, so each signal wakes a different worker */
+        final AtomicBoolean idle = new AtomicBoolean();
+        volatile boolean taking = false;
+
+        Worker(int index, int capacity) {
+            this.index = index;
+            this.deque = new LinkedBlockingDeque<Runnable>(capacity);
+        }
+
+        /** @return true if this worker was idle, and has now been woken */
+        boolean wake() {
+            if (idle.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            try {
+                while (true) {
+                    if (shutdownNow) return;
+                    // clear any interrupt left over from a previous (cancelled) job; not after taking
+                    // the next job, so that an interrupt from shutdownNow reaches that job
+                    Thread.interrupted();
+                    Runnable job = nextJob();
+                    if (job == null) {
+                        if (shutdown && getQueueDepth() == 0) return;
+                        continue;
+                    }
+                    try {
+                        job.run();
+                    } catch (Throwable t) {
+                        // FutureTask captures errors from submit; only bare execute gets here
+                        log.warn("Error in job "+job+" run by "+WorkStealingExecutorService.this, t);
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private Runnable nextJob() {
+            Runnable result = takeJob();
+            if (result != null || shutdownNow) return result;
+
+            idle.set(true);
+            // re-check after advertising as idle, so as not to miss a concurrent submission
+            result = takeJob();
+            if (result != null) {
+                // if a submitter has meanwhile woken us for its job, pass that signal on
+                if (!idle.compareAndSet(true, false)) wakeIdleWorker();
+                return result;
+            }
+            while (idle.get() && !shutdown) {
+                LockSupport.park(this);
+                // clear any stray interrupt (e.g. cancelling a job that had already completed), else 
+                // park would return immediately; an interrupt from shutdownNow also sets shutdown
+                Thread.interrupted();
+            }
+            idle.set(false);
+            return null;
+        }
+
+        /**
+         * Takes the next job, unless {@link #shutdownNow()} has been called; a job taken while that is
+         * starting is not run, but handed back to be included in its result.
+         */
+        private Runnable takeJob() {
+            taking = true;
+            try {
+                if (shutdownNow) return null;
+                Runnable result = findJob();
+                if (result != null && shutdownNow) {
+                    abandoned.add(result);
+                    return null;
+                }
+                return result;
+            } finally {
+                taking = false;
+            }
+        }
+
+        private Runnable findJob() {
+            Runnable result = deque.pollFirst();
+            if (result == null) result = overflow.poll();
+            if (result == null) result = steal(this);
+            return result;
+        }
+    }
+}
@@ -155,6 +155,61 @@ class CustomAggregatingEnricherTest {
         assertEquals cae.getAggregate(), 4.5d
     }
     
+    @Test
+    public void testMultipleProducersMinimumAndMaximum() {
+        List<TestEntity> producers = [
+                app.createAndManageChild(EntitySpecs.spec(TestEntity.class)), 
+                app.createAndManageChild(EntitySpecs.spec(TestEntity.class)),
+                app.createAndManageChild(EntitySpecs.spec(TestEntity.class))
+                ]
+        CustomAggregatingEnricher<Integer> min = CustomAggregatingEnricher.<Integer>newMinimumEnricher(
+                intSensor, new BasicAttributeSensor<Integer>(Integer.class, "min sensor"), producers:producers)
+        CustomAggregatingEnricher<Integer> max = CustomAggregatingEnricher.<Integer>newMaximumEnricher(
+                intSensor, new BasicAttributeSensor<Integer>(Integer.class, "max sensor"), producers:producers)
+        
+        producer.addEnricher(min)
+        producer.addEnricher(max)
+        assertNull min.getAggregate()
+        assertNull max.getAggregate()
+        
+        [min, max].each { it.onEvent(intSensor.newEvent(producers[0], 3)) }
+        assertEquals min.getAggregate(), 3
+        assertEquals max.getAggregate(), 3
+        
+        [min, max].each { it.onEvent(intSensor.newEvent(producers[1], 1)) }
+        [min, max].each { it.onEvent(intSensor.newEvent(producers[2], 5)) }
+        assertEquals min.getAggregate(), 1
+        assertEquals max.getAggregate(), 5
+        
+        // change p1's value from the minimum, and remove the maximum
+        [min, max].each { it.onEvent(intSensor.newEvent(producers[1], 4)) }
+        [min, max].each { it.removeProducer(producers[2]) }
+        assertEquals min.getAggregate(), 3
+        assertEquals max.getAggregate(), 4
+    }
+    
+    @Test
+    public void testPublishPeriodCoalescesPublication() {
+        TestEntity p1 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class))
+        CustomAggregatingEnricher<Integer> cae = CustomAggregatingEnricher.<Integer>newSummingEnricher(
+                intSensor, target, producers:[p1], publishPeriod:2000)
+        
+        producer.addEnricher(cae)
+        TestUtils.executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals producer.getAttribute(target), 0
+        }
+        
+        // changes soon after a publication are published together, at the end of the period
+        cae.onEvent(intSensor.newEvent(p1, 1))
+        cae.onEvent(intSensor.newEvent(p1, 2))
+        cae.onEvent(intSensor.newEvent(p1, 3))
+        assertEquals cae.getAggregate(), 3
+        assertEquals producer.getAttribute(target), 0
+        TestUtils.executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals producer.getAttribute(target), 3
+        }
+    }
+    
     @Test
     public void testAddingAndRemovingProducers() {
         TestEntity p1 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class)); 
@@ -11,11 +11,15 @@ import org.testng.annotations.BeforeMethod
 import org.testng.annotations.Test
 
 import brooklyn.entity.Application
+import brooklyn.event.AttributeSensor
 import brooklyn.event.basic.AttributeMap
+import brooklyn.event.basic.AttributePublicationPolicy
 import brooklyn.event.basic.BasicAttributeSensor
+import brooklyn.event.basic.Sensors
 import brooklyn.test.entity.TestApplicationImpl
 import brooklyn.test.entity.TestEntity
 import brooklyn.test.entity.TestEntityImpl
+import brooklyn.util.time.Duration
 
 public class AttributeMapTest {
 
@@ -111,6 +115,61 @@ public class AttributeMapTest {
         assertEquals(map.getValue(["b","c"]), "2val")
     }
         
+    @Test
+    public void testValuesAlreadyInStorageCanBeRetrieved() {
+        BasicAttributeSensor<String> sensor = [ String, "attributeMapTest.preexisting", "" ]
+        Map storage = Collections.synchronizedMap(new LinkedHashMap())
+        storage.put(["attributeMapTest", "preexisting"], "val")
+        
+        AttributeMap map2 = new AttributeMap(new TestEntityImpl(app), storage)
+        
+        assertEquals(map2.getValue(sensor), "val")
+        assertEquals(map2.asMap(), [("attributeMapTest.preexisting"):"val"])
+    }
+    
+    @Test
+    public void testRemovedValueIsNotRetrievedAndIsRemovedFromStorage() {
+        Map storage = Collections.synchronizedMap(new LinkedHashMap())
+        AttributeMap map2 = new AttributeMap(new TestEntityImpl(app), storage)
+        
+        map2.update(exampleSensor, 1)
+        map2.remove(exampleSensor)
+        
+        assertEquals(map2.getValue(exampleSensor), null)
+        assertEquals(map2.asMap(), [:])
+        assertEquals(storage, [:])
+        
+        map2.update(exampleSensor, 2)
+        assertEquals(map2.getValue(exampleSensor), 2)
+    }
+    
+    @Test
+    public void testManyValuesAndNullsRetrieved() {
+        List<BasicAttributeSensor<Integer>> sensors = []
+        for (int i = 0; i < 100; i++) {
+            BasicAttributeSensor<Integer> sensor = [ Integer, "attributeMapTest.many"+i, "" ]
+            sensors.add(sensor)
+            map.update(sensor, (i % 10 == 0) ? null : i)
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(map.getValue(sensors.get(i)), (i % 10 == 0) ? null : i)
+        }
+        assertEquals(map.asMap().size(), 100)
+        assertEquals(map.asMap().get("attributeMapTest.many0"), null)
+        assertEquals(map.asMap().get("attributeMapTest.many99"), 99)
+    }
+    
+    @Test
+    public void testAsMapKeepsInsertionOrder() {
+        List<String> names = []
+        for (int i = 0; i < 20; i++) {
+            BasicAttributeSensor<Integer> sensor = [ Integer, "attributeMapTest.ordered"+(19-i), "" ]
+            names.add(sensor.getName())
+            map.update(sensor, i)
+        }
+        assertEquals(new ArrayList(map.asMap().keySet()), names)
+    }
+    
     @Test
     public void testCanStoreSensorThenChildSensor() {
         BasicAttributeSensor<String> sensor = [ Integer, "a", "" ]
@@ -134,4 +193,51 @@ public class AttributeMapTest {
         assertEquals(map.getValue(childSensor), "childValue")
         assertEquals(map.getValue(sensor), "parentValue")
     }
+    
+    @Test
+    public void testOnChangePolicyStoresButDoesNotPublishUnchangedValues() {
+        AttributeSensor<Integer> sensor = Sensors.newSensor(Integer, "a", "", AttributePublicationPolicy.onChange())
+        
+        map.update(sensor, 1)
+        map.update(sensor, 1)
+        map.update(sensor, 2)
+        map.update(sensor, 2)
+        
+        assertEquals(map.getValue(sensor), 2)
+        assertEquals(map.getSuppressedPublicationCount(), 2)
+    }
+    
+    @Test
+    public void testDeadbandPolicyComparesWithLastPublishedValue() {
+        AttributeSensor<Double> sensor = Sensors.newSensor(Double, "a", "", AttributePublicationPolicy.deadband(1.0))
+        
+        map.update(sensor, 10.0d) // published
+        map.update(sensor, 10.5d) // suppressed
+        map.update(sensor, 10.9d) // suppressed (compared with 10.0)
+        map.update(sensor, 11.0d) // published
+        
+        assertEquals(map.getValue(sensor), 11.0d)
+        assertEquals(map.getSuppressedPublicationCount(), 2)
+    }
+    
+    @Test
+    public void testMinIntervalPolicy() {
+        AttributeSensor<Integer> sensor = Sensors.newSensor(Integer, "a", "", AttributePublicationPolicy.minInterval(Duration.ONE_HOUR))
+        
+        map.update(sensor, 1)
+        map.update(sensor, 2)
+        map.update(sensor, 3)
+        
+        assertEquals(map.getValue(sensor), 3)
+        assertEquals(map.getSuppressedPublicationCount(), 2)
+    }
+    
+    @Test
+    public void testSensorWithPolicyEqualsOriginal() {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "desc")
+        AttributeSensor<Integer> sensorWithPolicy = Sensors.withPublicationPolicy(sensor, AttributePublicationPolicy.onChange())
+        
+        assertEquals(sensorWithPolicy, sensor)
+        assertEquals(sensorWithPolicy.getPublicationPolicy(), AttributePublicationPolicy.onChange())
+    }
 }
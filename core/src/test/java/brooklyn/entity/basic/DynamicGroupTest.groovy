@@ -192,6 +192,71 @@ public class DynamicGroupTest {
     }
     
 
+    @Test
+    public void testGroupWithInstanceOfFilterDetectsNewlyManagedAndUnmanagedEntities() {
+        group.setEntityFilter(EntityPredicates.instanceOf(TestEntity.class))
+        assertEquals(ImmutableSet.copyOf(group.getMembers()), [e1, e2] as Set)
+        
+        TestEntity e3 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(ImmutableSet.copyOf(group.getMembers()), [e1, e2, e3] as Set)
+        }
+        
+        Entities.unmanage(e1)
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(ImmutableSet.copyOf(group.getMembers()), [e2, e3] as Set)
+        }
+    }
+    
+    @Test
+    public void testGroupWithAttributeFilterTracksAttributeChangesWithoutExplicitSubscription() {
+        final BasicAttributeSensor<String> MY_ATTRIBUTE = [ String, "test.myAttribute", "My test attribute" ]
+        group.setEntityFilter(EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes"))
+        assertEquals(group.getMembers(), [])
+        
+        e1.setAttribute(MY_ATTRIBUTE, "yes")
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(group.getMembers(), [e1])
+        }
+        
+        e1.setAttribute(MY_ATTRIBUTE, "no")
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(group.getMembers(), [])
+        }
+    }
+    
+    @Test
+    public void testGroupWithDescendantFilterOnlyIncludesDescendants() {
+        TestEntity e1Child = e1.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        group.setEntityFilter(EntityPredicates.isDescendantOf(e1))
+        assertEquals(group.getMembers(), [e1Child])
+        
+        TestEntity e1Grandchild = e1Child.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        e2.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(ImmutableSet.copyOf(group.getMembers()), [e1Child, e1Grandchild] as Set)
+        }
+        assertSucceedsContinually(timeout:VERY_SHORT_WAIT_MS) {
+            assertEquals(ImmutableSet.copyOf(group.getMembers()), [e1Child, e1Grandchild] as Set)
+        }
+    }
+    
+    @Test
+    public void testGroupUsesFilterSetAsConfig() {
+        TestEntity e1Child = e1.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        group.setEntityFilter( { it.getId().equals(e2.getId()) } )
+        assertEquals(group.getMembers(), [e2])
+        
+        group.setConfig(DynamicGroup.ENTITY_FILTER, EntityPredicates.isDescendantOf(e1))
+        assertEquals(group.getMembers(), [e1Child])
+        
+        // newly managed entities are checked against the new filter
+        TestEntity e1Grandchild = e1Child.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        executeUntilSucceeds(timeout:TIMEOUT_MS) {
+            assertEquals(ImmutableSet.copyOf(group.getMembers()), [e1Child, e1Grandchild] as Set)
+        }
+    }
+    
     // Motivated by strange behavior observed testing load-balancing policy, but this passed...
     //
     // Note that addMember/removeMember is now async for when member-entity is managed/unmanaged,
@@ -177,6 +177,25 @@ public class EntityConfigMapUsageTest {
         assertEquals(e3.getConfig(strKey), "aval");
     }
 
+    @Test
+    public void testConfigChangedOnAncestorSeenByExistingDescendants() throws Exception {
+        TestEntity e = app.createAndManageChild(EntitySpecs.spec(TestEntity.class)
+                .configure(strKey, "aval"));
+        TestEntity e2 = e.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        TestEntity e3 = e2.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        assertEquals(e3.getConfig(strKey), "aval");
+
+        ((EntityLocal)e).setConfig(strKey, "bval");
+        assertEquals(e3.getConfig(strKey), "bval");
+
+        ((EntityLocal)e2).setConfig(strKey, "cval");
+        ((EntityLocal)app).setConfig(intKey, 2);
+        assertEquals(e3.getConfig(strKey), "cval");
+        assertEquals(e3.getConfig(intKey), (Integer)2);
+        assertEquals(e.getConfig(strKey), "bval");
+        assertEquals(((EntityInternal)e3).getAllConfig().get(strKey), "cval");
+    }
+
     // This has been relaxed to a warning, with a message saying "may not be supported in future versions"
     @Test(enabled=false)
     public void testConfigCannotBeSetAfterApplicationIsStarted() throws Exception {
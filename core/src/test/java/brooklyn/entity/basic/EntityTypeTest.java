@@ -186,6 +186,29 @@ public class EntityTypeTest {
                 Predicates.equalTo(ImmutableList.of(new BasicSensorEvent(SENSOR_REMOVED, entity, SENSOR_ADDED))));
     }
 
+    @Test
+    public void testSensorChangesNotSeenByOtherEntitiesOfSameClass() throws Exception {
+        AbstractEntity entity2 = newAbstractEntity();
+        AbstractEntity entity3 = newAbstractEntity();
+        assertEquals(entity2.getClass(), entity3.getClass());
+        Entities.startManagement(entity2);
+        Entities.startManagement(entity3);
+        
+        entity2.getMutableEntityType().addSensor(TEST_SENSOR);
+        entity2.getMutableEntityType().removeSensor(SENSOR_ADDED);
+        assertEquals(entity2.getEntityType().getSensors(), ImmutableSet.of(TEST_SENSOR, SENSOR_REMOVED, POLICY_ADDED, POLICY_REMOVED));
+        assertEquals(entity3.getEntityType().getSensors(), ImmutableSet.of(SENSOR_ADDED, SENSOR_REMOVED, POLICY_ADDED, POLICY_REMOVED));
+        assertNull(entity3.getMutableEntityType().getSensor(TEST_SENSOR.getName()));
+        
+        // and a removed sensor of the class can be re-added
+        entity2.getMutableEntityType().addSensor(SENSOR_ADDED);
+        assertEquals(entity2.getEntityType().getSensors(), ImmutableSet.of(TEST_SENSOR, SENSOR_ADDED, SENSOR_REMOVED, POLICY_ADDED, POLICY_REMOVED));
+    }
+
+    private AbstractEntity newAbstractEntity() {
+        return new AbstractEntity(app) {};
+    }
+    
     @Test
     public void testGetSensor() throws Exception {
         Sensor<?> sensor = entity.getEntityType().getSensor("entity.sensor.added");
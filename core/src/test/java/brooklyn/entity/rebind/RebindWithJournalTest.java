@@ -0,0 +1,130 @@
+package brooklyn.entity.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.Application;
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpecs;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToJournal;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.mementos.BrooklynMementoPersister;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class RebindWithJournalTest {
+
+    private ClassLoader classLoader = getClass().getClassLoader();
+    private List<LocalManagementContext> managementContexts = Lists.newCopyOnWriteArrayList();
+    private TestApplication origApp;
+    private File mementoDir;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mementoDir = Files.createTempDir();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        for (LocalManagementContext managementContext : managementContexts) {
+            managementContext.terminate();
+        }
+        managementContexts.clear();
+        if (mementoDir != null) RebindTestUtils.deleteMementoDir(mementoDir);
+    }
+
+    @Test
+    public void testRestoresEntityHierarchy() throws Exception {
+        origApp = newApp(BrooklynMementoPersisterToJournal.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+        TestEntity origE = origApp.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        TestEntity origE2 = origE.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+
+        TestApplication newApp = rebind();
+
+        assertNotSame(newApp, origApp);
+        assertEquals(newApp.getId(), origApp.getId());
+        TestEntity newE = (TestEntity) Iterables.getOnlyElement(newApp.getChildren());
+        assertEquals(newE.getId(), origE.getId());
+        TestEntity newE2 = (TestEntity) Iterables.getOnlyElement(newE.getChildren());
+        assertEquals(newE2.getId(), origE2.getId());
+    }
+
+    @Test
+    public void testRestoresLatestAttributeValueAndOmitsRemovedEntity() throws Exception {
+        origApp = newApp(BrooklynMementoPersisterToJournal.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+        TestEntity origE = origApp.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        TestEntity origE2 = origApp.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        for (int i = 0; i < 10; i++) {
+            origE.setAttribute(TestEntity.SEQUENCE, i);
+            RebindTestUtils.waitForPersisted(origApp);
+        }
+        Entities.unmanage(origE2);
+
+        TestApplication newApp = rebind();
+
+        TestEntity newE = (TestEntity) Iterables.getOnlyElement(newApp.getChildren());
+        assertEquals(newE.getId(), origE.getId());
+        assertEquals(newE.getAttribute(TestEntity.SEQUENCE), (Integer)9);
+    }
+
+    @Test
+    public void testRestoresAfterCompaction() throws Exception {
+        // tiny threshold, so compacts after every batch of writes
+        origApp = newApp(1);
+        TestEntity origE = origApp.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        for (int i = 0; i < 10; i++) {
+            origE.setAttribute(TestEntity.SEQUENCE, i);
+            RebindTestUtils.waitForPersisted(origApp);
+        }
+
+        TestApplication newApp = rebind();
+
+        TestEntity newE = (TestEntity) Iterables.getOnlyElement(newApp.getChildren());
+        assertEquals(newE.getAttribute(TestEntity.SEQUENCE), (Integer)9);
+
+        String[] snapshots = mementoDir.list(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith("snapshot-");
+            }});
+        assertTrue(snapshots.length >= 1, "snapshots="+Arrays.toString(snapshots));
+    }
+
+    private TestApplication newApp(long compactionThresholdBytes) {
+        LocalManagementContext managementContext = newManagementContext(compactionThresholdBytes);
+        return ApplicationBuilder.newManagedApp(EntitySpecs.spec(TestApplication.class), managementContext);
+    }
+
+    private LocalManagementContext newManagementContext(long compactionThresholdBytes) {
+        LocalManagementContext result = new LocalManagementContext();
+        managementContexts.add(result);
+        ((RebindManagerImpl)result.getRebindManager()).setPeriodicPersistPeriod(1);
+        result.getRebindManager().setPersister(new BrooklynMementoPersisterToJournal(mementoDir, classLoader,
+                BrooklynMementoPersisterToJournal.DEFAULT_MAX_SEGMENT_BYTES, compactionThresholdBytes));
+        return result;
+    }
+
+    private TestApplication rebind() throws Exception {
+        RebindTestUtils.waitForPersisted(origApp);
+        // as for a restart; the journal directory must only be written by one persister at a time
+        origApp.getManagementContext().getRebindManager().stop();
+        LocalManagementContext newManagementContext = newManagementContext(BrooklynMementoPersisterToJournal.DEFAULT_COMPACTION_THRESHOLD_BYTES);
+        BrooklynMementoPersister newPersister = newManagementContext.getRebindManager().getPersister();
+        List<Application> newApps = newManagementContext.getRebindManager().rebind(newPersister.loadMemento(), classLoader);
+        return (TestApplication) newApps.get(0);
+    }
+}
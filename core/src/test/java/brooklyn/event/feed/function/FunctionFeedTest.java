@@ -27,6 +27,7 @@ import brooklyn.event.SensorEventListener;
 import brooklyn.event.basic.Sensors;
 import brooklyn.location.Location;
 import brooklyn.location.basic.LocalhostMachineProvisioningLocation;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.test.EntityTestUtils;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestEntity;
@@ -175,6 +176,65 @@ public class FunctionFeedTest {
             }});
     }
     
+    @Test
+    public void testSlowPollIsNotRunConcurrentlyAndOverrunsAreCounted() throws Exception {
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        
+        feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer,Integer>(SENSOR_INT)
+                        .period(10)
+                        .callable(new Callable<Integer>() {
+                            public Integer call() throws Exception {
+                                int now = concurrent.incrementAndGet();
+                                if (now > maxConcurrent.get()) maxConcurrent.set(now);
+                                try {
+                                    Thread.sleep(100);
+                                    return calls.incrementAndGet();
+                                } finally {
+                                    concurrent.decrementAndGet();
+                                }
+                            }}))
+                .build();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(feed.getPollMetrics().getPollCount() >= 2, "metrics="+feed.getPollMetrics().getPollCount());
+                assertTrue(feed.getPollMetrics().getOverrunCount() > 0, "overruns="+feed.getPollMetrics().getOverrunCount());
+                assertTrue(feed.getPollMetrics().getMaxPollDurationMillis() >= 100, "maxDuration="+feed.getPollMetrics().getMaxPollDurationMillis());
+            }
+        });
+        assertEquals(maxConcurrent.get(), 1);
+    }
+    
+    @Test
+    public void testStopsPollingWhenManagementContextTerminated() throws Exception {
+        final IncrementingCallable callable = new IncrementingCallable();
+        feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer,Integer>(SENSOR_INT)
+                        .period(1)
+                        .callable(callable))
+                .build();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                Integer val = entity.getAttribute(SENSOR_INT);
+                assertTrue(val != null && val > 2, "val=" + val);
+            }
+        });
+        ((ManagementContextInternal)app.getManagementContext()).terminate();
+        app = null;
+        
+        // allow any poll already submitted to complete
+        Thread.sleep(50);
+        int callsAfterTerminate = callable.next.get();
+        Thread.sleep(200);
+        assertEquals(callable.next.get(), callsAfterTerminate);
+    }
+    
     private static class IncrementingCallable implements Callable<Integer> {
         private final AtomicInteger next = new AtomicInteger(0);
         
@@ -4,9 +4,11 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.concurrent.Callable;
 
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -21,6 +23,7 @@ import brooklyn.entity.proxying.EntitySpecs;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.basic.BasicAttributeSensor;
 import brooklyn.event.basic.Sensors;
+import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.location.Location;
 import brooklyn.location.basic.LocalhostMachineProvisioningLocation;
 import brooklyn.test.Asserts;
@@ -111,6 +114,44 @@ public class HttpFeedTest {
         assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
     }
 
+    @Test
+    public void testPooledFeedPollsAndParsesHttpGetResponse() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .pooled()
+                .poll(new HttpPollConfig<Integer>(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .poll(new HttpPollConfig<String>(SENSOR_STRING)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.stringContentsFunction()))
+                .build();
+        
+        assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+        assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
+    }
+    
+    @Test
+    public void testPooledFeedSkipsPollWhenNoConnectionAvailable() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .pooled()
+                .build();
+        HttpPollConfig<Integer> config = new HttpPollConfig<Integer>(SENSOR_INT)
+                .onSuccess(HttpValueFunctions.responseCode())
+                .onException(Functions.constant(-1));
+        HttpFeed.PooledPollHandler handler = new HttpFeed.PooledPollHandler(ImmutableList.of(
+                new AttributePollHandler<HttpPollValue>(config, entity, feed)));
+
+        handler.onException(new ConnectionPoolTimeoutException("simulated"));
+        assertEquals(entity.getAttribute(SENSOR_INT), null);
+
+        handler.onException(new IOException("simulated"));
+        assertEquals(entity.getAttribute(SENSOR_INT), (Integer)(-1));
+    }
+
     @Test
     public void testUsesFailureHandlerOn4xx() throws Exception {
         server = new MockWebServer();
@@ -0,0 +1,104 @@
+package brooklyn.event.feed.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+public class SshCommandMultiplexerTest {
+
+    private static final String MARKER = "MARKER";
+
+    private static final List<Map<String,String>> NO_ENVS = ImmutableList.<Map<String,String>>of(
+            ImmutableMap.<String,String>of(), ImmutableMap.<String,String>of());
+
+    @Test
+    public void testDemultiplexesEachCommandsOutput() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer(MARKER, false);
+        String stdout = "MARKER-begin-0\nhello\n\nMARKER-end-0 0\nMARKER-begin-1\nno newline\nMARKER-end-1 123\n";
+        String stderr = "MARKER-begin-0\n\nMARKER-end-0\nMARKER-begin-1\noops\n\nMARKER-end-1\n";
+
+        List<SshPollValue> vals = multiplexer.demultiplex(new SshPollValue(null, 0, stdout, stderr), 2);
+
+        assertPollValue(vals.get(0), 0, "hello\n", "");
+        assertPollValue(vals.get(1), 123, "no newline", "oops\n");
+    }
+
+    @Test
+    public void testIncompleteOutputGivesNoResultForCommand() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer(MARKER, false);
+        String stdout = "MARKER-begin-0\nhello\n\nMARKER-end-0 0\nMARKER-begin-1\npartial";
+        String stderr = "MARKER-begin-0\n\nMARKER-end-0\nMARKER-begin-1\n";
+
+        List<SshPollValue> vals = multiplexer.demultiplex(new SshPollValue(null, 1, stdout, stderr), 2);
+
+        assertPollValue(vals.get(0), 0, "hello\n", "");
+        assertNull(vals.get(1));
+    }
+
+    @Test(groups="Integration")
+    public void testScriptOutputDemultiplexed() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer(false);
+        String script = multiplexer.toScript(
+                ImmutableList.of("echo $GREETING; echo oops >&2", "printf 'no newline'; exit 123"),
+                ImmutableList.<Map<String,String>>of(ImmutableMap.of("GREETING", "hello \"world\""), ImmutableMap.<String,String>of()));
+
+        List<SshPollValue> vals = multiplexer.demultiplex(runLocally(script), 2);
+
+        assertPollValue(vals.get(0), 0, "hello \"world\"\n", "oops\n");
+        assertPollValue(vals.get(1), 123, "no newline", "");
+    }
+
+    @Test(groups="Integration")
+    public void testCommandsAfterFailingCommandStillRun() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer(false);
+        String script = multiplexer.toScript(ImmutableList.of("exit 123", "echo hello"), NO_ENVS);
+
+        List<SshPollValue> vals = multiplexer.demultiplex(runLocally(script), 2);
+
+        assertPollValue(vals.get(0), 123, "", "");
+        assertPollValue(vals.get(1), 0, "hello\n", "");
+    }
+
+    @Test(groups="Integration")
+    public void testCompressedScriptOutputDemultiplexed() throws Exception {
+        SshCommandMultiplexer multiplexer = new SshCommandMultiplexer(true);
+        String script = multiplexer.toScript(ImmutableList.of("seq 1 10000", "echo hello"), NO_ENVS);
+
+        List<SshPollValue> vals = multiplexer.demultiplex(runLocally(script), 2);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 10000; i++) expected.append(i).append("\n");
+        assertPollValue(vals.get(0), 0, expected.toString(), "");
+        assertPollValue(vals.get(1), 0, "hello\n", "");
+    }
+
+    /** runs the script as {@link brooklyn.util.internal.ssh.SshTool#execScript} would, i.e. with "bash -e" */
+    private SshPollValue runLocally(String script) throws Exception {
+        Process process = new ProcessBuilder("bash", "-e", "-c", script).start();
+        String stdout = readFully(process.getInputStream());
+        String stderr = readFully(process.getErrorStream());
+        return new SshPollValue(null, process.waitFor(), stdout, stderr);
+    }
+
+    private String readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteStreams.copy(in, out);
+        return new String(out.toByteArray());
+    }
+
+    private void assertPollValue(SshPollValue val, int exitStatus, String stdout, String stderr) {
+        assertEquals(val.getExitStatus(), exitStatus);
+        assertEquals(val.getStdout(), stdout);
+        assertEquals(val.getStderr(), stderr);
+    }
+}
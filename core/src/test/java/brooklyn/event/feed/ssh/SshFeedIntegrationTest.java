@@ -21,6 +21,7 @@ import brooklyn.test.EntityTestUtils;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableMap;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
@@ -85,6 +86,50 @@ public class SshFeedIntegrationTest {
             }});
     }
 
+    @Test(groups="Integration")
+    public void testCommandsPolledTogetherReturnOwnResults() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .compressOutput(true)
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("echo hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<Integer>(SENSOR_INT)
+                        .command("exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .build();
+
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_STRING, "hello\n");
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+    }
+
+    @Test(groups="Integration")
+    public void testCommandsPolledTogetherOnMachineWithPtyReturnOwnResults() throws Exception {
+        SshMachineLocation ptyMachine = new SshMachineLocation(MutableMap.of("address", "localhost", SshMachineLocation.ALLOCATE_PTY.getName(), true));
+        assertTrue(ptyMachine.isAllocatePty());
+        
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(ptyMachine)
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("echo hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<Integer>(SENSOR_INT)
+                        .command("exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .build();
+
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                String val = entity.getAttribute(SENSOR_STRING);
+                assertTrue(val != null && val.contains("hello"), "val="+val);
+            }});
+    }
+
     @Test(groups="Integration")
     public void testReturnsSshStderr() throws Exception {
         final String cmd = "thiscommanddoesnotexist";
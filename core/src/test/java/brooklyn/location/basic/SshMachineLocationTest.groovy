@@ -138,6 +138,13 @@ public class SshMachineLocationTest {
         assertFalse unreachableHost.isSshable()
     }
     
+    @Test
+    public void testIsAllocatePty() throws Exception {
+        assertFalse host.isAllocatePty()
+        assertTrue new SshMachineLocation(address: InetAddress.getLocalHost(), allocatePTY: true).isAllocatePty()
+        assertTrue new SshMachineLocation(MutableMap.of("address", InetAddress.getLocalHost(), "brooklyn.ssh.config.allocatePTY", true)).isAllocatePty()
+    }
+    
     @Test
     public void obtainSpecificPortGivesOutPortOnlyOnce() {
         int port = 2345
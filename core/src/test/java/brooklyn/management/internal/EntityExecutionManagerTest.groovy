@@ -150,11 +150,7 @@ class EntityExecutionManagerTest {
             tasks.add(task);
         }
         
-        // Should initially have all tasks
-        Set<Task<?>> storedTasks = app.getManagementContext().getExecutionManager().getTasksWithAllTags([entity, ManagementContextInternal.EFFECTOR_TAG]);
-        assertEquals(storedTasks, tasks as Set, "storedTasks="+storedTasks+"; expected="+tasks);
-        
-        // Then oldest should be GC'ed to leave only maxNumTasks
+        // Oldest should be GC'ed (as soon as the newest completes) to leave only maxNumTasks
         List recentTasks = tasks.subList(1, maxNumTasks+1);
         TestUtils.executeUntilSucceeds(timeout:TIMEOUT_MS) {
             Set<Task<?>> storedTasks2 = app.getManagementContext().getExecutionManager().getTasksWithAllTags([entity, ManagementContextInternal.EFFECTOR_TAG]);
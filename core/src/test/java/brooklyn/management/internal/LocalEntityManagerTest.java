@@ -0,0 +1,85 @@
+package brooklyn.management.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpecs;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class LocalEntityManagerTest {
+
+    private TestApplication app;
+    private LocalEntityManager entityManager;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        app = ApplicationBuilder.newManagedApp(TestApplication.class);
+        entityManager = (LocalEntityManager) app.getManagementContext().getEntityManager();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (app != null) Entities.destroyAll(app.getManagementContext());
+    }
+
+    @Test
+    public void testGetEntitiesInManagementOrderAndSnapshotUnaffectedByLaterChanges() throws Exception {
+        TestEntity e1 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        Collection<Entity> before = entityManager.getEntities();
+        TestEntity e2 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+
+        assertEquals(ImmutableList.copyOf(before), ImmutableList.of(app, e1));
+        assertEquals(ImmutableList.copyOf(entityManager.getEntities()), ImmutableList.of(app, e1, e2));
+        assertSame(entityManager.getEntity(e2.getId()), e2);
+
+        Entities.unmanage(e1);
+        assertEquals(ImmutableList.copyOf(entityManager.getEntities()), ImmutableList.of(app, e2));
+        assertNull(entityManager.getEntity(e1.getId()));
+        assertFalse(entityManager.isManaged(e1));
+        assertTrue(entityManager.isManaged(e2));
+    }
+
+    @Test
+    public void testIndexesByApplicationAndType() throws Exception {
+        TestEntity e1 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        TestApplication app2 = ApplicationBuilder.newManagedApp(TestApplication.class, app.getManagementContext());
+        TestEntity e2 = app2.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesInApplication(app.getId())), ImmutableSet.of(app, e1));
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesInApplication(app2.getId())), ImmutableSet.of(app2, e2));
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesOfTypeName(e1.getEntityType().getName())), ImmutableSet.of(e1, e2));
+
+        Entities.unmanage(e1);
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesInApplication(app.getId())), ImmutableSet.of(app));
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesOfTypeName(e1.getEntityType().getName())), ImmutableSet.of(e2));
+    }
+
+    @Test
+    public void testIndexByDisplayNameFollowsRename() throws Exception {
+        TestEntity e1 = app.createAndManageChild(EntitySpecs.spec(TestEntity.class).displayName("before"));
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesWithDisplayName("before")), ImmutableSet.of(e1));
+
+        e1.setDisplayName("after");
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesWithDisplayName("before")), ImmutableSet.of());
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesWithDisplayName("after")), ImmutableSet.of(e1));
+
+        Entities.unmanage(e1);
+        assertEquals(ImmutableSet.copyOf(entityManager.getEntitiesWithDisplayName("after")), ImmutableSet.of());
+    }
+}
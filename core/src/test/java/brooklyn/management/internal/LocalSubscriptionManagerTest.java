@@ -1,8 +1,10 @@
 package brooklyn.management.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
@@ -12,6 +14,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.config.BrooklynProperties;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.ApplicationBuilder;
 import brooklyn.entity.basic.BasicGroup;
@@ -21,6 +24,7 @@ import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
 import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
+import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestEntity;
 
@@ -123,6 +127,60 @@ public class LocalSubscriptionManagerTest {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testSubscriptionsForEntitySensorIncludeWildcardsAndExcludeUnsubscribed() throws Exception {
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        SensorEventListener<Object> noopListener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+            }};
+        int numBefore = subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).size();
+        
+        SubscriptionHandle exact = app.subscribe(entity, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle anyProducer = app.subscribe(null, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle anySensor = app.subscribe(entity, null, noopListener);
+        SubscriptionHandle otherSensor = app.subscribe(entity, TestEntity.NAME, noopListener);
+        
+        assertTrue(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).containsAll(
+                Arrays.asList(exact, anyProducer, anySensor)));
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).size(), numBefore+3);
+        assertTrue(subscriptionManager.getSubscriptionsForEntitySensor(app, TestEntity.SEQUENCE).contains(anyProducer));
+        assertTrue(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.NAME).contains(otherSensor));
+        
+        app.unsubscribe(entity, anySensor);
+        app.unsubscribe(null, anyProducer);
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).size(), numBefore+1);
+        assertTrue(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).contains(exact));
+    }
+    
+    @Test
+    public void testBatchDeliveryPreservesOrder() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(ManagementContextInternal.SUBSCRIPTION_BATCH_DELIVERY, true);
+        LocalManagementContext mgmt = new LocalManagementContext(props);
+        try {
+            TestApplication app2 = ApplicationBuilder.newManagedApp(TestApplication.class, mgmt);
+            TestEntity entity2 = app2.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+            
+            final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+            app2.subscribe(entity2, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                @Override public void onEvent(SensorEvent<Integer> event) {
+                    values.add(event.getValue());
+                }});
+            for (int i = 0; i < 1000; i++) {
+                entity2.setAttribute(TestEntity.SEQUENCE, i);
+            }
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(values.size(), 1000);
+                }});
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(values.get(i), (Integer)i);
+            }
+        } finally {
+            Entities.destroyAll(mgmt);
+        }
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
@@ -0,0 +1,168 @@
+package brooklyn.management.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Attributes;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpecs;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.event.SensorEventListener;
+import brooklyn.event.basic.BasicSensorEvent;
+import brooklyn.event.basic.Sensors;
+import brooklyn.test.Asserts;
+import brooklyn.test.EntityTestUtils;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.SingleThreadedScheduler;
+
+import com.google.common.collect.ImmutableList;
+
+public class SubscriberMailboxTest {
+
+    private static final long TIMEOUT_MS = 10*1000;
+    private static final String TAG = "mytag";
+
+    private static final AttributeSensor<Integer> SEQUENCE = Sensors.newIntegerSensor("test.sequence");
+    private static final AttributeSensor<Integer> OTHER = Sensors.newIntegerSensor("test.other");
+
+    private BasicExecutionManager em;
+    private CountDownLatch started;
+    private CountDownLatch blocker;
+    private List<Object> delivered;
+    private Subscription<Object> subscription;
+    private TestApplication app;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        em = new BasicExecutionManager("mycontext");
+        em.setTaskSchedulerForTag(TAG, SingleThreadedScheduler.class);
+        started = new CountDownLatch(1);
+        blocker = new CountDownLatch(1);
+        delivered = new CopyOnWriteArrayList<Object>();
+
+        // blocks on first delivery, so that subsequent events queue up in the mailbox
+        subscription = new Subscription<Object>(null, null, new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+                delivered.add(event.getValue());
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }});
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (blocker != null) blocker.countDown();
+        if (em != null) em.shutdownNow();
+        if (app != null) Entities.destroyAll(app.getManagementContext());
+        app = null;
+    }
+
+    private static SensorEvent<Integer> event(AttributeSensor<Integer> sensor, int val) {
+        return new BasicSensorEvent<Integer>(sensor, null, val);
+    }
+
+    private void assertDeliveredEventually(final List<?> expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(delivered, expected);
+            }});
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws Exception {
+        SubscriberMailbox mailbox = new SubscriberMailbox(em, TAG, null, 2, SubscriberMailbox.OverflowPolicy.DROP_OLDEST);
+        mailbox.add(subscription, event(SEQUENCE, 1));
+        assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        mailbox.add(subscription, event(SEQUENCE, 2));
+        mailbox.add(subscription, event(SEQUENCE, 3));
+        mailbox.add(subscription, event(SEQUENCE, 4));
+        assertEquals(mailbox.getDepth(), 2);
+        assertEquals(mailbox.getDroppedCount(), 1);
+
+        blocker.countDown();
+        assertDeliveredEventually(ImmutableList.of(1, 3, 4));
+    }
+
+    @Test
+    public void testPublishesMetricsAsSensorsOnSubscriber() throws Exception {
+        app = ApplicationBuilder.newManagedApp(TestApplication.class);
+        final TestEntity entity = app.createAndManageChild(EntitySpecs.spec(TestEntity.class));
+        
+        SubscriberMailbox mailbox = new SubscriberMailbox(em, TAG, entity, 2, SubscriberMailbox.OverflowPolicy.DROP_OLDEST);
+        mailbox.add(subscription, event(SEQUENCE, 1));
+        assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        mailbox.add(subscription, event(SEQUENCE, 2));
+        mailbox.add(subscription, event(SEQUENCE, 3));
+        mailbox.add(subscription, event(SEQUENCE, 4));
+        Thread.sleep(100);
+        blocker.countDown();
+        assertDeliveredEventually(ImmutableList.of(1, 3, 4));
+
+        EntityTestUtils.assertAttributeEqualsEventually(entity, Attributes.SUBSCRIPTION_MAILBOX_DEPTH, 0);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, Attributes.SUBSCRIPTION_MAILBOX_DROPPED, 1L);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Long maxLatency = entity.getAttribute(Attributes.SUBSCRIPTION_MAILBOX_MAX_LATENCY);
+                assertTrue(maxLatency != null && maxLatency >= 100, "maxLatency="+maxLatency);
+            }});
+    }
+
+    @Test
+    public void testConflatesToLatestValuePerSensor() throws Exception {
+        SubscriberMailbox mailbox = new SubscriberMailbox(em, TAG, null, 10, SubscriberMailbox.OverflowPolicy.CONFLATE);
+        mailbox.add(subscription, event(SEQUENCE, 1));
+        assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        mailbox.add(subscription, event(SEQUENCE, 2));
+        mailbox.add(subscription, event(OTHER, 100));
+        mailbox.add(subscription, event(SEQUENCE, 3));
+        assertEquals(mailbox.getDepth(), 2);
+        assertEquals(mailbox.getConflatedCount(), 1);
+        assertEquals(mailbox.getDroppedCount(), 0);
+
+        blocker.countDown();
+        assertDeliveredEventually(ImmutableList.of(1, 3, 100));
+    }
+
+    @Test
+    public void testBlocksPublisherWhenFull() throws Exception {
+        final SubscriberMailbox mailbox = new SubscriberMailbox(em, TAG, null, 1, SubscriberMailbox.OverflowPolicy.BLOCK);
+        mailbox.add(subscription, event(SEQUENCE, 1));
+        assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        mailbox.add(subscription, event(SEQUENCE, 2));
+
+        final CountDownLatch published = new CountDownLatch(1);
+        Thread publisher = new Thread(new Runnable() {
+            @Override public void run() {
+                mailbox.add(subscription, event(SEQUENCE, 3));
+                published.countDown();
+            }});
+        publisher.start();
+        assertFalse(published.await(100, TimeUnit.MILLISECONDS));
+
+        blocker.countDown();
+        assertTrue(published.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertDeliveredEventually(ImmutableList.of(1, 2, 3));
+        assertEquals(mailbox.getDroppedCount(), 0);
+    }
+}
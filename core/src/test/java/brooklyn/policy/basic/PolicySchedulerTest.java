@@ -0,0 +1,173 @@
+package brooklyn.policy.basic;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.policy.basic.PolicyScheduler.SerialScheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PolicySchedulerTest {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    private PolicyScheduler policyScheduler;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        policyScheduler = new PolicyScheduler(2);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (policyScheduler != null) policyScheduler.shutdown();
+    }
+
+    @Test
+    public void testJobsOfOneSchedulerRunSeriallyInOrder() throws Exception {
+        SerialScheduler scheduler = policyScheduler.newSerialScheduler("test");
+        final List<Integer> runs = Lists.newCopyOnWriteArrayList();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(10);
+
+        for (int i = 0; i < 10; i++) {
+            final int val = i;
+            scheduler.submit(new Runnable() {
+                public void run() {
+                    if (concurrent.incrementAndGet() > 1) overlapped.set(true);
+                    try {
+                        Thread.sleep(5);
+                        runs.add(val);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        concurrent.decrementAndGet();
+                        done.countDown();
+                    }
+                }});
+        }
+
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(overlapped.get());
+        assertEquals(runs, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    @Test
+    public void testScheduledJobRunsAfterDelay() throws Exception {
+        SerialScheduler scheduler = policyScheduler.newSerialScheduler("test");
+        final CountDownLatch done = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                done.countDown();
+            }}, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test
+    public void testCancelAllCancelsScheduledJobsButAllowsLaterJobs() throws Exception {
+        SerialScheduler scheduler = policyScheduler.newSerialScheduler("test");
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                cancelledRuns.incrementAndGet();
+            }}, 50, TimeUnit.MILLISECONDS);
+        scheduler.cancelAll();
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                done.countDown();
+            }}, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(cancelledRuns.get(), 0);
+    }
+
+    @Test
+    public void testFailingJobDoesNotPreventSubsequentJobs() throws Exception {
+        SerialScheduler scheduler = policyScheduler.newSerialScheduler("test");
+        final CountDownLatch done = new CountDownLatch(1);
+
+        scheduler.submit(new Runnable() {
+            public void run() {
+                throw new RuntimeException("simulated failure");
+            }});
+        scheduler.submit(new Runnable() {
+            public void run() {
+                done.countDown();
+            }});
+
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBlockedSchedulerDoesNotDelayOthersWhileThreadsFree() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+
+        // fewer blocking jobs than threads
+        policyScheduler.newSerialScheduler("blocked").submit(newAwaitingJob(release));
+        for (int i = 0; i < 3; i++) {
+            policyScheduler.newSerialScheduler("other-"+i).submit(new Runnable() {
+                public void run() {
+                    done.countDown();
+                }});
+        }
+
+        try {
+            assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testJobsWaitForThreadWhenAllBlocked() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // more blocking jobs than threads; the pool does not grow
+        for (int i = 0; i < 3; i++) {
+            policyScheduler.newSerialScheduler("blocked-"+i).submit(newAwaitingJob(release));
+        }
+        policyScheduler.newSerialScheduler("other").submit(new Runnable() {
+            public void run() {
+                done.countDown();
+            }});
+
+        try {
+            assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+        }
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private Runnable newAwaitingJob(final CountDownLatch release) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }};
+    }
+}
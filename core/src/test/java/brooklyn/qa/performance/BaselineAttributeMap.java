@@ -0,0 +1,53 @@
+package brooklyn.qa.performance;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Map;
+
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.basic.AttributeMap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The get and update paths of {@link AttributeMap} before it used interned attribute slots, i.e. with
+ * values looked up in the storage map by the sensor's name parts; for comparison in {@link EntityPerformanceTest}.
+ */
+class BaselineAttributeMap {
+
+    private final static Object NULL = new Object();
+
+    private final Map<Collection<String>, Object> values;
+
+    BaselineAttributeMap(Map<Collection<String>, Object> storage) {
+        this.values = checkNotNull(storage, "storage map must not be null");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T update(Collection<String> path, T newValue) {
+        checkPath(path);
+        Object oldValue = values.put(path, (newValue == null) ? NULL : newValue);
+        return (oldValue == NULL) ? null : (T) oldValue;
+    }
+
+    public <T> T updateWithoutPublishing(AttributeSensor<T> attribute, T newValue) {
+        return update(attribute.getNameParts(), newValue);
+    }
+
+    public Object getValue(Collection<String> path) {
+        checkPath(path);
+        Object result = values.get(path);
+        return (result == NULL) ? null : result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(AttributeSensor<T> sensor) {
+        return (T) getValue(sensor.getNameParts());
+    }
+
+    private void checkPath(Collection<String> path) {
+        Preconditions.checkNotNull(path, "path can't be null");
+        Preconditions.checkArgument(!path.isEmpty(), "path can't be empty");
+    }
+}
@@ -2,7 +2,9 @@ package brooklyn.qa.performance;
 
 import static org.testng.Assert.assertTrue;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -10,15 +12,20 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.proxying.EntitySpecs;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.event.basic.AttributeMap;
 import brooklyn.management.Task;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestEntity;
+import brooklyn.test.entity.TestEntityImpl;
 import brooklyn.util.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.text.Identifiers;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -98,6 +105,116 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
             }});
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttribute() {
+        int numIterations = numIterations()*100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        final AtomicInteger total = new AtomicInteger();
+        
+        measureAndAssert("getAttribute", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                total.addAndGet(entity.getAttribute(TestEntity.SEQUENCE));
+            }});
+        assertTrue(total.get() >= numIterations, "total="+total);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testAttributeMapGetValue() {
+        final AttributeMap attributes = new AttributeMap((AbstractEntity) newUnproxiedEntity(), newStorageMap("attributeMap"));
+        attributes.updateWithoutPublishing(TestEntity.SEQUENCE, 1);
+        final AtomicInteger total = new AtomicInteger();
+        
+        measureAndAssert("attributeMapGetValue", numIterations()*100, 100000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                total.addAndGet(attributes.getValue(TestEntity.SEQUENCE));
+            }});
+    }
+
+    /** As {@link #testAttributeMapGetValue()}, but with attribute values keyed by name parts, as before attribute slots. */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testBaselineAttributeMapGetValue() {
+        final BaselineAttributeMap attributes = new BaselineAttributeMap(newStorageMap("baselineAttributeMap"));
+        attributes.updateWithoutPublishing(TestEntity.SEQUENCE, 1);
+        final AtomicInteger total = new AtomicInteger();
+        
+        measureAndAssert("baselineAttributeMapGetValue", numIterations()*100, 100000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                total.addAndGet(attributes.getValue(TestEntity.SEQUENCE));
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testAttributeMapUpdate() {
+        final AttributeMap attributes = new AttributeMap((AbstractEntity) newUnproxiedEntity(), newStorageMap("attributeMap"));
+        final AtomicInteger i = new AtomicInteger();
+        
+        measureAndAssert("attributeMapUpdate", numIterations()*100, 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                attributes.updateWithoutPublishing(TestEntity.SEQUENCE, i.getAndIncrement());
+            }});
+    }
+
+    /** As {@link #testAttributeMapUpdate()}, but with attribute values keyed by name parts, as before attribute slots. */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testBaselineAttributeMapUpdate() {
+        final BaselineAttributeMap attributes = new BaselineAttributeMap(newStorageMap("baselineAttributeMap"));
+        final AtomicInteger i = new AtomicInteger();
+        
+        measureAndAssert("baselineAttributeMapUpdate", numIterations()*100, 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                attributes.updateWithoutPublishing(TestEntity.SEQUENCE, i.getAndIncrement());
+            }});
+    }
+
+    /** A map from the management context's storage, as used by entities for their attributes. */
+    private Map<Collection<String>, Object> newStorageMap(String prefix) {
+        return ((ManagementContextInternal)app.getManagementContext()).getStorage().<Collection<String>, Object>getMap(prefix+"-"+Identifiers.makeRandomId(8));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttributeWithoutProxy() {
+        int numIterations = numIterations()*100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        final TestEntity direct = newUnproxiedEntity();
+        direct.setAttribute(TestEntity.SEQUENCE, 1);
+        final AtomicInteger total = new AtomicInteger();
+        
+        measureAndAssert("getAttributeWithoutProxy", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                total.addAndGet(direct.getAttribute(TestEntity.SEQUENCE));
+            }});
+        assertTrue(total.get() >= numIterations, "total="+total);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetConfig() {
+        runGetConfig("getConfig", entity);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetConfigWithoutProxy() {
+        runGetConfig("getConfigWithoutProxy", newUnproxiedEntity());
+    }
+
+    private void runGetConfig(String prefix, final TestEntity target) {
+        int numIterations = numIterations()*100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger count = new AtomicInteger();
+        
+        measureAndAssert(prefix, numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                if (target.getConfig(TestEntity.CONF_NAME) != null) count.incrementAndGet();
+            }});
+    }
+
+    /** For comparison with calls through the entity's proxy. */
+    private TestEntity newUnproxiedEntity() {
+        TestEntity result = new TestEntityImpl(app);
+        Entities.manage(result);
+        return result;
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testInvokeEffector() {
         int numIterations = numIterations();
@@ -0,0 +1,67 @@
+package brooklyn.qa.performance;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Lifecycle;
+import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Measures the common coercions done when getting config and setting flags.
+ */
+public class TypeCoercionsPerformanceTest extends AbstractPerformanceTest {
+
+    protected int numIterations() {
+        return 100000;
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToPrimitive() {
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerceStringToInteger", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("123", Integer.class);
+            }});
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToEnum() {
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerceStringToEnum", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("RUNNING", Lifecycle.class);
+            }});
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceToDuration() {
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerceStringToDuration", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("5s", Duration.class);
+            }});
+        measureAndAssert("coerceLongToDuration", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce(TimeUnit.SECONDS.toMillis(5), Duration.class);
+            }});
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceMapToMap() {
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        final Map<String, String> map = ImmutableMap.of("a", "b");
+        
+        measureAndAssert("coerceMapToMap", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce(map, Map.class);
+            }});
+    }
+}
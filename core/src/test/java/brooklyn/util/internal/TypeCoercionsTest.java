@@ -12,6 +12,7 @@ import org.testng.annotations.Test;
 import brooklyn.util.flags.ClassCoercionException;
 import brooklyn.util.flags.TypeCoercions;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
@@ -117,6 +118,40 @@ public class TypeCoercionsTest {
         TypeCoercions.coerce(new Object(), TypeToken.of(Integer.class));
     }
 
+    @Test
+    public void testRepeatedCoercionUsesSameStrategy() {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(TypeCoercions.coerce(new WithAs(""+i), Integer.class), (Integer)i);
+            Assert.assertEquals(TypeCoercions.coerce(""+i, WithFrom.class).value, i);
+            try {
+                TypeCoercions.coerce(new Object(), TypeToken.of(Integer.class));
+                Assert.fail();
+            } catch (ClassCoercionException e) {
+                // success
+            }
+        }
+    }
+
+    @Test
+    public void testAdapterRegisteredAfterFailedCoercionIsUsed() {
+        try {
+            TypeCoercions.coerce(new WithNeither(1), WithFrom.class);
+            Assert.fail();
+        } catch (ClassCoercionException e) {
+            // success
+        }
+        TypeCoercions.registerAdapter(WithNeither.class, WithFrom.class, new Function<WithNeither,WithFrom>() {
+            @Override public WithFrom apply(WithNeither input) {
+                return WithFrom.fromString(""+input.value);
+            }});
+        Assert.assertEquals(TypeCoercions.coerce(new WithNeither(2), WithFrom.class).value, 2);
+    }
+
+    public static class WithNeither {
+        final int value;
+        public WithNeither(int value) { this.value = value; }
+    }
+
     public static class WithAs {
         String value;
         public WithAs(Object x) { value = ""+x; }
@@ -1,26 +1,62 @@
 package brooklyn.util.internal.ssh.sshj;
 
+import static org.testng.Assert.assertEquals;
+
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import brooklyn.util.collections.MutableMap;
 import brooklyn.util.internal.ssh.SshTool;
 import brooklyn.util.internal.ssh.SshToolPerformanceTest;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
 /**
  * Test the performance of different variants of invoking the sshj tool.
- * 
+ *
  * Intended for human-invocation and inspection, to see which parts are most expensive.
  */
 public class SshjToolPerformanceTest extends SshToolPerformanceTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SshjToolPerformanceTest.class);
+
     @Override
     protected SshTool newSshTool(Map<String,?> flags) {
         return new SshjTool(flags);
     }
-    
-    // Need to have at least one test method here (rather than just inherited) for eclipse to recognize it
-    @Test(enabled = false)
-    public void testDummy() throws Exception {
+
+    @Test(groups = {"Integration"})
+    public void testScriptsOnPersistentConnection() throws Exception {
+        runScriptsOnPersistentConnection(false, "copied-scripts", 50);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testStreamedScriptsOnPersistentConnection() throws Exception {
+        runScriptsOnPersistentConnection(true, "streamed-scripts", 50);
+    }
+
+    private void runScriptsOnPersistentConnection(boolean streamContent, String context, int iterations) throws Exception {
+        SshTool tool = newSshTool(MutableMap.of("host", "localhost", SshjTool.PROP_STREAM_CONTENT.getName(), streamContent));
+        tool.connect();
+        try {
+            // warm up, e.g. the sftp subsystem and remote disk cache
+            tool.execScript(MutableMap.<String,Object>of(), ImmutableList.of("true"));
+
+            Stopwatch stopwatch = new Stopwatch().start();
+            for (int i = 0; i < iterations; i++) {
+                int result = tool.execScript(MutableMap.<String,Object>of(), ImmutableList.of("echo "+i, "true"));
+                assertEquals(result, 0);
+            }
+            long elapsedTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            LOG.info("Executing {}; completed {}; took {}ms; scripts/sec {}", new Object[] {context, iterations, elapsedTime,
+                    (elapsedTime > 0) ? (iterations * 1000d / elapsedTime) : -1});
+        } finally {
+            tool.disconnect();
+        }
     }
 }
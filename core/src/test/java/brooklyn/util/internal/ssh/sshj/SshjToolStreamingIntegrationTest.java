@@ -0,0 +1,28 @@
+package brooklyn.util.internal.ssh.sshj;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.internal.ssh.SshTool;
+
+/**
+ * Runs the {@link SshjToolIntegrationTest} tests with {@link SshjTool#PROP_STREAM_CONTENT} enabled,
+ * i.e. with scripts streamed to a single exec channel and input streams streamed over sftp.
+ */
+public class SshjToolStreamingIntegrationTest extends SshjToolIntegrationTest {
+
+    @Override
+    protected SshTool newSshTool(Map<String,?> flags) {
+        return super.newSshTool(MutableMap.<String,Object>builder()
+                .putAll(flags)
+                .put(SshjTool.PROP_STREAM_CONTENT.getName(), true)
+                .build());
+    }
+
+    // Need to have at least one test method here (rather than just inherited) for eclipse to recognize it
+    @Test(enabled = false)
+    public void testDummy() throws Exception {
+    }
+}
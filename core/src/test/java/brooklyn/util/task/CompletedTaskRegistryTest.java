@@ -0,0 +1,97 @@
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.management.Task;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class CompletedTaskRegistryTest {
+
+    private BasicExecutionManager em;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        em = new BasicExecutionManager("mycontext");
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (em != null) em.shutdownNow();
+    }
+
+    @Test
+    public void testKeepsAllCompletedTasksWhenRetentionNotSet() throws Exception {
+        List<Task<?>> tasks = runTasks(5, "a");
+
+        assertEquals(em.getTasksWithTag("a"), ImmutableSet.copyOf(tasks));
+        assertEquals(em.getCompletedTaskRegistry().getNumCompletedTasks(), 0);
+    }
+
+    @Test
+    public void testDeletesOldestOnCompletionWhenMaxPerTagExceeded() throws Exception {
+        em.getCompletedTaskRegistry().setRetention(2, 0, ImmutableSet.of());
+        List<Task<?>> tasks = runTasks(5, "a");
+
+        assertEquals(em.getTasksWithTag("a"), ImmutableSet.copyOf(tasks.subList(3, 5)));
+        assertNull(em.getTask(tasks.get(0).getId()));
+        assertEquals(em.getCompletedTaskRegistry().getNumCompletedTasks(), 2);
+        assertEquals(em.getCompletedTaskRegistry().getNumDeletedTasks(), 3);
+        assertTrue(em.getCompletedTaskRegistry().getEstimatedMemoryBytes() > 0);
+    }
+
+    @Test
+    public void testMaxPerTagNotAppliedToUnboundedTags() throws Exception {
+        em.getCompletedTaskRegistry().setRetention(2, 0, ImmutableSet.of("shared"));
+        List<Task<?>> tasksA = runTasks(2, "a", "shared");
+        List<Task<?>> tasksB = runTasks(2, "b", "shared");
+
+        assertEquals(em.getTasksWithTag("shared"), ImmutableSet.copyOf(Iterables.concat(tasksA, tasksB)));
+    }
+
+    @Test
+    public void testExpiresTasksOlderThanMaxAge() throws Exception {
+        em.getCompletedTaskRegistry().setRetention(100, 10, ImmutableSet.of());
+        List<Task<?>> oldTasks = runTasks(3, "a");
+        Thread.sleep(50);
+        assertEquals(em.getCompletedTaskRegistry().expire(), 3);
+
+        List<Task<?>> newTasks = runTasks(1, "a");
+        assertEquals(em.getTasksWithTag("a"), ImmutableSet.copyOf(newTasks));
+        assertNull(em.getTask(oldTasks.get(0).getId()));
+    }
+
+    @Test
+    public void testDeletedTagNoLongerTracked() throws Exception {
+        em.getCompletedTaskRegistry().setRetention(2, 0, ImmutableSet.of());
+        runTasks(2, "a");
+        em.deleteTag("a");
+
+        assertEquals(em.getCompletedTaskRegistry().getNumCompletedTasks(), 0);
+        assertEquals(em.getTasksWithTag("a"), ImmutableSet.of());
+    }
+
+    private List<Task<?>> runTasks(int num, Object... tags) throws Exception {
+        List<Task<?>> result = Lists.newArrayList();
+        for (int i = 0; i < num; i++) {
+            Task<?> task = em.submit(MutableMap.of("tags", ImmutableList.copyOf(tags)), new Runnable() {
+                @Override public void run() {
+                }});
+            task.get();
+            result.add(task);
+        }
+        return result;
+    }
+}
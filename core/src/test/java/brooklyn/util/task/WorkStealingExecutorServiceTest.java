@@ -0,0 +1,178 @@
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.management.Task;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+public class WorkStealingExecutorServiceTest {
+
+    private static final long TIMEOUT_MS = 10*1000;
+
+    private WorkStealingExecutorService executor;
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        if (em != null) em.shutdownNow();
+    }
+
+    private WorkStealingExecutorService newExecutor(int threads, int localCapacity, int overflowCapacity) {
+        return new WorkStealingExecutorService(threads, localCapacity, overflowCapacity,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("test-worker-%d").build());
+    }
+
+    @Test
+    public void testRunsAllJobsOnBoundedThreads() throws Exception {
+        executor = newExecutor(4, 10, 1000);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final AtomicInteger count = new AtomicInteger();
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 500; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override public void run() {
+                    threads.add(Thread.currentThread());
+                    count.incrementAndGet();
+                }}));
+        }
+        for (Future<?> f : futures) f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals(count.get(), 500);
+        assertTrue(threads.size() <= 4, "threads="+threads);
+        assertEquals(executor.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testShutdownNowReturnsEveryJobNotRun() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            executor = newExecutor(4, 1000, 10000);
+            final AtomicInteger ran = new AtomicInteger();
+            int submitted = 2000;
+            for (int i = 0; i < submitted; i++) {
+                executor.execute(new Runnable() {
+                    @Override public void run() {
+                        ran.incrementAndGet();
+                    }});
+            }
+            List<Runnable> notRun = executor.shutdownNow();
+            assertTrue(executor.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertEquals(ran.get() + notRun.size(), submitted, "attempt="+attempt+"; ran="+ran+"; notRun="+notRun.size());
+        }
+    }
+
+    @Test
+    public void testIdleWorkerStealsFromBlockedWorker() throws Exception {
+        executor = newExecutor(2, 10, 10);
+        final CountDownLatch blocker1 = new CountDownLatch(1);
+        final CountDownLatch blocker2 = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        try {
+            executor.submit(newBlockingJob(started, blocker1));
+            executor.submit(newBlockingJob(started, blocker2));
+            assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+            // both workers busy, so round-robin puts half of these behind each worker
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override public void run() {}}));
+            }
+            assertEquals(executor.getQueueDepth(), 6);
+            
+            // only one worker is freed up; it must steal the other's jobs
+            blocker2.countDown();
+            for (Future<?> f : futures) f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertEquals(executor.getStealCount(), 3);
+        } finally {
+            blocker1.countDown();
+            blocker2.countDown();
+        }
+    }
+
+    private Runnable newBlockingJob(final CountDownLatch started, final CountDownLatch blocker) {
+        return new Runnable() {
+            @Override public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }};
+    }
+
+    @Test
+    public void testExternalSubmitterBlocksWhenQueuesFull() throws Exception {
+        executor = newExecutor(1, 1, 1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean submitted = new AtomicBoolean();
+        try {
+            executor.submit(newBlockingJob(started, blocker));
+            assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            executor.submit(new Runnable() { @Override public void run() {} });
+            executor.submit(new Runnable() { @Override public void run() {} });
+            assertEquals(executor.getQueueDepth(), 2);
+
+            Thread submitter = new Thread(new Runnable() {
+                @Override public void run() {
+                    executor.submit(new Runnable() { @Override public void run() {} });
+                    submitted.set(true);
+                }});
+            submitter.start();
+            Thread.sleep(100);
+            assertFalse(submitted.get());
+
+            blocker.countDown();
+            submitter.join(TIMEOUT_MS);
+            assertTrue(submitted.get());
+            assertEquals(executor.getBlockedSubmissionCount(), 1);
+        } finally {
+            blocker.countDown();
+        }
+    }
+
+    @Test
+    public void testExecutionManagerKeepsSingleThreadedSchedulerOrder() throws Exception {
+        em = new BasicExecutionManager("mycontext", 4, 100, 1000);
+        em.setTaskSchedulerForTag("category1", SingleThreadedScheduler.class);
+
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        List<Task<?>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 200; i++) {
+            final int counter = i;
+            tasks.add(em.submit(MutableMap.of("tag", "category1"), new Callable<Void>() {
+                @Override public Void call() {
+                    result.add(counter);
+                    return null;
+                }}));
+        }
+        for (Task<?> task : tasks) task.get();
+
+        assertEquals(result.size(), 200);
+        for (int i = 0; i < 200; i++) assertEquals(result.get(i), (Integer)i);
+        assertEquals(em.getNumActiveTasks(), 0);
+        assertEquals(em.getExecutorQueueDepth(), 0);
+    }
+}
@@ -2,6 +2,7 @@ package brooklyn.location.jclouds;
 
 import static brooklyn.util.GroovyJavaMethods.elvis;
 import static brooklyn.util.GroovyJavaMethods.truth;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -15,10 +16,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
@@ -51,6 +58,7 @@ import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.config.ConfigUtils;
 import brooklyn.entity.basic.Entities;
+import brooklyn.location.BatchMachineProvisioningLocation;
 import brooklyn.location.LocationSpec;
 import brooklyn.location.NoMachinesAvailableException;
 import brooklyn.location.basic.LocationConfigUtils;
@@ -60,6 +68,7 @@ import brooklyn.location.cloud.AbstractCloudMachineProvisioningLocation;
 import brooklyn.location.jclouds.templates.PortableTemplateBuilder;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
+import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.internal.Repeater;
 import brooklyn.util.internal.ssh.SshTool;
@@ -86,12 +95,14 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import com.google.common.io.Closeables;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * For provisioning and managing VMs in a particular provider/region, using jclouds.
  * Configuration flags are defined in {@link JcloudsLocationConfig}.
  */
-public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation implements JcloudsLocationConfig {
+public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation implements JcloudsLocationConfig, 
+        BatchMachineProvisioningLocation<SshMachineLocation> {
 
     // TODO After converting from Groovy to Java, this is now very bad code! It relies entirely on putting 
     // things into and taking them out of maps; it's not type-safe, and it's thus very error-prone.
@@ -115,6 +126,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     
     private final Map<String,Map<String, ? extends Object>> tagMapping = Maps.newLinkedHashMap();
     private final Map<JcloudsSshMachineLocation,String> vmInstanceIds = Maps.newLinkedHashMap();
+    private final Map<Map<Object,Object>,PendingBatch> pendingBatches = Maps.newLinkedHashMap();
 
     public JcloudsLocation() {
        super();
@@ -307,8 +319,24 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
      * Map should contain CLOUD_PROVIDER and CLOUD_ENDPOINT or CLOUD_REGION, depending on the cloud,
      * as well as ACCESS_IDENTITY and ACCESS_CREDENTIAL,
      * plus any further properties to specify e.g. images, hardware profiles, accessing user
-     * (for initial login, and a user potentially to create for subsequent ie normal access) */
+     * (for initial login, and a user potentially to create for subsequent ie normal access);
+     * if BATCH_PROVISIONING_WINDOW is set, the VM may be created along with others requested concurrently */
     public JcloudsSshMachineLocation obtain(Map<?,?> flags) throws NoMachinesAvailableException {
+        Long batchWindow = ConfigBag.newInstanceExtending(getConfigBag(), flags).get(BATCH_PROVISIONING_WINDOW);
+        if (batchWindow != null && batchWindow > 0) {
+            return obtainInBatch(flags, batchWindow);
+        }
+        return obtainOne(flags);
+    }
+
+    /** obtains the given number of VMs, all created by a single request to the cloud 
+     * (and so using a single template); see {@link BatchMachineProvisioningLocation#obtainMultiple(int, Map)} */
+    @Override
+    public List<SshMachineLocation> obtainMultiple(int count, Map<?,?> flags) throws NoMachinesAvailableException {
+        return ImmutableList.<SshMachineLocation>copyOf(obtainBatch(count, flags));
+    }
+
+    protected JcloudsSshMachineLocation obtainOne(Map<?,?> flags) throws NoMachinesAvailableException {
         ConfigBag setup = ConfigBag.newInstanceExtending(getConfigBag(), flags);
         setCreationString(setup);
         
@@ -330,42 +358,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             if (node == null)
                 throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + setup.getDescription());
 
-            LoginCredentials initialCredentials = extractVmCredentials(setup, node);
-            if (initialCredentials != null)
-                node = NodeMetadataBuilder.fromNodeMetadata(node).credentials(initialCredentials).build();
-            else
-                // only happens if something broke above...
-                initialCredentials = LoginCredentials.fromCredentials(node.getCredentials());
-            
-            // Wait for the VM to be reachable over SSH
-            waitForReachable(computeService, node, initialCredentials, setup);
-            
-            String vmHostname = getPublicHostname(node, setup);
-            JcloudsSshMachineLocation sshLocByHostname = registerJcloudsSshMachineLocation(node, vmHostname, setup);
-            
-            // Apply same securityGroups rules to iptables, if iptables is running on the node
-            String waitForSshable = setup.get(WAIT_FOR_SSHABLE);
-            if (!(waitForSshable!=null && "false".equalsIgnoreCase(waitForSshable))) {
-                if (setup.get(JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM))
-                    sshLocByHostname.execCommands("using urandom instead of random", 
-                        Arrays.asList("sudo mv /dev/random /dev/random-real", "sudo ln -s /dev/urandom /dev/random"));
-                
-                if (setup.get(OPEN_IPTABLES)) {
-                    mapSecurityGroupRuleToIpTables(computeService, node, initialCredentials, "eth0", 
-                            (Iterable<Integer>) setup.get(INBOUND_PORTS));
-                }
-                
-            } else {
-                // Otherwise would break CloudStack, where port-forwarding means that jclouds opinion 
-                // of using port 22 is wrong.
-            }
-            
-            // Apply any optional app-specific customization.
-            for (JcloudsLocationCustomizer customizer : getCustomizers(setup)) {
-                customizer.customize(computeService, sshLocByHostname);
-            }
-            
-            return sshLocByHostname;
+            return initializeNode(computeService, node, setup);
         } catch (RunNodesException e) {
             if (e.getNodeErrors().size() > 0) {
                 node = Iterables.get(e.getNodeErrors().keySet(), 0);
@@ -383,6 +376,215 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     }
 
+    /** creates all the VMs with one call to jclouds, then waits for them (e.g. to be sshable) in parallel;
+     * VMs which fail are destroyed, and the others returned; if all fail, throws {@link NoMachinesAvailableException} */
+    protected List<JcloudsSshMachineLocation> obtainBatch(int count, Map<?,?> flags) throws NoMachinesAvailableException {
+        checkArgument(count > 0, "count must be positive, but was %s", count);
+        if (count == 1) return ImmutableList.of(obtainOne(flags));
+        
+        ConfigBag setup = ConfigBag.newInstanceExtending(getConfigBag(), flags);
+        setCreationString(setup);
+        
+        final ComputeService computeService = JcloudsUtil.findComputeService(setup);
+        String groupId = elvis(setup.get(GROUP_ID), new CloudMachineNamer(setup).generateNewGroupId());
+        Set<? extends NodeMetadata> nodes;
+        try {
+            LOG.info("Creating "+count+" VMs in "+setup.getDescription()+" for "+this);
+
+            // resolved once for the batch; not cached across calls, as the options can be specific to the VMs created
+            Template template = buildTemplate(computeService, setup);
+
+            if (!setup.getUnusedConfig().isEmpty())
+                LOG.debug("NOTE: unused flags passed to obtain VMs in "+setup.getDescription()+": "+
+                        setup.getUnusedConfig());
+            
+            try {
+                nodes = computeService.createNodesInGroup(groupId, count, template);
+            } catch (RunNodesException e) {
+                if (e.getSuccessfulNodes().isEmpty()) {
+                    throw new NoMachinesAvailableException("Failed to start any of "+count+" VMs in "+setup.getDescription(), e);
+                }
+                LOG.warn("Failed to start "+e.getNodeErrors().size()+" of "+count+" VMs for "+setup.getDescription()+
+                        " (destroying them and continuing with the others): "+e.getMessage());
+                for (NodeMetadata failed : e.getNodeErrors().keySet()) {
+                    destroyNode(computeService, failed);
+                }
+                nodes = e.getSuccessfulNodes();
+            }
+            LOG.debug("jclouds created {} for {}", nodes, setup.getDescription());
+        } catch (NoMachinesAvailableException e) {
+            LOG.error("Failed to start VMs for {}: {}", setup.getDescription(), e.getCause().getMessage());
+            throw e;
+        } catch (Exception e) {
+            LOG.error("Failed to start VMs for {}: {}", setup.getDescription(), e.getMessage());
+            LOG.debug(Throwables.getStackTraceAsString(e));
+            throw Throwables.propagate(e);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size(), new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-jclouds-obtain-"+groupId+"-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            Map<NodeMetadata, Future<JcloudsSshMachineLocation>> futures = Maps.newLinkedHashMap();
+            for (final NodeMetadata node : nodes) {
+                // initializing a node can modify its setup (e.g. with the user detected), so each gets its own
+                final ConfigBag nodeSetup = ConfigBag.newInstanceCopying(setup);
+                futures.put(node, executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                    public JcloudsSshMachineLocation call() throws Exception {
+                        return initializeNode(computeService, node, nodeSetup);
+                    }}));
+            }
+            
+            List<JcloudsSshMachineLocation> result = Lists.newArrayList();
+            Throwable firstError = null;
+            for (Map.Entry<NodeMetadata, Future<JcloudsSshMachineLocation>> entry : futures.entrySet()) {
+                try {
+                    result.add(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    LOG.error("Failed to start VM {} for {} (destroying it): {}", 
+                            new Object[] {entry.getKey().getId(), setup.getDescription(), e.getCause()});
+                    destroyNode(computeService, entry.getKey());
+                    if (firstError == null) firstError = e.getCause();
+                }
+            }
+            if (result.isEmpty()) {
+                throw new NoMachinesAvailableException("Failed to start any of "+nodes.size()+" VMs in "+setup.getDescription(), firstError);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** gives the VMs created for the given request, waiting first to see if there are others 
+     * to be created at the same time, with the same flags other than the caller context */
+    protected JcloudsSshMachineLocation obtainInBatch(Map<?,?> flags, long window) throws NoMachinesAvailableException {
+        Map<Object,Object> key = Maps.newLinkedHashMap(flags);
+        key.remove(CALLER_CONTEXT);
+        key.remove(CALLER_CONTEXT.getName());
+        
+        PendingBatch batch;
+        int index;
+        synchronized (pendingBatches) {
+            batch = pendingBatches.get(key);
+            if (batch == null) {
+                batch = new PendingBatch();
+                pendingBatches.put(key, batch);
+            }
+            index = batch.count++;
+        }
+        
+        if (index == 0) {
+            // the first request creates the VMs for all those that joined it during the window
+            try {
+                int count;
+                try {
+                    Time.sleep(window);
+                } finally {
+                    synchronized (pendingBatches) {
+                        pendingBatches.remove(key);
+                        count = batch.count;
+                    }
+                }
+                if (count > 1) LOG.debug("Obtaining {} VMs together in {}", count, this);
+                batch.machines = obtainBatch(count, flags);
+            } catch (Throwable t) {
+                batch.error = t;
+            } finally {
+                batch.done.countDown();
+            }
+        } else {
+            try {
+                batch.done.await();
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        
+        if (batch.error instanceof NoMachinesAvailableException) {
+            throw (NoMachinesAvailableException) batch.error;
+        } else if (batch.error != null) {
+            throw Exceptions.propagate(batch.error);
+        }
+        if (index >= batch.machines.size()) {
+            throw new NoMachinesAvailableException("Failed to obtain machine in "+this+": only "+batch.machines.size()+
+                    " of "+batch.count+" VMs requested together could be started");
+        }
+        return batch.machines.get(index);
+    }
+
+    private static class PendingBatch {
+        // guarded by pendingBatches until the batch is removed from there
+        int count;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile List<JcloudsSshMachineLocation> machines;
+        volatile Throwable error;
+    }
+
+    /** prepares a newly created VM, waiting for it to be reachable then registering it as a machine of this location */
+    protected JcloudsSshMachineLocation initializeNode(ComputeService computeService, NodeMetadata node, ConfigBag setup) throws IOException {
+        LoginCredentials initialCredentials = extractVmCredentials(setup, node);
+        if (initialCredentials != null)
+            node = NodeMetadataBuilder.fromNodeMetadata(node).credentials(initialCredentials).build();
+        else
+            // only happens if something broke above...
+            initialCredentials = LoginCredentials.fromCredentials(node.getCredentials());
+        
+        // Wait for the VM to be reachable over SSH
+        waitForReachable(computeService, node, initialCredentials, setup);
+        
+        String vmHostname = getPublicHostname(node, setup);
+        JcloudsSshMachineLocation sshLocByHostname;
+        synchronized (vmInstanceIds) {
+            sshLocByHostname = registerJcloudsSshMachineLocation(node, vmHostname, setup);
+        }
+        
+        // Apply same securityGroups rules to iptables, if iptables is running on the node
+        String waitForSshable = setup.get(WAIT_FOR_SSHABLE);
+        if (!(waitForSshable!=null && "false".equalsIgnoreCase(waitForSshable))) {
+            if (setup.get(JcloudsLocationConfig.MAP_DEV_RANDOM_TO_DEV_URANDOM))
+                sshLocByHostname.execCommands("using urandom instead of random", 
+                    Arrays.asList("sudo mv /dev/random /dev/random-real", "sudo ln -s /dev/urandom /dev/random"));
+            
+            if (setup.get(OPEN_IPTABLES)) {
+                mapSecurityGroupRuleToIpTables(computeService, node, initialCredentials, "eth0", 
+                        (Iterable<Integer>) setup.get(INBOUND_PORTS));
+            }
+            
+        } else {
+            // Otherwise would break CloudStack, where port-forwarding means that jclouds opinion 
+            // of using port 22 is wrong.
+        }
+        
+        // Apply any optional app-specific customization.
+        for (JcloudsLocationCustomizer customizer : getCustomizers(setup)) {
+            customizer.customize(computeService, sshLocByHostname);
+        }
+        
+        return sshLocByHostname;
+    }
+
+    /** destroys a VM which could not be started, forgetting its machine if it was registered */
+    private void destroyNode(ComputeService computeService, NodeMetadata node) {
+        synchronized (vmInstanceIds) {
+            for (Iterator<Map.Entry<JcloudsSshMachineLocation,String>> it = vmInstanceIds.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<JcloudsSshMachineLocation,String> entry = it.next();
+                if (node.getId().equals(entry.getValue())) {
+                    removeChildLocation(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        try {
+            computeService.destroyNode(node.getId());
+        } catch (Exception e) {
+            LOG.warn("Problem destroying VM "+node.getId()+" in "+this+"; continuing", e);
+        }
+    }
+
     private void mapSecurityGroupRuleToIpTables(ComputeService computeService, NodeMetadata node,
             LoginCredentials credentials, String networkInterface, Iterable<Integer> ports) {
         for (Integer port : ports) {
@@ -842,14 +1044,17 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     }
 
     public void release(SshMachineLocation machine) {
-        String instanceId = vmInstanceIds.remove(machine);
-        if (!truth(instanceId)) {
-            throw new IllegalArgumentException("Unknown machine "+machine);
+        String instanceId;
+        synchronized (vmInstanceIds) {
+            instanceId = vmInstanceIds.remove(machine);
+            if (!truth(instanceId)) {
+                throw new IllegalArgumentException("Unknown machine "+machine);
+            }
+            removeChildLocation(machine);
         }
         
         LOG.info("Releasing machine {} in {}, instance id {}", new Object[] {machine, this, instanceId});
         
-        removeChildLocation(machine);
         ComputeService computeService = null;
         try {
             computeService = JcloudsUtil.findComputeService(getConfigBag());
@@ -57,6 +57,10 @@ public interface JcloudsLocationConfig extends CloudLocationConfig {
             "Whether and how long to wait for a newly provisioned VM to be accessible via ssh; " +
             "if 'false', won't check; if 'true' uses default duration; otherwise accepts a time string e.g. '5m' (the default) or a number of milliseconds", "5m");
     
+    public static final ConfigKey<Long> BATCH_PROVISIONING_WINDOW = new BasicConfigKey<Long>(Long.class, "batchProvisioningWindow",
+            "Time (in milliseconds) to wait for other requests for identical VMs, which are then all created by one request to the cloud; " +
+            "e.g. so that the members of a cluster being started in parallel are provisioned together (default 0, i.e. disabled)", 0L);
+
     // note causing problems on centos due to use of `sudo -n`; but required for default RHEL VM
     public static final ConfigKey<Boolean> OPEN_IPTABLES = ConfigKeys.newBooleanConfigKey("openIptables", 
             "Whether to open the INBOUND_PORTS via iptables rules; " +
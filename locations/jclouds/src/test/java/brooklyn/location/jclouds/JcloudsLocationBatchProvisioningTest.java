@@ -0,0 +1,162 @@
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.location.NoMachinesAvailableException;
+import brooklyn.location.basic.SshMachineLocation;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.config.ConfigBag;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Provisions against the jclouds "stub" provider, which simulates a cloud in-memory.
+ */
+public class JcloudsLocationBatchProvisioningTest implements JcloudsLocationConfig {
+
+    public static class CountingJcloudsLocation extends JcloudsLocation {
+        final AtomicInteger templatesBuilt = new AtomicInteger();
+
+        public CountingJcloudsLocation(Map<?, ?> conf) {
+            super(conf);
+        }
+
+        @Override
+        protected Template buildTemplate(ComputeService computeService, ConfigBag config) {
+            templatesBuilt.incrementAndGet();
+            return super.buildTemplate(computeService, config);
+        }
+    }
+
+    private ExecutorService executor;
+    private List<SshMachineLocation> machines;
+    private CountingJcloudsLocation loc;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        machines = Lists.newCopyOnWriteArrayList();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        for (SshMachineLocation machine : machines) {
+            loc.release(machine);
+        }
+    }
+
+    private CountingJcloudsLocation newStubLocation(Map<?,?> extraConfig) {
+        return new CountingJcloudsLocation(MutableMap.builder()
+                .put(CLOUD_PROVIDER, "stub")
+                .put(ACCESS_IDENTITY, "stub")
+                .put(ACCESS_CREDENTIAL, "stub")
+                .put(USER, "root")
+                .put(WAIT_FOR_SSHABLE, "false")
+                .putAll(extraConfig)
+                .build());
+    }
+
+    @Test(groups="Integration")
+    public void testObtainMultipleCreatesMachinesTogether() throws Exception {
+        loc = newStubLocation(ImmutableMap.of());
+        machines.addAll(loc.obtainMultiple(3, ImmutableMap.of()));
+
+        assertEquals(machines.size(), 3);
+        assertEquals(loc.templatesBuilt.get(), 1);
+        assertCreatedTogether(machines);
+    }
+
+    @Test(groups="Integration")
+    public void testConcurrentObtainsProvisionedAsOneBatch() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(BATCH_PROVISIONING_WINDOW, 1000L));
+        List<Future<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            final Map<?,?> flags = ImmutableMap.of(CALLER_CONTEXT, "caller-"+i);
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return loc.obtain(flags);
+                }}));
+        }
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            machines.add(future.get());
+        }
+
+        assertEquals(loc.templatesBuilt.get(), 1);
+        assertCreatedTogether(machines);
+    }
+
+    @Test(groups="Integration")
+    public void testObtainsWithDifferentFlagsNotBatchedTogether() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(BATCH_PROVISIONING_WINDOW, 1000L));
+        List<Future<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < 2; i++) {
+            final Map<?,?> flags = ImmutableMap.of(GROUP_ID, "brooklyn-batch-test-"+i);
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return loc.obtain(flags);
+                }}));
+        }
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            machines.add(future.get());
+        }
+
+        assertEquals(loc.templatesBuilt.get(), 2);
+    }
+
+    @Test(groups="Integration")
+    public void testObtainMultipleThrowsNoMachinesAvailableWhenAllFail() throws Exception {
+        loc = new CountingJcloudsLocation(MutableMap.builder()
+                .put(CLOUD_PROVIDER, "stub")
+                .put(ACCESS_IDENTITY, "stub")
+                .put(ACCESS_CREDENTIAL, "stub")
+                .put(USER, "root")
+                .put(WAIT_FOR_SSHABLE, "false")
+                .build()) {
+            @Override
+            protected JcloudsSshMachineLocation initializeNode(ComputeService computeService, NodeMetadata node, ConfigBag setup) throws IOException {
+                throw new IOException("simulated failure for "+node.getId());
+            }
+        };
+        try {
+            machines.addAll(loc.obtainMultiple(2, ImmutableMap.of()));
+            fail("machines="+machines);
+        } catch (NoMachinesAvailableException e) {
+            assertTrue(e.getCause() instanceof IOException, "cause="+e.getCause());
+        }
+    }
+
+    private void assertCreatedTogether(List<SshMachineLocation> machines) {
+        Set<String> nodeIds = Sets.newHashSet();
+        Set<String> groups = Sets.newHashSet();
+        for (SshMachineLocation machine : machines) {
+            JcloudsSshMachineLocation jcloudsMachine = (JcloudsSshMachineLocation) machine;
+            nodeIds.add(jcloudsMachine.getNode().getId());
+            groups.add(jcloudsMachine.getNode().getGroup());
+        }
+        assertEquals(nodeIds.size(), machines.size(), "nodeIds="+nodeIds);
+        assertEquals(groups.size(), 1, "groups="+groups);
+    }
+}
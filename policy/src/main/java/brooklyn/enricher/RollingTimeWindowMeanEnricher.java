@@ -1,8 +1,5 @@
 package brooklyn.enricher;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import com.google.common.base.Preconditions;
 
 import brooklyn.enricher.basic.AbstractTypeTransformingEnricher;
@@ -10,6 +7,7 @@ import brooklyn.entity.Entity;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
+import brooklyn.util.collections.TimeWindowedDoubleBuffer;
 import brooklyn.util.time.Duration;
 
 /**
@@ -46,8 +44,8 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         }
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    /** Discards out-of-date values, but keeps at least one value. */
+    private final TimeWindowedDoubleBuffer values;
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     Duration timePeriod;
@@ -56,6 +54,7 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         AttributeSensor<Double> target, Duration timePeriod) {
         super(producer, source, target);
         this.timePeriod = Preconditions.checkNotNull(timePeriod, "timePeriod");
+        this.values = new TimeWindowedDoubleBuffer(timePeriod.toMilliseconds(), 1, 0);
     }
 
     /** @deprecated since 0.6.0 use Duration parameter rather than long with millis */
@@ -71,9 +70,11 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public void onEvent(SensorEvent<T> event, long eventTime) {
-        values.addLast(event.getValue());
-        timestamps.addLast(eventTime);
-        pruneValues(eventTime);
+        // null values are ignored when averaging, so are not kept
+        T value = event.getValue();
+        if (value != null) {
+            values.add(eventTime, value.doubleValue());
+        }
         entity.setAttribute((AttributeSensor<Double>)target, getAverage(eventTime).value); //TODO this can potentially go stale... maybe we need to timestamp as well?
     }
     
@@ -82,48 +83,28 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public ConfidenceQualifiedNumber getAverage(long now) {
-        pruneValues(now);
-        if (timestamps.isEmpty()) {
-            return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
-        }
+        synchronized (values) {
+            values.pruneValues(now);
+            if (values.isEmpty()) {
+                return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
+            }
 
-        // XXX grkvlt - see email to development list
+            // XXX grkvlt - see email to development list
 
-        
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
-        Double confidence = ((double)(timePeriod.toMilliseconds() - (now - lastTimestamp))) / timePeriod.toMilliseconds();
-        if (confidence <= 0.0d) {
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
-        
-        long start = (now - timePeriod.toMilliseconds());
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
+            long lastTimestamp = values.getTimestamp(values.size()-1);
+            Double confidence = ((double)(timePeriod.toMilliseconds() - (now - lastTimestamp))) / timePeriod.toMilliseconds();
+            if (confidence <= 0.0d) {
+                double lastValue = values.getValue(values.size()-1);
+                return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
             }
-        }
-        
-        return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
-    }
-    
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        while(timestamps.size() > 1 && timestamps.get(0) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+
+            // Having pruned, all values are within the window. Each is weighted by the time since the previous
+            // value, and the oldest by the time since the start of the window.
+            long start = (now - timePeriod.toMilliseconds());
+            double weightedTotal = values.getTimeWeightedSum() + (values.getTimestamp(0) - start) * values.getValue(0);
+            double weightedAverage = weightedTotal / (confidence * timePeriod.toMilliseconds());
+
+            return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
         }
     }
 }
@@ -1,15 +1,11 @@
 package brooklyn.policy.autoscaling;
 
-import java.util.List;
-
-import brooklyn.util.collections.MutableMap;
-import brooklyn.util.collections.TimeWindowedList;
-import brooklyn.util.collections.TimestampedValue;
+import brooklyn.util.collections.TimeWindowedDoubleBuffer;
 
 import com.google.common.base.Objects;
 
 /**
- * Using a {@link TimeWindowedList}, tracks the recent history of values to allow a summary of 
+ * Using a {@link TimeWindowedDoubleBuffer}, tracks the recent history of values to allow a summary of 
  * those values to be obtained. 
  *   
  * @author aled
@@ -47,14 +43,14 @@ public class SizeHistory {
         }
     }
     
-    private final TimeWindowedList<Number> recentDesiredResizes;
+    private final TimeWindowedDoubleBuffer recentDesiredResizes;
     
     public SizeHistory(long windowSize) {
-        recentDesiredResizes = new TimeWindowedList<Number>(MutableMap.of("timePeriod", windowSize, "minExpiredVals", 1));
+        recentDesiredResizes = new TimeWindowedDoubleBuffer(windowSize, 0, 1);
     }
 
     public void add(final int val) {
-        recentDesiredResizes.add(val);
+        recentDesiredResizes.add(System.currentTimeMillis(), val);
     }
 
     public void setWindowSize(long newWindowSize) {
@@ -73,12 +69,30 @@ public class SizeHistory {
      */
     public WindowSummary summarizeWindow(long windowSize) {
         long now = System.currentTimeMillis();
-        List<TimestampedValue<Number>> windowVals = recentDesiredResizes.getValuesInWindow(now, windowSize);
+        long epoch = now-windowSize;
+        long latest;
+        long max;
+        long min;
         
-        Number latestObj = latestInWindow(windowVals);
-        long latest = (latestObj == null) ? -1: latestObj.longValue();
-        long max = maxInWindow(windowVals, windowSize).longValue();
-        long min = minInWindow(windowVals, windowSize).longValue();
+        synchronized (recentDesiredResizes) {
+            int size = recentDesiredResizes.size();
+            if (size == 0) {
+                latest = -1;
+                max = Integer.MAX_VALUE;
+                min = Integer.MIN_VALUE;
+            } else {
+                // the values in the window, and the most recent value before it as the "initial" value
+                int from = Math.max(0, recentDesiredResizes.countBefore(epoch) - 1);
+                latest = (long) recentDesiredResizes.getValue(size-1);
+                if (recentDesiredResizes.getTimestamp(from) > epoch) {
+                    max = Integer.MAX_VALUE;
+                    min = Integer.MIN_VALUE;
+                } else {
+                    max = (long) recentDesiredResizes.getMax(from);
+                    min = (long) recentDesiredResizes.getMin(from);
+                }
+            }
+        }
         
         // TODO Could do more sophisticated "stable" check; this is the easiest code - correct but not most efficient
         // in terms of the caller having to schedule additional stability checks.
@@ -86,58 +100,4 @@ public class SizeHistory {
         
         return new WindowSummary(latest, min, max, stable, stable);
     }
-    
-    /**
-     * If the entire time-window is not covered by the given values, then returns Integer.MAX_VALUE.
-     */
-    private <T extends Number> T maxInWindow(List<TimestampedValue<T>> vals, long timewindow) {
-        // TODO bad casting from Integer default result to T
-        long now = System.currentTimeMillis();
-        long epoch = now-timewindow;
-        T result = null;
-        double resultAsDouble = Integer.MAX_VALUE;
-        for (TimestampedValue<T> val : vals) {
-            T valAsNum = val.getValue();
-            double valAsDouble = (valAsNum != null) ? valAsNum.doubleValue() : 0;
-            if (result == null && val.getTimestamp() > epoch) {
-                result = (T) Integer.valueOf(Integer.MAX_VALUE);
-                resultAsDouble = result.doubleValue();
-            }
-            if (result == null || (valAsNum != null && valAsDouble > resultAsDouble)) {
-                result = valAsNum;
-                resultAsDouble = valAsDouble;
-            }
-        }
-        return (T) (result != null ? result : Integer.MAX_VALUE);
-    }
-    
-    /**
-     * If the entire time-window is not covered by the given values, then returns Integer.MIN_VALUE
-     */
-    private <T extends Number> T minInWindow(List<TimestampedValue<T>> vals, long timewindow) {
-        long now = System.currentTimeMillis();
-        long epoch = now-timewindow;
-        T result = null;
-        double resultAsDouble = Integer.MIN_VALUE;
-        for (TimestampedValue<T> val : vals) {
-            T valAsNum = val.getValue();
-            double valAsDouble = (valAsNum != null) ? valAsNum.doubleValue() : 0;
-            if (result == null && val.getTimestamp() > epoch) {
-                result = (T) Integer.valueOf(Integer.MIN_VALUE);
-                resultAsDouble = result.doubleValue();
-            }
-            if (result == null || (val.getValue() != null && valAsDouble < resultAsDouble)) {
-                result = valAsNum;
-                resultAsDouble = valAsDouble;
-            }
-        }
-        return (T) (result != null ? result : Integer.MIN_VALUE);
-    }
-
-    /**
-     * @return null if empty, or the most recent value
-     */
-    private <T extends Number> T latestInWindow(List<TimestampedValue<T>> vals) {
-        return vals.isEmpty() ? null : vals.get(vals.size()-1).getValue();
-    }
 }
@@ -6,9 +6,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -32,7 +29,6 @@ import brooklyn.util.flags.SetFromFlag;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class FollowTheSunPolicy extends AbstractPolicy {
 
@@ -53,7 +49,6 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     
     private FollowTheSunPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
     private boolean loggedConstraintsIgnored = false;
@@ -111,9 +106,6 @@ public class FollowTheSunPolicy extends AbstractPolicy {
         this.parameters = parameters;
         this.strategy = new FollowTheSunStrategy<Entity, Movable>(model, parameters); // TODO: extract interface, inject impl
         this.locationFinder = elvis(locationFinder, defaultLocationFinder);
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @Override
@@ -143,31 +135,23 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     @Override
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
-        super.suspend();
-        if (executor != null) executor.shutdownNow();
+        super.suspend(); // cancels any scheduled job
         executorQueued.set(false);
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
-    }
-
     private void scheduleLatencyReductionJig() {
         if (isRunning() && executorQueued.compareAndSet(false, true)) {
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule(new Runnable() {
                 public void run() {
                     try {
                         executorTime = System.currentTimeMillis();
@@ -3,9 +3,12 @@ package brooklyn.policy.loadbalancing;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -36,6 +39,10 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
      *  - Unfortunately changing threading model (so have a "rebalancer" thread, and a thread that 
      *    processes events to update the model), get ConcurrentModificationException if don't take
      *    copy of containerToItems.get(node)...
+     *  - The strategy asks for container workrates many times per rebalance, so each container's total is
+     *    maintained as item workrates and locations change, rather than summed over its items on each call.
+     *    The containers are also kept ordered by load (total workrate minus high threshold), so the hottest
+     *    and coldest can be found without examining every container.
      */
     
     // Concurrent maps cannot have null value; use this to represent when no container is supplied for an item 
@@ -50,6 +57,14 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     private final Map<ItemType, Double> itemToWorkrate = new ConcurrentHashMap<ItemType, Double>();
     private final Set<ItemType> immovableItems = Collections.newSetFromMap(new ConcurrentHashMap<ItemType, Boolean>());
     
+    /** sum of the (absolute) workrates of each container's items; changes are made while synchronized on containersByLoad */
+    private final Map<ContainerType, Double> containerToWorkrate = new ConcurrentHashMap<ContainerType, Double>();
+    
+    /** the pool's containers, ordered by load; guarded by itself, as are the loads */
+    private final NavigableSet<ContainerLoad<ContainerType>> containersByLoad = new TreeSet<ContainerLoad<ContainerType>>();
+    private final Map<ContainerType, ContainerLoad<ContainerType>> containerToLoad = new HashMap<ContainerType, ContainerLoad<ContainerType>>();
+    private long nextContainerSequence = 0;
+    
     private volatile double poolLowThreshold = 0;
     private volatile double poolHighThreshold = 0;
     private volatile double currentPoolWorkrate = 0;
@@ -100,13 +115,8 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     }
     
     @Override public double getTotalWorkrate(ContainerType container) {
-        double totalWorkrate = 0;
-        for (ItemType item : getItemsForContainer(container)) {
-            Double workrate = itemToWorkrate.get(item);
-            if (workrate != null)
-                totalWorkrate += Math.abs(workrate);
-        }
-        return totalWorkrate;
+        Double result = containerToWorkrate.get(container);
+        return (result != null) ? result : 0;
     }
     
     @Override public Map<ContainerType, Double> getContainerWorkrates() {
@@ -132,6 +142,37 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         return true; // TODO?
     }
     
+    /**
+     * The container with the most spare capacity (high threshold minus total workrate), or null if none
+     * (other than those excluded) has spare capacity; see {@link PolicyUtilForPool#findColdestContainer(Set, LocationConstraint)}.
+     */
+    public ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        synchronized (containersByLoad) {
+            for (ContainerLoad<ContainerType> load : containersByLoad) {
+                if (load.getLoad() >= 0) break; // this and all subsequent containers have no spare capacity
+                if (excludedContainers.contains(load.container)) continue;
+                if (locationConstraint != null && !locationConstraint.isPermitted(getLocation(load.container))) continue;
+                return load.container;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * The container with the greatest overshoot (total workrate minus high threshold), or null if none
+     * (other than those excluded) has an overshoot; see {@link PolicyUtilForPool#findHottestContainer(Set)}.
+     */
+    public ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        synchronized (containersByLoad) {
+            for (ContainerLoad<ContainerType> load : containersByLoad.descendingSet()) {
+                if (load.getLoad() <= 0) break; // this and all subsequent containers have no overshoot
+                if (excludedContainers.contains(load.container)) continue;
+                return load.container;
+            }
+            return null;
+        }
+    }
+    
     
     // Mutators.
     
@@ -144,35 +185,51 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
             		"if onItemAdded subsequently received will get new container then", item, newNode);
             return;
         }
-        ContainerType newNodeNonNull = toNonNullContainer(newNode);
-        ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (newNode != null) containerToItems.put(newNode, item);
+        synchronized (containersByLoad) {
+            ContainerType newNodeNonNull = toNonNullContainer(newNode);
+            ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            if (newNode != null) containerToItems.put(newNode, item);
+            moveItemWorkrate(item, oldNode, newNode);
+        }
     }
     
     @Override
     public void onContainerAdded(ContainerType newContainer, double lowThreshold, double highThreshold) {
-        boolean added = containers.add(newContainer);
-        if (!added) {
-            // See LoadBalancingPolicy.onContainerAdded for possible explanation of why can get duplicate calls
-            LOG.debug("Duplicate container-added event for {}; ignoring", newContainer);
-            return;
+        synchronized (containersByLoad) {
+            boolean added = containers.add(newContainer);
+            if (!added) {
+                // See LoadBalancingPolicy.onContainerAdded for possible explanation of why can get duplicate calls
+                LOG.debug("Duplicate container-added event for {}; ignoring", newContainer);
+                return;
+            }
+            containerToLowThreshold.put(newContainer, lowThreshold);
+            containerToHighThreshold.put(newContainer, highThreshold);
+            poolLowThreshold += lowThreshold;
+            poolHighThreshold += highThreshold;
+            
+            // items may already have been reported in this container
+            ContainerLoad<ContainerType> load = new ContainerLoad<ContainerType>(newContainer, nextContainerSequence++, 
+                    highThreshold, getTotalWorkrate(newContainer));
+            containerToLoad.put(newContainer, load);
+            containersByLoad.add(load);
         }
-        containerToLowThreshold.put(newContainer, lowThreshold);
-        containerToHighThreshold.put(newContainer, highThreshold);
-        poolLowThreshold += lowThreshold;
-        poolHighThreshold += highThreshold;
     }
     
     @Override
     public void onContainerRemoved(ContainerType oldContainer) {
-        containers.remove(oldContainer);
-        Double containerLowThreshold = containerToLowThreshold.remove(oldContainer);
-        Double containerHighThresold = containerToHighThreshold.remove(oldContainer);
-        poolLowThreshold -= (containerLowThreshold != null ? containerLowThreshold : 0);
-        poolHighThreshold -= (containerHighThresold != null ? containerHighThresold : 0);
-        
-        // TODO: assert no orphaned items
+        synchronized (containersByLoad) {
+            containers.remove(oldContainer);
+            Double containerLowThreshold = containerToLowThreshold.remove(oldContainer);
+            Double containerHighThresold = containerToHighThreshold.remove(oldContainer);
+            poolLowThreshold -= (containerLowThreshold != null ? containerLowThreshold : 0);
+            poolHighThreshold -= (containerHighThresold != null ? containerHighThresold : 0);
+            
+            ContainerLoad<ContainerType> load = containerToLoad.remove(oldContainer);
+            if (load != null) containersByLoad.remove(load);
+            
+            // TODO: assert no orphaned items
+        }
     }
     
     @Override
@@ -188,32 +245,42 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         if (immovable)
             immovableItems.add(item);
         
-        ContainerType parentContainerNonNull = toNonNullContainer(parentContainer);
-        ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (parentContainer != null) containerToItems.put(parentContainer, item);
+        synchronized (containersByLoad) {
+            ContainerType parentContainerNonNull = toNonNullContainer(parentContainer);
+            ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            if (parentContainer != null) containerToItems.put(parentContainer, item);
+            moveItemWorkrate(item, oldNode, parentContainer);
+        }
     }
     
     @Override
     public void onItemRemoved(ItemType item) {
-        ContainerType oldNode = itemToContainer.remove(item);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        Double workrate = itemToWorkrate.remove(item);
-        if (workrate != null)
-            currentPoolWorkrate -= workrate;
-        immovableItems.remove(item);
+        synchronized (containersByLoad) {
+            ContainerType oldNode = itemToContainer.remove(item);
+            if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
+            Double workrate = itemToWorkrate.remove(item);
+            if (workrate != null) {
+                currentPoolWorkrate -= workrate;
+                adjustContainerWorkrate(oldNode, -Math.abs(workrate));
+            }
+            immovableItems.remove(item);
+        }
     }
     
     @Override
     public void onItemWorkrateUpdated(ItemType item, double newValue) {
-        if (hasItem(item)) {
-            Double oldValue = itemToWorkrate.put(item, newValue);
-            double delta = ( newValue - (oldValue != null ? oldValue : 0) );
-            currentPoolWorkrate += delta;
-        } else {
-            // Can happen when item removed - get notification of removal and workrate from group and item
-            // respectively, so can overtake each other
-            if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of workrate for unknown item {}, to {}", item, newValue);
+        synchronized (containersByLoad) {
+            if (hasItem(item)) {
+                Double oldValue = itemToWorkrate.put(item, newValue);
+                double delta = ( newValue - (oldValue != null ? oldValue : 0) );
+                currentPoolWorkrate += delta;
+                adjustContainerWorkrate(itemToContainer.get(item), Math.abs(newValue) - (oldValue != null ? Math.abs(oldValue) : 0));
+            } else {
+                // Can happen when item removed - get notification of removal and workrate from group and item
+                // respectively, so can overtake each other
+                if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of workrate for unknown item {}, to {}", item, newValue);
+            }
         }
     }
     
@@ -221,6 +288,35 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         return itemToContainer.containsKey(item);
     }
     
+    // must be called while synchronized on containersByLoad
+    private void moveItemWorkrate(ItemType item, ContainerType oldNode, ContainerType newNode) {
+        Double workrate = itemToWorkrate.get(item);
+        if (workrate == null || workrate == 0) return;
+        adjustContainerWorkrate(oldNode, -Math.abs(workrate));
+        adjustContainerWorkrate(newNode, Math.abs(workrate));
+    }
+    
+    // must be called while synchronized on containersByLoad
+    private void adjustContainerWorkrate(ContainerType container, double delta) {
+        if (container == null || container == NULL_CONTAINER || delta == 0) return;
+        Double oldTotal = containerToWorkrate.get(container);
+        // guard against rounding errors taking the total below zero
+        double newTotal = Math.max(0, (oldTotal != null ? oldTotal : 0) + delta);
+        if (newTotal == 0 && containerToItems.get(container).isEmpty()) {
+            containerToWorkrate.remove(container);
+        } else {
+            containerToWorkrate.put(container, newTotal);
+        }
+        
+        ContainerLoad<ContainerType> load = containerToLoad.get(container);
+        if (load != null) {
+            // re-insert, as its position depends on the total
+            containersByLoad.remove(load);
+            load.totalWorkrate = newTotal;
+            containersByLoad.add(load);
+        }
+    }
+    
     
     // Additional methods for tests.
 
@@ -260,4 +356,30 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         return (container != null) ? container : nullContainer();
     }
     
+    /** A container's total workrate relative to its high threshold, ordered by that and then by when it was added */
+    private static class ContainerLoad<ContainerType> implements Comparable<ContainerLoad<ContainerType>> {
+        final ContainerType container;
+        final long sequence;
+        final double highThreshold;
+        double totalWorkrate;
+        
+        ContainerLoad(ContainerType container, long sequence, double highThreshold, double totalWorkrate) {
+            this.container = container;
+            this.sequence = sequence;
+            this.highThreshold = highThreshold;
+            this.totalWorkrate = totalWorkrate;
+        }
+        
+        /** negative for spare capacity, positive for overshoot */
+        double getLoad() {
+            return totalWorkrate - highThreshold;
+        }
+        
+        @Override
+        public int compareTo(ContainerLoad<ContainerType> other) {
+            int result = Double.compare(getLoad(), other.getLoad());
+            return (result != 0) ? result : (sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1));
+        }
+    }
+    
 }
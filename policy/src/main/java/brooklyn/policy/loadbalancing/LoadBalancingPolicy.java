@@ -5,9 +5,6 @@ import static brooklyn.util.GroovyJavaMethods.truth;
 
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,7 +27,6 @@ import brooklyn.util.flags.SetFromFlag;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -62,7 +58,6 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     private final BalancingStrategy<NodeType, ItemType> strategy;
     private BalanceableWorkerPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
 
@@ -108,9 +103,6 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
         this.highThresholdConfigKeyName = metric.getName()+".threshold.high";
         this.model = model;
         this.strategy = new BalancingStrategy(getName(), model); // TODO: extract interface, inject impl
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @Override
@@ -140,31 +132,23 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     @Override
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
-        super.suspend();
-        if (executor != null) executor.shutdownNow();;
+        super.suspend(); // cancels any scheduled job
         executorQueued.set(false);
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
-    }
-
     private void scheduleRebalance() {
         if (isRunning() && executorQueued.compareAndSet(false, true)) {
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule(new Runnable() {
                 public void run() {
                     try {
                         executorTime = System.currentTimeMillis();
@@ -22,8 +22,14 @@ public class PolicyUtilForPool<ContainerType, ItemType> {
     /**
      * Identifies the container with the maximum spare capacity (highThreshold - currentWorkrate),
      * returns null if none of the model's nodes has spare capacity.
+     * <p>
+     * For a {@link DefaultBalanceablePoolModel}, uses its containers ordered by load rather than examining each.
      */
     public ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        if (model instanceof DefaultBalanceablePoolModel) {
+            return ((DefaultBalanceablePoolModel<ContainerType, ItemType>)model).findColdestContainer(excludedContainers, locationConstraint);
+        }
+        
         double maxSpareCapacity = 0;
         ContainerType coldest = null;
         
@@ -51,8 +57,14 @@ public class PolicyUtilForPool<ContainerType, ItemType> {
     /**
      * Identifies the container with the maximum overshoot (currentWorkrate - highThreshold),
      * returns null if none of the model's  nodes has an overshoot.
+     * <p>
+     * For a {@link DefaultBalanceablePoolModel}, uses its containers ordered by load rather than examining each.
      */
     public ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        if (model instanceof DefaultBalanceablePoolModel) {
+            return ((DefaultBalanceablePoolModel<ContainerType, ItemType>)model).findHottestContainer(excludedContainers);
+        }
+        
         double maxOvershoot = 0;
         ContainerType hottest = null;
         
@@ -86,4 +86,61 @@ public class LoadBalancingModelTest {
         assertEquals(model.getContainerWorkrates(), ImmutableMap.of(container1, 0d, container2, 123d));
         assertEquals(model.getCurrentPoolWorkrate(), 123d);
     }
+    
+    @Test
+    public void testContainerWorkratesFollowItemWorkrateChangesAndRemoval() throws Exception {
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container1, false);
+        model.onItemWorkrateUpdated(item1, 5d);
+        model.onItemWorkrateUpdated(item2, 7d);
+        assertEquals(model.getTotalWorkrate(container1), 12d, PRECISION);
+        
+        model.onItemWorkrateUpdated(item1, 1d);
+        assertEquals(model.getTotalWorkrate(container1), 8d, PRECISION);
+        
+        model.onItemRemoved(item2);
+        assertEquals(model.getTotalWorkrate(container1), 1d, PRECISION);
+    }
+    
+    @Test
+    public void testContainerWorkrateIncludesItemsReportedBeforeContainerAdded() throws Exception {
+        model.onItemAdded(item1, container1, false);
+        model.onItemWorkrateUpdated(item1, 30d);
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onContainerAdded(container2, 10d, 20d);
+        
+        assertEquals(model.getTotalWorkrate(container1), 30d, PRECISION);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container1);
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container2);
+    }
+    
+    @Test
+    public void testFindsHottestAndColdestContainers() throws Exception {
+        MockContainerEntity container3 = new MockContainerEntityImpl();
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onContainerAdded(container2, 10d, 20d);
+        model.onContainerAdded(container3, 10d, 20d);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container2, false);
+        model.onItemAdded(item3, container3, false);
+        model.onItemWorkrateUpdated(item1, 30d);
+        model.onItemWorkrateUpdated(item2, 25d);
+        model.onItemWorkrateUpdated(item3, 5d);
+        
+        PolicyUtilForPool<MockContainerEntity, MockItemEntity> helper = new PolicyUtilForPool<MockContainerEntity, MockItemEntity>(model);
+        assertEquals(helper.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container1);
+        assertEquals(helper.findHottestContainer(ImmutableSet.of(container1)), container2);
+        assertEquals(helper.findHottestContainer(ImmutableSet.of(container1, container2)), null);
+        assertEquals(helper.findColdestContainer(ImmutableSet.<MockContainerEntity>of()), container3);
+        assertEquals(helper.findColdestContainer(ImmutableSet.of(container3)), null);
+        
+        // moving the hot item makes its old container the coldest, and its new container the hottest
+        model.onItemMoved(item1, container3);
+        assertEquals(helper.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container3);
+        assertEquals(helper.findColdestContainer(ImmutableSet.<MockContainerEntity>of()), container1);
+        
+        model.onContainerRemoved(container3);
+        assertEquals(helper.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container2);
+    }
 }
@@ -0,0 +1,87 @@
+package brooklyn.qa.performance;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.policy.loadbalancing.DefaultBalanceablePoolModel;
+import brooklyn.policy.loadbalancing.PolicyUtilForPool;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the pool model operations used when rebalancing, over a synthetic pool with many items per container.
+ */
+public class LoadBalancingPoolModelPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_CONTAINERS = 100;
+    private static final int NUM_ITEMS = 10000;
+
+    private DefaultBalanceablePoolModel<String, String> model;
+    private PolicyUtilForPool<String, String> helper;
+    private List<String> containers;
+    private List<String> items;
+    private Random random;
+
+    protected int numIterations() {
+        return 100000;
+    }
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() {
+        super.setUp();
+        random = new Random(1234);
+        model = new DefaultBalanceablePoolModel<String, String>("perf-pool");
+        helper = new PolicyUtilForPool<String, String>(model);
+        containers = Lists.newArrayList();
+        items = Lists.newArrayList();
+        for (int i = 0; i < NUM_CONTAINERS; i++) {
+            String container = "container-"+i;
+            containers.add(container);
+            model.onContainerAdded(container, 1000, 2000);
+        }
+        for (int i = 0; i < NUM_ITEMS; i++) {
+            String item = "item-"+i;
+            items.add(item);
+            model.onItemAdded(item, containers.get(i % NUM_CONTAINERS));
+            model.onItemWorkrateUpdated(item, random.nextInt(40));
+        }
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetContainerWorkrates() {
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+
+        measureAndAssert("getContainerWorkrates", numIterations() / 10, minRatePerSec, new Runnable() {
+            public void run() {
+                model.getContainerWorkrates();
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testFindHottestAndColdestContainers() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+
+        measureAndAssert("findHottestAndColdestContainers", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                helper.findHottestContainer(ImmutableSet.<String>of());
+                helper.findColdestContainer(ImmutableSet.<String>of());
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testWorkrateUpdatesAndMoves() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+
+        measureAndAssert("workrateUpdatesAndMoves", numIterations(), minRatePerSec, new Runnable() {
+            public void run() {
+                String item = items.get(random.nextInt(NUM_ITEMS));
+                model.onItemWorkrateUpdated(item, random.nextInt(40));
+                model.onItemMoved(item, containers.get(random.nextInt(NUM_CONTAINERS)));
+            }});
+    }
+}
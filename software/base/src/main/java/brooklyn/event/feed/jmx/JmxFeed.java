@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.Notification;
 import javax.management.NotificationFilter;
@@ -25,8 +26,11 @@ import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
@@ -140,6 +144,10 @@ public class JmxFeed extends AbstractFeed {
     private final SetMultimap<List<?>, JmxOperationPollConfig<?>> operationPolls = HashMultimap.<List<?>,JmxOperationPollConfig<?>>create();
     private final SetMultimap<NotificationFilter, JmxNotificationSubscriptionConfig<?>> notificationSubscriptions = HashMultimap.create();
     private final SetMultimap<ObjectName, NotificationListener> notificationListeners = HashMultimap.create();
+    
+    private final AtomicLong roundTripCount = new AtomicLong();
+    private final AtomicLong roundTripTotalNanos = new AtomicLong();
+    private volatile long lastRoundTripNanos;
 
     protected JmxFeed(Builder builder) {
         super(builder.entity);
@@ -167,6 +175,28 @@ public class JmxFeed extends AbstractFeed {
         return jmxUri;
     }
     
+    /** the number of requests made to the MBean server by polls of this feed (each poll of several attributes being one) */
+    public long getRoundTripCount() {
+        return roundTripCount.get();
+    }
+    
+    /** the mean time taken by requests made to the MBean server by polls of this feed, or 0 if none yet */
+    public double getMeanRoundTripMillis() {
+        long count = roundTripCount.get();
+        return (count == 0) ? 0 : ((double) roundTripTotalNanos.get() / count) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    public long getLastRoundTripMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastRoundTripNanos);
+    }
+    
+    private void onRoundTrip(long startTime) {
+        long duration = System.nanoTime() - startTime;
+        lastRoundTripNanos = duration;
+        roundTripTotalNanos.addAndGet(duration);
+        roundTripCount.incrementAndGet();
+    }
+    
     @VisibleForTesting
     @SuppressWarnings("unchecked")
     protected Poller<Object> getPoller() {
@@ -217,9 +247,7 @@ public class JmxFeed extends AbstractFeed {
         }
         
         // Setup polling of sensors
-        for (final String jmxAttributeName : attributePolls.keys()) {
-            registerAttributePoller(attributePolls.get(jmxAttributeName));
-        }
+        registerAttributePollers();
         
         // Setup polling of operations
         for (final List<?> operationIdentifier : operationPolls.keys()) {
@@ -264,10 +292,15 @@ public class JmxFeed extends AbstractFeed {
                 new Callable<Object>() {
                     public Object call() throws Exception {
                         if (log.isDebugEnabled()) log.debug("jmx operation polling for {} sensors at {} -> {}", new Object[] {getEntity(), jmxUri, operationName});
-                        if (signature.size() == params.size()) {
-                            return helper.operation(objectName, operationName, signature, params);
-                        } else {
-                            return helper.operation(objectName, operationName, params.toArray());
+                        long startTime = System.nanoTime();
+                        try {
+                            if (signature.size() == params.size()) {
+                                return helper.operation(objectName, operationName, signature, params);
+                            } else {
+                                return helper.operation(objectName, operationName, params.toArray());
+                            }
+                        } finally {
+                            onRoundTrip(startTime);
                         }
                     }
                 }, 
@@ -275,31 +308,165 @@ public class JmxFeed extends AbstractFeed {
     }
 
     /**
-     * Registers to poll a jmx-attribute for an ObjectName, where all the given configs are for that same ObjectName + attribute.
+     * Registers to poll all the jmx-attributes. Each attribute is polled at the minimum period of its configs;
+     * the attributes of an ObjectName polled at the same period are then fetched together, in one request.
      */
-    private void registerAttributePoller(Set<JmxAttributePollConfig<?>> configs) {
-        Set<AttributePollHandler<Object>> handlers = Sets.newLinkedHashSet();
-        long minPeriod = Integer.MAX_VALUE;
-        
-        final ObjectName objectName = Iterables.get(configs, 0).getObjectName();
-        final String jmxAttributeName = Iterables.get(configs, 0).getAttributeName();
+    private void registerAttributePollers() {
+        Map<List<?>, Map<String, Set<JmxAttributePollConfig<?>>>> groups = Maps.newLinkedHashMap();
+        for (String jmxAttributeKey : attributePolls.keySet()) {
+            Set<JmxAttributePollConfig<?>> configs = attributePolls.get(jmxAttributeKey);
+            JmxAttributePollConfig<?> config = Iterables.get(configs, 0);
+            List<?> groupKey = ImmutableList.of(config.getObjectName(), getMinPeriod(configs));
+            Map<String, Set<JmxAttributePollConfig<?>>> group = groups.get(groupKey);
+            if (group == null) {
+                group = Maps.newLinkedHashMap();
+                groups.put(groupKey, group);
+            }
+            group.put(config.getAttributeName(), configs);
+        }
         
+        for (Map.Entry<List<?>, Map<String, Set<JmxAttributePollConfig<?>>>> entry : groups.entrySet()) {
+            ObjectName objectName = (ObjectName) entry.getKey().get(0);
+            long period = (Long) entry.getKey().get(1);
+            if (entry.getValue().size() == 1) {
+                registerAttributePoller(Iterables.getOnlyElement(entry.getValue().values()), period);
+            } else {
+                registerAttributesPoller(objectName, entry.getValue(), period);
+            }
+        }
+    }
+    
+    private long getMinPeriod(Set<? extends JmxAttributePollConfig<?>> configs) {
+        long minPeriod = Integer.MAX_VALUE;
         for (JmxAttributePollConfig<?> config : configs) {
-            handlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
             if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
         }
+        return minPeriod;
+    }
+    
+    /**
+     * Registers to poll a jmx-attribute for an ObjectName, where all the given configs are for that same ObjectName + attribute.
+     */
+    private void registerAttributePoller(Set<JmxAttributePollConfig<?>> configs, long period) {
+        final ObjectName objectName = Iterables.get(configs, 0).getObjectName();
+        final String jmxAttributeName = Iterables.get(configs, 0).getAttributeName();
         
         // TODO Not good calling this holding the synchronization lock
         getPoller().scheduleAtFixedRate(
                 new Callable<Object>() {
                     public Object call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("jmx attribute polling for {} sensors at {} -> {}", new Object[] {getEntity(), jmxUri, jmxAttributeName});
-                        return helper.getAttribute(objectName, jmxAttributeName);
+                        return getAttribute(objectName, jmxAttributeName);
                     }
                 }, 
-                new DelegatingPollHandler(handlers), minPeriod);
+                newAttributePollHandler(configs), period);
+    }
+
+    /**
+     * Registers to poll several jmx-attributes of an ObjectName with a single request, where the given configs are 
+     * keyed by attribute name.
+     */
+    private void registerAttributesPoller(final ObjectName objectName, Map<String, Set<JmxAttributePollConfig<?>>> configsByAttribute, long period) {
+        Map<String, PollHandler<Object>> handlers = Maps.newLinkedHashMap();
+        for (Map.Entry<String, Set<JmxAttributePollConfig<?>>> entry : configsByAttribute.entrySet()) {
+            handlers.put(entry.getKey(), newAttributePollHandler(entry.getValue()));
+        }
+        final Set<String> jmxAttributeNames = ImmutableSet.copyOf(handlers.keySet());
+        
+        getPoller().scheduleAtFixedRate(
+                new Callable<Object>() {
+                    public Object call() throws Exception {
+                        if (log.isTraceEnabled()) log.trace("jmx attributes polling for {} sensors at {} -> {}", new Object[] {getEntity(), jmxUri, jmxAttributeNames});
+                        long startTime = System.nanoTime();
+                        try {
+                            return helper.getAttributes(objectName, jmxAttributeNames);
+                        } finally {
+                            onRoundTrip(startTime);
+                        }
+                    }
+                }, 
+                new AttributesPollHandler(objectName, handlers), period);
+    }
+    
+    private PollHandler<Object> newAttributePollHandler(Set<JmxAttributePollConfig<?>> configs) {
+        Set<AttributePollHandler<Object>> handlers = Sets.newLinkedHashSet();
+        for (JmxAttributePollConfig<?> config : configs) {
+            handlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
+        }
+        return new DelegatingPollHandler(handlers);
     }
+    
+    private Object getAttribute(ObjectName objectName, String jmxAttributeName) {
+        long startTime = System.nanoTime();
+        try {
+            return helper.getAttribute(objectName, jmxAttributeName);
+        } finally {
+            onRoundTrip(startTime);
+        }
+    }
+    
+    /**
+     * Passes each value from a map of attribute name to value to the handler for that attribute. An attribute 
+     * missing from the map is fetched on its own, so its handler is told the reason it could not be read.
+     */
+    private class AttributesPollHandler implements PollHandler<Object> {
+        private final ObjectName objectName;
+        private final Map<String, PollHandler<Object>> handlers;
+        
+        AttributesPollHandler(ObjectName objectName, Map<String, PollHandler<Object>> handlers) {
+            this.objectName = objectName;
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public boolean checkSuccess(Object val) {
+            // checked per attribute, in onSuccess
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onSuccess(Object val) {
+            Map<String, Object> values = (Map<String, Object>) val;
+            for (Map.Entry<String, PollHandler<Object>> entry : handlers.entrySet()) {
+                PollHandler<Object> handler = entry.getValue();
+                Object value;
+                if (values.containsKey(entry.getKey())) {
+                    value = values.get(entry.getKey());
+                } else {
+                    try {
+                        value = getAttribute(objectName, entry.getKey());
+                    } catch (Exception e) {
+                        handler.onException(e);
+                        continue;
+                    }
+                }
+                if (handler.checkSuccess(value)) {
+                    handler.onSuccess(value);
+                } else {
+                    handler.onFailure(value);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Object val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            onException(error);
+        }
 
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<Object> handler : handlers.values()) {
+                handler.onException(exception);
+            }
+        }
+    }
+    
     /**
      * Registers to subscribe to notifications for an ObjectName, where all the given configs are for that same ObjectName + filter.
      */
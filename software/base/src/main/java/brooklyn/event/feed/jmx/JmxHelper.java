@@ -9,6 +9,7 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -18,6 +19,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -62,6 +64,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 
 public class JmxHelper {
 
@@ -548,6 +551,39 @@ public class JmxHelper {
         }
     }
 
+    /**
+     * Gets the values of several attributes of the given MBean, in a single request.
+     * <p>
+     * Returns a map of attribute name to value. Attributes which could not be read (e.g. because they do not exist)
+     * are omitted from the map, so callers can use {@link #getAttribute(ObjectName, String)} to find out why.
+     * If no MBean matches the given object name pattern, then all values are null (as for getAttribute).
+     */
+    public Map<String, Object> getAttributes(ObjectName objectName, Collection<String> attributes) {
+        final ObjectName realObjectName = toLiteralObjectName(objectName);
+        Map<String, Object> result = Maps.newLinkedHashMap();
+
+        if (realObjectName != null) {
+            final String[] attributeNames = attributes.toArray(new String[attributes.size()]);
+            AttributeList attributeList = invokeWithReconnect(new Callable<AttributeList>() {
+                    public AttributeList call() throws Exception {
+                        return getConnectionOrFail().getAttributes(realObjectName, attributeNames);
+                    }});
+
+            for (Object attribute : attributeList) {
+                String name = ((javax.management.Attribute)attribute).getName();
+                if (attributes.contains(name)) {
+                    result.put(name, ((javax.management.Attribute)attribute).getValue());
+                }
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attributes {}.{}, got values {}", new Object[] {url, objectName.getCanonicalName(), attributes, result});
+        } else {
+            for (String attribute : attributes) {
+                result.put(attribute, null);
+            }
+        }
+        return result;
+    }
+
     public void setAttribute(String objectName, String attribute, Object val) {
         setAttribute(createObjectName(objectName), attribute, val);
     }
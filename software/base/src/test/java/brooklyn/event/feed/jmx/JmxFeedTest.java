@@ -141,6 +141,37 @@ public class JmxFeedTest {
         assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
     }
 
+    @Test
+    public void testJmxAttributesOfSameMBeanPolledTogether() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "mystringattrib", "abc"), objectName);
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .period(50)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .attributeName(attributeName))
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .attributeName("mystringattrib"))
+                .build();
+
+        assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+
+        mbean.updateAttributeValue(attributeName, 64);
+        mbean.updateAttributeValue("mystringattrib", "def");
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "def", TIMEOUT_MS);
+
+        // one request per poll, for both attributes (allowing for a poll in progress)
+        feed.suspend();
+        long polls = feed.getPollMetrics().getPollCount();
+        long roundTrips = feed.getRoundTripCount();
+        assertTrue(polls > 0, "polls="+polls);
+        assertTrue(roundTrips <= polls + 1, "roundTrips="+roundTrips+"; polls="+polls);
+    }
+
     @Test
     public void testJmxAttributeOfTypeTabularDataProviderConvertedToMap() throws Exception {
         // Create the CompositeType and TabularData
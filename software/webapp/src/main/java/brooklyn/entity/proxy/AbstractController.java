@@ -47,11 +47,22 @@ public interface AbstractController extends SoftwareProcess, LoadBalancer {
     public static final BasicConfigKey<ProxySslConfig> SSL_CONFIG = 
         new BasicConfigKey<ProxySslConfig>(ProxySslConfig.class, "proxy.ssl.config", "configuration (e.g. certificates) for SSL; will use SSL if set, not use SSL if not set");
 
+    @SetFromFlag("reconfigureCoalescePeriod")
+    public static final BasicConfigKey<Long> RECONFIGURE_COALESCE_PERIOD = new BasicConfigKey<Long>(
+            Long.class, "proxy.reconfigure.coalescePeriod", "Period (in milliseconds) over which changes to the targets are " +
+            "batched into a single asynchronous update; changes during an update are always batched into the next", 500L);
+
     public static final AttributeSensor<String> ROOT_URL = WebAppService.ROOT_URL;
     
     public static final BasicAttributeSensor<Set<String>> SERVER_POOL_TARGETS = new BasicAttributeSensor(
             Set.class, "proxy.serverpool.targets", "The downstream targets in the server pool");
     
+    public static final BasicAttributeSensor<Long> RECONFIGURE_LATENCY = new BasicAttributeSensor<Long>(
+            Long.class, "proxy.reconfigure.latency", "Time (in milliseconds) from a change to the targets until the last update applying it completed");
+    
+    public static final BasicAttributeSensor<Integer> RECONFIGURE_COALESCED_CHANGES = new BasicAttributeSensor<Integer>(
+            Integer.class, "proxy.reconfigure.coalescedChanges", "Number of changes to the targets applied by the last update");
+    
     /**
      * @deprecated Use SERVER_POOL_TARGETS
      */
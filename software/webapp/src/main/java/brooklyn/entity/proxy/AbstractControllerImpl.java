@@ -6,6 +6,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -26,7 +27,9 @@ import brooklyn.entity.rebind.RebindSupport;
 import brooklyn.entity.trait.Startable;
 import brooklyn.event.AttributeSensor;
 import brooklyn.location.access.BrooklynAccessUtils;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.mementos.EntityMemento;
+import brooklyn.policy.basic.PolicyScheduler;
 import brooklyn.util.collections.MutableMap;
 
 import com.google.common.base.Function;
@@ -45,6 +48,8 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
     // will also call update/reload while holding the lock. This is "conservative", but means
     // sub-classes need to be extremely careful about any additional synchronization and of
     // their implementations of update/reconfigureService/reload.
+    // Changes to the server pool do not call update directly, but request one (see requestUpdate), 
+    // which is run asynchronously so that the lock is not held by the caller during the update.
     
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractControllerImpl.class);
 
@@ -55,6 +60,13 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
     protected Set<String> serverPoolAddresses = Sets.newLinkedHashSet();
     protected Map<Entity,String> serverPoolTargets = Maps.newLinkedHashMap();
     
+    private final Object pendingUpdateMutex = new Object();
+    // guarded by pendingUpdateMutex
+    private int pendingChanges = 0;
+    private long firstPendingChangeTime;
+    private boolean updateScheduled = false;
+    private PolicyScheduler.SerialScheduler updateScheduler;
+    
     public AbstractControllerImpl() {
         this(MutableMap.of(), null, null);
     }
@@ -116,6 +128,7 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
         super.onManagementNoLongerMaster();
         isActive = false;
         serverPoolMemberTrackerPolicy.reset();
+        cancelRequestedUpdates();
     }
 
     private Group getServerPool() {
@@ -228,6 +241,7 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
     protected void preStop() {
         super.preStop();
         serverPoolMemberTrackerPolicy.reset();
+        cancelRequestedUpdates();
     }
 
     /** 
@@ -236,19 +250,77 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
      */
     protected abstract void reconfigureService();
     
+    /**
+     * Updates the configuration as for {@link #reconfigureService()}, returning false if it was unchanged
+     * (in which case the caller will not reload). Defaults to assuming it has changed.
+     */
+    protected boolean reconfigureServiceIfChanged() {
+        reconfigureService();
+        return true;
+    }
+    
     @Override
     public synchronized void update() {
         if (!isActive()) updateNeeded = true;
         else {
             updateNeeded = false;
             LOG.debug("Updating {} in response to changes", this);
-            reconfigureService();
-            LOG.debug("Reloading {} in response to changes", this);
-            invoke(RELOAD);
+            if (reconfigureServiceIfChanged()) {
+                LOG.debug("Reloading {} in response to changes", this);
+                invoke(RELOAD);
+            } else {
+                LOG.debug("Not reloading {} as configuration unchanged", this);
+            }
         }
         setAttribute(SERVER_POOL_TARGETS, serverPoolAddresses);
     }
 
+    /**
+     * Requests an {@link #update()} in response to a change (e.g. to the server pool). The update is
+     * run asynchronously, after the {@link #RECONFIGURE_COALESCE_PERIOD}; all changes requested until
+     * it starts are applied by that one update.
+     */
+    protected void requestUpdate() {
+        synchronized (pendingUpdateMutex) {
+            if (pendingChanges++ == 0) firstPendingChangeTime = System.currentTimeMillis();
+            if (updateScheduled) return;
+            updateScheduled = true;
+            if (updateScheduler == null) {
+                updateScheduler = ((ManagementContextInternal)getManagementContext()).getPolicyScheduler().newSerialScheduler("update:"+this);
+            }
+        }
+        Long period = getConfig(RECONFIGURE_COALESCE_PERIOD);
+        updateScheduler.schedule(new Runnable() {
+                public void run() {
+                    runRequestedUpdate();
+                }}, (period != null) ? period : 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void runRequestedUpdate() {
+        int changes;
+        long firstChangeTime;
+        synchronized (pendingUpdateMutex) {
+            updateScheduled = false;
+            changes = pendingChanges;
+            firstChangeTime = firstPendingChangeTime;
+            pendingChanges = 0;
+        }
+        if (changes == 0) return;
+        
+        if (LOG.isDebugEnabled()) LOG.debug("Updating {} for {} coalesced change(s)", this, changes);
+        update();
+        setAttribute(RECONFIGURE_COALESCED_CHANGES, changes);
+        setAttribute(RECONFIGURE_LATENCY, System.currentTimeMillis() - firstChangeTime);
+    }
+
+    private void cancelRequestedUpdates() {
+        synchronized (pendingUpdateMutex) {
+            if (updateScheduler != null) updateScheduler.cancelAll();
+            updateScheduled = false;
+            pendingChanges = 0;
+        }
+    }
+
     protected synchronized void resetServerPoolMemberTrackerPolicy() {
         serverPoolMemberTrackerPolicy.reset();
         serverPoolAddresses.clear();
@@ -313,7 +385,7 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
 
         LOG.info("Adding to {}, new member {} with address {}", new Object[] {this, member, address});
         
-        update();
+        requestUpdate();
         serverPoolTargets.put(member, address);
     }
     
@@ -330,7 +402,7 @@ public abstract class AbstractControllerImpl extends SoftwareProcessImpl impleme
         
         LOG.info("Removing from {}, member {} with address {}", new Object[] {this, member, address});
         
-        update();
+        requestUpdate();
         serverPoolTargets.remove(member);
     }
     
@@ -30,6 +30,7 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.internal.TimeExtras;
 import brooklyn.util.text.Strings;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Predicates;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
@@ -38,6 +39,8 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 
 /**
  * An entity that represents an Nginx proxy (e.g. for routing requests to servers in a cluster).
@@ -64,6 +67,9 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
 
     private volatile HttpFeed httpFeed;
     
+    /** hash of the config file last copied to the server, or null if it should be copied regardless */
+    private volatile HashCode lastConfigHash;
+    
     public NginxControllerImpl() {
         super();
     }
@@ -128,14 +134,14 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
             // Listen to the targets of each url-mapping changing
             subscribeToMembers(urlMappings, UrlMapping.TARGET_ADDRESSES, new SensorEventListener<Collection<String>>() {
                     @Override public void onEvent(SensorEvent<Collection<String>> event) {
-                        update(); 
+                        requestUpdate(); 
                     }});
             
             // Listen to url-mappings being added and removed
             AbstractMembershipTrackingPolicy policy = new AbstractMembershipTrackingPolicy() {
-                @Override protected void onEntityChange(Entity member) { update(); }
-                @Override protected void onEntityAdded(Entity member) { update(); }
-                @Override protected void onEntityRemoved(Entity member) { update(); }
+                @Override protected void onEntityChange(Entity member) { requestUpdate(); }
+                @Override protected void onEntityAdded(Entity member) { requestUpdate(); }
+                @Override protected void onEntityRemoved(Entity member) { requestUpdate(); }
             };
             addPolicy(policy);
             policy.setGroup(urlMappings);
@@ -148,6 +154,7 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
         // And don't want stop to race with the last poll.
         super.stop();
         setAttribute(SERVICE_UP, false);
+        lastConfigHash = null;
     }
     
     @Override
@@ -163,6 +170,8 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
     }
 
     public void doExtraConfigurationDuringStart() {
+        // the server may be new, so copy the config regardless
+        lastConfigHash = null;
         reconfigureService();
     }
 
@@ -173,17 +182,31 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
     
     @Override
     protected void reconfigureService() {
+        reconfigureServiceIfChanged();
+    }
+    
+    /**
+     * Copies the config file (and any SSL keys) to the server, unless it is the same as that last copied.
+     */
+    @Override
+    protected boolean reconfigureServiceIfChanged() {
 
         String cfg = getConfigFile();
-        if (cfg==null) return;
+        if (cfg==null) return false;
+        
+        HashCode cfgHash = Hashing.md5().hashString(cfg, Charsets.UTF_8);
+        if (cfgHash.equals(lastConfigHash)) {
+            if (LOG.isDebugEnabled()) LOG.debug("Not reconfiguring {}, as config file unchanged", this);
+            return false;
+        }
         
         if (LOG.isDebugEnabled()) LOG.debug("Reconfiguring {}, targetting {} and {}", new Object[] {this, serverPoolAddresses, findUrlMappings()});
         if (LOG.isTraceEnabled()) LOG.trace("Reconfiguring {}, config file:\n{}", this, cfg);
         
         NginxSshDriver driver = (NginxSshDriver)getDriver();
         if (!driver.isCustomizationCompleted()) {
-            if (LOG.isDebugEnabled()) LOG.debug("Reconfiguring {}, but driver's customization not yet complete so aborting");
-            return;
+            if (LOG.isDebugEnabled()) LOG.debug("Reconfiguring {}, but driver's customization not yet complete so aborting", this);
+            return false;
         }
         
         driver.getMachine().copyTo(new ByteArrayInputStream(cfg.getBytes()), driver.getRunDir()+"/conf/server.conf");
@@ -194,6 +217,9 @@ public class NginxControllerImpl extends AbstractControllerImpl implements Nginx
             //cache ensures only the first is installed, which is what is assumed below
             installSslKeys(mapping.getDomain(), mapping.getConfig(UrlMapping.SSL_CONFIG));
         }
+        
+        lastConfigHash = cfgHash;
+        return true;
     }
     
     private final Set<String> installedKeysCache = Sets.newLinkedHashSet();
@@ -1,6 +1,7 @@
 package brooklyn.entity.proxy;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.net.Inet4Address;
@@ -60,6 +61,7 @@ public class AbstractControllerTest {
     
     FixedListMachineProvisioningLocation loc;
     List<Collection<String>> updates;
+    AtomicInteger reconfigureCount;
 
     @BeforeMethod(alwaysRun = true)
     public void setUp() {
@@ -73,6 +75,7 @@ public class AbstractControllerTest {
         }
         loc = new FixedListMachineProvisioningLocation<SshMachineLocation>(MutableMap.of("machines", machines));
         updates = new CopyOnWriteArrayList<Collection<String>>();
+        reconfigureCount = new AtomicInteger(0);
         
         app = ApplicationBuilder.newManagedApp(TestApplication.class);
         cluster = app.createAndManageChild(EntitySpecs.spec(DynamicCluster.class)
@@ -95,6 +98,7 @@ public class AbstractControllerTest {
             @Override
             protected void reconfigureService() {
                 log.info("test controller reconfigure, addresses "+serverPoolAddresses);
+                reconfigureCount.incrementAndGet();
                 if ((!serverPoolAddresses.isEmpty() && updates.isEmpty()) || (!updates.isEmpty() && serverPoolAddresses!=updates.get(updates.size()-1))) {
                     updates.add(serverPoolAddresses);
                 }
@@ -184,6 +188,27 @@ public class AbstractControllerTest {
         assertEventuallyAddressesMatch(ImmutableList.<Entity>of());
     }
 
+    @Test
+    public void testChangesToServerPoolCoalescedIntoFewerUpdates() {
+        cluster.resize(5);
+        int reconfiguresBefore = reconfigureCount.get();
+        
+        for (Entity it: cluster.getChildren()) { 
+            ((EntityLocal)it).setAttribute(ClusteredEntity.HTTP_PORT, 1234);
+            ((EntityLocal)it).setAttribute(Startable.SERVICE_UP, true);
+        }
+        assertEventuallyAddressesMatchCluster();
+        
+        // all five members were added within the coalesce period of the first
+        assertTrue(reconfigureCount.get() - reconfiguresBefore < 5, "reconfigures="+(reconfigureCount.get() - reconfiguresBefore));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertNotNull(controller.getAttribute(AbstractController.RECONFIGURE_LATENCY));
+                assertNotNull(controller.getAttribute(AbstractController.RECONFIGURE_COALESCED_CHANGES));
+            }});
+    }
+
     private void assertEventuallyAddressesMatchCluster() {
         assertEventuallyAddressesMatch(cluster.getChildren());
     }
@@ -7,11 +7,12 @@ import com.wordnik.swagger.core.ApiError;
 import com.wordnik.swagger.core.ApiErrors;
 import com.wordnik.swagger.core.ApiOperation;
 import com.wordnik.swagger.core.ApiParam;
-import org.codehaus.jackson.JsonNode;
 
 import javax.validation.Valid;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 @Path("/v1/applications")
@@ -23,9 +24,10 @@ public interface ApplicationApi {
   @GET
   @Path("/tree")
   @ApiOperation(
-      value = "Fetch applications and entities tree hierarchy"
+      value = "Fetch applications and entities tree hierarchy",
+      notes = "Supports If-None-Match, returning 304 if the hierarchy has not changed since the given ETag"
   )
-  public JsonNode applicationTree();
+  public Response applicationTree(@Context Request request);
    
 
   @GET
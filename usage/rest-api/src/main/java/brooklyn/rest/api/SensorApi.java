@@ -8,9 +8,11 @@ import com.wordnik.swagger.core.ApiOperation;
 import com.wordnik.swagger.core.ApiParam;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import java.util.List;
-import java.util.Map;
 
 @Path("/v1/applications/{application}/entities/{entity}/sensors")
 @Apidoc("Entity sensors")
@@ -34,12 +36,14 @@ public interface SensorApi {
 
   @GET
   @Path("/current-state")
-  @ApiOperation(value = "Fetch sensor values in batch", notes="Returns a map of sensor name to value")
-  public Map<String, Object> batchSensorRead(
+  @ApiOperation(value = "Fetch sensor values in batch", notes="Returns a map of sensor name to value; " +
+          "supports If-None-Match, returning 304 if no sensor has changed since the given ETag")
+  public Response batchSensorRead(
           @ApiParam(value = "Application ID or name", required = true)
           @PathParam("application") final String application,
           @ApiParam(value = "Entity ID or name", required = true)
-          @PathParam("entity") final String entityToken
+          @PathParam("entity") final String entityToken,
+          @Context Request request
       ) ;
 
   @GET
@@ -17,6 +17,8 @@ import org.codehaus.jackson.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.net.URI;
 
@@ -33,11 +35,16 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
   private final ObjectMapper mapper = new ObjectMapper();
 
   @Override
-  public JsonNode applicationTree() {
+  public Response applicationTree(Request request) {
+    // tag taken before walking the tree, so a concurrent change gives a stale tag rather than a stale tree
+    EntityTag tag = brooklyn().getEntityTreeTag();
+    Response notModified = BrooklynRestResourceUtils.evaluatePreconditions(request, tag);
+    if (notModified != null) return notModified;
+
     ArrayNode apps = mapper.createArrayNode();
     for (Application application : mgmt().getApplications())
       apps.add(recursiveTreeFromEntity(application));
-    return apps;
+    return Response.ok(apps).tag(tag).build();
   }
   private JsonNode recursiveTreeFromEntity(Entity entity) {
     ObjectNode aRoot = mapper.createObjectNode();
@@ -7,6 +7,7 @@ import brooklyn.event.basic.BasicAttributeSensor;
 import brooklyn.rest.api.SensorApi;
 import brooklyn.rest.transform.SensorTransformer;
 import brooklyn.rest.domain.SensorSummary;
+import brooklyn.rest.util.BrooklynRestResourceUtils;
 import brooklyn.rest.util.JsonUtils;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -14,6 +15,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import java.util.List;
 import java.util.Map;
 
@@ -43,9 +47,13 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
   }
 
   @Override
-  public Map<String, Object> batchSensorRead(final String application, final String entityToken
-      ) {
+  public Response batchSensorRead(final String application, final String entityToken, Request request) {
     final EntityLocal entity = brooklyn().getEntity(application, entityToken);
+    // tag taken before reading values, so a concurrent change gives a stale tag (and a later re-read) rather than stale values
+    EntityTag tag = brooklyn().getAttributesTag(entity);
+    Response notModified = BrooklynRestResourceUtils.evaluatePreconditions(request, tag);
+    if (notModified != null) return notModified;
+
     Map<String, Object> sensorMap = Maps.newHashMap();
     List<Sensor<?>> sensors = Lists.newArrayList(filter(entity.getEntityType().getSensors(),
         new Predicate<Sensor<?>>() {
@@ -60,7 +68,7 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
       // TODO type
       sensorMap.put(sensor.getName(), JsonUtils.toJsonable(value));
     }
-    return sensorMap;
+    return Response.ok(sensorMap).tag(tag).build();
   }
 
   @Override
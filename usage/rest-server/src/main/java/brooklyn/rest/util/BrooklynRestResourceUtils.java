@@ -13,7 +13,10 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Future;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +40,7 @@ import brooklyn.location.Location;
 import brooklyn.location.LocationRegistry;
 import brooklyn.management.ManagementContext;
 import brooklyn.management.Task;
+import brooklyn.management.internal.LocalEntityManager;
 import brooklyn.policy.Policy;
 import brooklyn.policy.basic.AbstractPolicy;
 import brooklyn.rest.domain.ApplicationSpec;
@@ -56,6 +60,9 @@ public class BrooklynRestResourceUtils {
 
     private static final Logger log = LoggerFactory.getLogger(BrooklynRestResourceUtils.class);
 
+    /** distinguishes ETags from those of previous runs of the server, where versions restart from zero */
+    private static final String ETAG_PREFIX = Long.toHexString(System.currentTimeMillis());
+
     private final ManagementContext mgmt;
     
     public BrooklynRestResourceUtils(ManagementContext mgmt) {
@@ -143,6 +150,12 @@ public class BrooklynRestResourceUtils {
     public Application getApplication(String application) {
         Entity e = mgmt.getEntityManager().getEntity(application);
         if (e!=null && e instanceof Application) return (Application)e;
+        if (mgmt.getEntityManager() instanceof LocalEntityManager) {
+            for (Entity named: ((LocalEntityManager)mgmt.getEntityManager()).getEntitiesWithDisplayName(application)) {
+                if (named instanceof Application && named.getParent()==null) return (Application)named;
+            }
+        }
+        // fall back to scanning, for case-insensitive matches
         for (Application app: mgmt.getApplications()) {
             if (app.getId().equals(application)) return app;
             if (application.equalsIgnoreCase(app.getDisplayName())) return app;
@@ -150,18 +163,61 @@ public class BrooklynRestResourceUtils {
         throw notFound("Application '%s' not found", application);
     }
 
-    /** walks the hierarchy (depth-first) at root (often an Application) looking for
-     * an entity matching the given ID or name; returns the first such entity, or null if none found
+    /** looks in the hierarchy at root (often an Application) for an entity matching the given ID or name;
+     * returns the first such entity (depth-first), or null if none found.
+     * <p>
+     * uses the entity manager's display name index where available, so only walks the hierarchy
+     * if several entities have that name.
      **/
     public EntityLocal searchForEntityNamed(Entity root, String entity) {
+        if (mgmt.getEntityManager() instanceof LocalEntityManager) {
+            Entity byId = mgmt.getEntityManager().getEntity(entity);
+            if (byId!=null && (byId.equals(root) || Entities.isAncestor(byId, root))) return (EntityLocal) byId;
+            
+            Entity match = null;
+            int numMatches = 0;
+            for (Entity named: ((LocalEntityManager)mgmt.getEntityManager()).getEntitiesWithDisplayName(entity)) {
+                if (named.equals(root) || Entities.isAncestor(named, root)) {
+                    match = named;
+                    numMatches++;
+                }
+            }
+            if (numMatches==0) return null;
+            if (numMatches==1) return (EntityLocal) match;
+        }
+        return searchTreeForEntityNamed(root, entity);
+    }
+    
+    private EntityLocal searchTreeForEntityNamed(Entity root, String entity) {
         if (root.getId().equals(entity) || entity.equals(root.getDisplayName())) return (EntityLocal) root;
         for (Entity child: root.getChildren()) {
-            Entity result = searchForEntityNamed(child, entity);
+            Entity result = searchTreeForEntityNamed(child, entity);
             if (result!=null) return (EntityLocal) result;
         }
         return null;
     }
 
+    /** an ETag which changes whenever the hierarchy of managed entities (or their names) may have changed,
+     * or null if the entity manager does not support this */
+    public EntityTag getEntityTreeTag() {
+        if (!(mgmt.getEntityManager() instanceof LocalEntityManager)) return null;
+        LocalEntityManager entityManager = (LocalEntityManager) mgmt.getEntityManager();
+        return new EntityTag(ETAG_PREFIX+"-"+Integer.toHexString(System.identityHashCode(entityManager))+"-"+entityManager.getVersion());
+    }
+
+    /** an ETag which changes whenever any attribute of the given entity may have changed */
+    public EntityTag getAttributesTag(Entity entity) {
+        return new EntityTag(ETAG_PREFIX+"-"+entity.getId()+"-"+((EntityInternal)entity).getAttributesVersion());
+    }
+
+    /** returns a 304 response if the request's preconditions (e.g. If-None-Match) match the given tag,
+     * or null if the request should be served in full */
+    public static Response evaluatePreconditions(Request request, EntityTag tag) {
+        if (request==null || tag==null) return null;
+        ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        return (notModified!=null) ? notModified.build() : null;
+    }
+
     @SuppressWarnings("unchecked")
     public Application create(ApplicationSpec spec) {
         log.debug("REST creating application instance for {}", spec);
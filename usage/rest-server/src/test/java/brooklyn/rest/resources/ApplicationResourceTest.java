@@ -2,6 +2,7 @@ package brooklyn.rest.resources;
 
 import static com.google.common.collect.Iterables.find;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
@@ -10,6 +11,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.slf4j.Logger;
@@ -19,6 +22,7 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.basic.BasicApplication;
+import brooklyn.entity.basic.EntityLocal;
 import brooklyn.entity.basic.Lifecycle;
 import brooklyn.location.Location;
 import brooklyn.location.basic.AbstractLocation;
@@ -39,6 +43,7 @@ import brooklyn.rest.testing.mocks.CapitalizePolicy;
 import brooklyn.rest.testing.mocks.RestMockApp;
 import brooklyn.rest.testing.mocks.RestMockAppBuilder;
 import brooklyn.rest.testing.mocks.RestMockSimpleEntity;
+import brooklyn.rest.util.BrooklynRestResourceUtils;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
@@ -293,6 +298,46 @@ public class ApplicationResourceTest extends BrooklynRestResourceTest {
   }
 
   @Test(dependsOnMethods = "testBatchSensorValues")
+  public void testBatchSensorValuesNotModifiedUntilSensorChanges() {
+    String uri = "/v1/applications/simple-app/entities/simple-ent/sensors/current-state";
+    ClientResponse response = client().resource(uri).get(ClientResponse.class);
+    assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    EntityTag tag = response.getEntityTag();
+    assertNotNull(tag);
+
+    response = client().resource(uri).header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get(ClientResponse.class);
+    assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+
+    EntityLocal entity = new BrooklynRestResourceUtils(getManagementContext()).getEntity("simple-app", "simple-ent");
+    entity.setAttribute(RestMockSimpleEntity.SAMPLE_SENSOR, "foo4");
+    response = client().resource(uri).header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get(ClientResponse.class);
+    assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    assertEquals(response.getEntity(new GenericType<Map<String,String>>() {}).get(RestMockSimpleEntity.SAMPLE_SENSOR.getName()), "foo4");
+  }
+
+  @Test(dependsOnMethods = "testDeployApplication")
+  public void testApplicationTreeNotModifiedUntilHierarchyChanges() {
+    ClientResponse response = client().resource("/v1/applications/tree").get(ClientResponse.class);
+    assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    EntityTag tag = response.getEntityTag();
+    assertNotNull(tag);
+
+    response = client().resource("/v1/applications/tree").header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get(ClientResponse.class);
+    assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+
+    EntityLocal entity = new BrooklynRestResourceUtils(getManagementContext()).getEntity("simple-app", "simple-ent");
+    String oldName = entity.getDisplayName();
+    entity.setDisplayName("simple-ent-renamed");
+    try {
+      response = client().resource("/v1/applications/tree").header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get(ClientResponse.class);
+      assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+      assertTrue(response.getEntity(String.class).contains("simple-ent-renamed"));
+    } finally {
+      entity.setDisplayName(oldName);
+    }
+  }
+
+  @Test(dependsOnMethods = "testBatchSensorValuesNotModifiedUntilSensorChanges")
   public void testReadEachSensor() {
     Set<SensorSummary> sensors = client().resource("/v1/applications/simple-app/entities/simple-ent/sensors")
         .get(new GenericType<Set<SensorSummary>>() {
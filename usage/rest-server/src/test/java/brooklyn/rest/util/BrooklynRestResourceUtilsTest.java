@@ -3,9 +3,12 @@ package brooklyn.rest.util;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.Map;
 
+import javax.ws.rs.WebApplicationException;
+
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -90,6 +93,32 @@ public class BrooklynRestResourceUtilsTest {
         assertEquals(subappPolicy.getName(), "mypolicy");
     }
 
+    @Test
+    public void testGetEntityByNameWithinApplication() {
+        MyApplicationImpl app = new MyApplicationImpl();
+        app.setDisplayName("app");
+        TestEntityImpl entity = new TestEntityImpl(MutableMap.of("displayName", "myentity"), app);
+        Entities.startManagement(app, managementContext);
+        
+        MyApplicationImpl app2 = new MyApplicationImpl();
+        app2.setDisplayName("app2");
+        TestEntityImpl entity2 = new TestEntityImpl(MutableMap.of("displayName", "myentity"), app2);
+        Entities.startManagement(app2, managementContext);
+        
+        assertEquals(util.getApplication("app2").getId(), app2.getId());
+        assertEquals(util.getEntity("app", "myentity").getId(), entity.getId());
+        assertEquals(util.getEntity("app2", "myentity").getId(), entity2.getId());
+        
+        entity2.setDisplayName("renamed");
+        assertEquals(util.getEntity("app2", "renamed").getId(), entity2.getId());
+        try {
+            util.getEntity("app2", "myentity");
+            fail();
+        } catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), 404);
+        }
+    }
+
     public interface MyInterface {
     }
 
@@ -0,0 +1,258 @@
+package brooklyn.util.collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Keeps the timestamped values that are in the given time-period (millis), as primitives in a
+ * ring buffer, like a {@link TimeWindowedList} of numbers but without boxing or copying.
+ * It also guarantees to keep the given minimum number of values (even if old), and to keep the
+ * given number of out-of-date values.
+ * <p>
+ * Appending and expiring values is (amortized) constant time, and the buffer only grows to the
+ * largest number of values held at once. The sum, mean, minimum and maximum of all values held
+ * are maintained incrementally, so are constant time; the minimum and maximum of just the most
+ * recent values (see {@link #getMin(int)}) take logarithmic time.
+ * <p>
+ * Values are expected to be added in timestamp order.
+ */
+public class TimeWindowedDoubleBuffer {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile long timePeriod;
+    private final int minVals;
+    private final int minExpiredVals;
+
+    // Entries are addressed by sequence number, the entry with sequence seq being at index (seq & mask);
+    // the entries held are those from head (inclusive) to tail (exclusive). All guarded by this.
+    private long[] timestamps;
+    private double[] values;
+    private int mask;
+    private long head;
+    private long tail;
+
+    // Sequence numbers of the entries which are the minimum (or maximum) of all entries since them,
+    // oldest first; so the first is the minimum (or maximum) of all entries.
+    private long[] minSeqs;
+    private long minHead;
+    private long minTail;
+    private long[] maxSeqs;
+    private long maxHead;
+    private long maxTail;
+
+    private double sum;
+    private double timeWeightedSum;
+
+    public TimeWindowedDoubleBuffer(long timePeriod) {
+        this(timePeriod, 0, 0);
+    }
+
+    public TimeWindowedDoubleBuffer(long timePeriod, int minVals, int minExpiredVals) {
+        checkArgument(timePeriod >= 0, "timePeriod must not be negative, but was %s", timePeriod);
+        checkArgument(minVals >= 0, "minVals must not be negative, but was %s", minVals);
+        checkArgument(minExpiredVals >= 0, "minExpiredVals must not be negative, but was %s", minExpiredVals);
+        this.timePeriod = timePeriod;
+        this.minVals = minVals;
+        this.minExpiredVals = minExpiredVals;
+        timestamps = new long[INITIAL_CAPACITY];
+        values = new double[INITIAL_CAPACITY];
+        minSeqs = new long[INITIAL_CAPACITY];
+        maxSeqs = new long[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    public void setTimePeriod(long newTimePeriod) {
+        timePeriod = newTimePeriod;
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    public synchronized boolean isEmpty() {
+        return tail == head;
+    }
+
+    /** the timestamp of the value at the given index, where 0 is the oldest held */
+    public synchronized long getTimestamp(int index) {
+        checkElementIndex(index, size());
+        return timestamps[slot(head + index)];
+    }
+
+    /** the value at the given index, where 0 is the oldest held */
+    public synchronized double getValue(int index) {
+        checkElementIndex(index, size());
+        return values[slot(head + index)];
+    }
+
+    /** the number of values held with a timestamp before the given time, i.e. the index of the first at or after it */
+    public synchronized int countBefore(long timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[slot(head + mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** the sum of all values held (0 if empty) */
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    /** the mean of all values held, or NaN if empty */
+    public synchronized double getMean() {
+        return isEmpty() ? Double.NaN : sum / size();
+    }
+
+    /** the minimum of all values held, or NaN if empty */
+    public synchronized double getMin() {
+        return isEmpty() ? Double.NaN : values[slot(minSeqs[slot(minHead)])];
+    }
+
+    /** the maximum of all values held, or NaN if empty */
+    public synchronized double getMax() {
+        return isEmpty() ? Double.NaN : values[slot(maxSeqs[slot(maxHead)])];
+    }
+
+    /** the minimum of the values from the given index (where 0 is the oldest held) to the most recent */
+    public synchronized double getMin(int fromIndex) {
+        checkElementIndex(fromIndex, size());
+        return values[slot(firstSeqAtOrAfter(minSeqs, minHead, minTail, head + fromIndex))];
+    }
+
+    /** the maximum of the values from the given index (where 0 is the oldest held) to the most recent */
+    public synchronized double getMax(int fromIndex) {
+        checkElementIndex(fromIndex, size());
+        return values[slot(firstSeqAtOrAfter(maxSeqs, maxHead, maxTail, head + fromIndex))];
+    }
+
+    /**
+     * The sum of each value held, other than the oldest, multiplied by the time (millis) since the value
+     * before it; i.e. the integral of the values over time, treating each value as applying since the
+     * previous one. 0 if fewer than two values are held.
+     */
+    public synchronized double getTimeWeightedSum() {
+        return timeWeightedSum;
+    }
+
+    public void add(long timestamp, double value) {
+        checkArgument(!Double.isNaN(value), "value must not be NaN");
+        synchronized (this) {
+            if (size() == values.length) grow();
+
+            if (tail > head) {
+                timeWeightedSum += value * (timestamp - timestamps[slot(tail - 1)]);
+            }
+            timestamps[slot(tail)] = timestamp;
+            values[slot(tail)] = value;
+            sum += value;
+
+            // previous entries no smaller (or no larger) can no longer be the minimum (or maximum) of any suffix
+            while (minTail > minHead && values[slot(minSeqs[slot(minTail - 1)])] >= value) minTail--;
+            minSeqs[slot(minTail++)] = tail;
+            while (maxTail > maxHead && values[slot(maxSeqs[slot(maxTail - 1)])] <= value) maxTail--;
+            maxSeqs[slot(maxTail++)] = tail;
+
+            tail++;
+            pruneValues(timestamp);
+        }
+    }
+
+    public synchronized void pruneValues(long now) {
+        int size = size();
+        int expiredValsCount = (timePeriod == 0) ? size : countBefore(now - timePeriod);
+        int numToPrune = Math.min(expiredValsCount - minExpiredVals, size - minVals);
+        for (int i = 0; i < numToPrune; i++) {
+            removeOldest();
+        }
+    }
+
+    public synchronized void clear() {
+        head = tail;
+        minHead = minTail;
+        maxHead = maxTail;
+        sum = 0;
+        timeWeightedSum = 0;
+    }
+
+    // must be called while synchronized, and not empty
+    private void removeOldest() {
+        int oldest = slot(head);
+        sum -= values[oldest];
+        if (tail - head > 1) {
+            int next = slot(head + 1);
+            timeWeightedSum -= values[next] * (timestamps[next] - timestamps[oldest]);
+        }
+        if (minSeqs[slot(minHead)] == head) minHead++;
+        if (maxSeqs[slot(maxHead)] == head) maxHead++;
+        head++;
+
+        if (tail - head <= 1) {
+            // recompute, so rounding errors do not accumulate
+            sum = (tail > head) ? values[slot(head)] : 0;
+            timeWeightedSum = 0;
+        }
+    }
+
+    // must be called while synchronized; the sequences held in seqs are increasing
+    private long firstSeqAtOrAfter(long[] seqs, long from, long to, long seq) {
+        while (from < to) {
+            long mid = (from + to) >>> 1;
+            if (seqs[slot(mid)] < seq) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return seqs[slot(from)];
+    }
+
+    // must be called while synchronized
+    private void grow() {
+        int newCapacity = values.length * 2;
+        int newMask = newCapacity - 1;
+        long[] newTimestamps = new long[newCapacity];
+        double[] newValues = new double[newCapacity];
+        for (long seq = head; seq < tail; seq++) {
+            newTimestamps[(int) (seq & newMask)] = timestamps[slot(seq)];
+            newValues[(int) (seq & newMask)] = values[slot(seq)];
+        }
+        long[] newMinSeqs = copySeqs(minSeqs, minHead, minTail, newMask);
+        long[] newMaxSeqs = copySeqs(maxSeqs, maxHead, maxTail, newMask);
+
+        timestamps = newTimestamps;
+        values = newValues;
+        minSeqs = newMinSeqs;
+        maxSeqs = newMaxSeqs;
+        mask = newMask;
+    }
+
+    private long[] copySeqs(long[] seqs, long from, long to, int newMask) {
+        long[] result = new long[newMask + 1];
+        for (long i = from; i < to; i++) {
+            result[(int) (i & newMask)] = seqs[slot(i)];
+        }
+        return result;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq & mask);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder("timePeriod="+timePeriod+", vals=[");
+        for (long seq = head; seq < tail; seq++) {
+            if (seq > head) result.append(", ");
+            result.append(values[slot(seq)]).append("@").append(timestamps[slot(seq)]);
+        }
+        return result.append("]").toString();
+    }
+}
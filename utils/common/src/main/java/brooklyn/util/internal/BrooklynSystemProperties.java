@@ -12,6 +12,22 @@ public class BrooklynSystemProperties {
     // -Dbrooklyn.jsch.exec.delay=100
     public static IntegerSystemProperty JSCH_EXEC_DELAY = new IntegerSystemProperty("brooklyn.jsch.exec.delay");
 
+    /** fraction of a feed's poll period by which its first poll is randomly delayed, so feeds started together do not poll in lockstep */
+    // -Dbrooklyn.poller.jitter=0.1
+    public static DoubleSystemProperty POLLER_JITTER = new DoubleSystemProperty("brooklyn.poller.jitter");
+
+    /** max concurrent connections to any one host:port, for http feeds using the shared connection pool */
+    // -Dbrooklyn.http.feed.maxConnectionsPerHost=4
+    public static IntegerSystemProperty HTTP_FEED_MAX_CONNECTIONS_PER_HOST = new IntegerSystemProperty("brooklyn.http.feed.maxConnectionsPerHost");
+
+    /** max concurrent connections in total, for http feeds using the shared connection pool */
+    // -Dbrooklyn.http.feed.maxConnections=200
+    public static IntegerSystemProperty HTTP_FEED_MAX_CONNECTIONS = new IntegerSystemProperty("brooklyn.http.feed.maxConnections");
+
+    /** max number of threads for running the scheduled jobs of policies in each management context (see PolicyScheduler) */
+    // -Dbrooklyn.policy.scheduler.threads=4
+    public static IntegerSystemProperty POLICY_SCHEDULER_THREADS = new IntegerSystemProperty("brooklyn.policy.scheduler.threads");
+
     /** allows specifying a particular geo lookup service (to lookup IP addresses), as the class FQN to use */
     // -Dbrooklyn.location.geo.HostGeoLookup=brooklyn.location.geo.UtraceHostGeoLookup
     public static StringSystemProperty HOST_GEO_LOOKUP_IMPL = new StringSystemProperty("brooklyn.location.geo.HostGeoLookup");
@@ -0,0 +1,77 @@
+package brooklyn.util.math;
+
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * The count, sum, mean, minimum and maximum of a collection of numbers, kept up-to-date as numbers
+ * are added and removed rather than being recomputed over the whole collection. The count, sum and
+ * mean take constant time, and each change (and the minimum and maximum) logarithmic time.
+ * <p>
+ * Not thread-safe.
+ */
+public class RunningAggregate {
+
+    private final TreeMultiset<Double> values = TreeMultiset.create();
+    private double sum;
+
+    public void add(double value) {
+        values.add(value);
+        sum += value;
+    }
+
+    /** removes one occurrence of the given value; returns false (and has no effect) if there was none */
+    public boolean remove(double value) {
+        if (!values.remove(value)) return false;
+        if (values.isEmpty()) {
+            // discard accumulated rounding errors
+            sum = 0;
+        } else {
+            sum -= value;
+        }
+        return true;
+    }
+
+    /** replaces one occurrence of the old value with the new; equivalent to remove then add */
+    public void replace(double oldValue, double newValue) {
+        remove(oldValue);
+        add(newValue);
+    }
+
+    public void clear() {
+        values.clear();
+        sum = 0;
+    }
+
+    public int getCount() {
+        return values.size();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /** the sum, or 0 if empty */
+    public double getSum() {
+        return sum;
+    }
+
+    /** the mean, or NaN if empty */
+    public double getMean() {
+        return values.isEmpty() ? Double.NaN : sum / values.size();
+    }
+
+    /** the minimum, or NaN if empty */
+    public double getMin() {
+        return values.isEmpty() ? Double.NaN : values.firstEntry().getElement();
+    }
+
+    /** the maximum, or NaN if empty */
+    public double getMax() {
+        return values.isEmpty() ? Double.NaN : values.lastEntry().getElement();
+    }
+
+    @Override
+    public String toString() {
+        return "RunningAggregate[count="+getCount()+", sum="+sum+", min="+getMin()+", max="+getMax()+"]";
+    }
+}
@@ -0,0 +1,157 @@
+package brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+public class TimeWindowedDoubleBufferTest {
+
+    private static final double DELTA = 0.0000001;
+
+    @Test
+    public void testKeepsOnlyRecentVals() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L);
+
+        buffer.add(0L, 1);
+        buffer.add(100L, 2);
+        buffer.pruneValues(1000L);
+        assertValues(buffer, 0L, 1d, 100L, 2d);
+        buffer.pruneValues(1100L);
+        assertValues(buffer, 100L, 2d);
+        buffer.pruneValues(1101L);
+        assertValues(buffer);
+    }
+
+    @Test
+    public void testKeepsMinVals() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1L, 2, 0);
+
+        buffer.add(0L, 1);
+        buffer.add(100L, 2);
+        buffer.add(200L, 3);
+        buffer.pruneValues(202L);
+        assertValues(buffer, 100L, 2d, 200L, 3d);
+    }
+
+    @Test
+    public void testKeepsMinExpiredVals() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L, 0, 1);
+
+        buffer.add(0L, 1);
+        buffer.add(100L, 2);
+        buffer.pruneValues(1101L);
+        assertValues(buffer, 100L, 2d);
+        buffer.pruneValues(5000L);
+        assertValues(buffer, 100L, 2d);
+    }
+
+    @Test
+    public void testZeroTimePeriodExpiresAllVals() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(0L, 0, 1);
+
+        buffer.add(0L, 1);
+        buffer.add(0L, 2);
+        assertValues(buffer, 0L, 2d);
+    }
+
+    @Test
+    public void testCountBefore() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L);
+        assertEquals(buffer.countBefore(0L), 0);
+
+        buffer.add(10L, 1);
+        buffer.add(20L, 2);
+        buffer.add(20L, 3);
+        buffer.add(30L, 4);
+        assertEquals(buffer.countBefore(0L), 0);
+        assertEquals(buffer.countBefore(10L), 0);
+        assertEquals(buffer.countBefore(11L), 1);
+        assertEquals(buffer.countBefore(20L), 1);
+        assertEquals(buffer.countBefore(21L), 3);
+        assertEquals(buffer.countBefore(31L), 4);
+    }
+
+    @Test
+    public void testSummariesWhenEmpty() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L);
+        assertEquals(buffer.getSum(), 0d);
+        assertTrue(Double.isNaN(buffer.getMean()));
+        assertTrue(Double.isNaN(buffer.getMin()));
+        assertTrue(Double.isNaN(buffer.getMax()));
+        assertEquals(buffer.getTimeWeightedSum(), 0d);
+    }
+
+    @Test
+    public void testTimeWeightedSum() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L);
+
+        buffer.add(0L, 1);
+        assertEquals(buffer.getTimeWeightedSum(), 0d);
+        buffer.add(100L, 2);
+        buffer.add(300L, 3);
+        assertEquals(buffer.getTimeWeightedSum(), 2*100 + 3*200d);
+        buffer.add(1050L, 4);
+        assertEquals(buffer.getTimeWeightedSum(), 3*200 + 4*750d);
+    }
+
+    @Test
+    public void testSummariesMatchRecomputedAsValuesAddedAndExpired() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(100L);
+        Random random = new Random(1234);
+        long time = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            // occasionally long gaps, so the buffer empties; otherwise many values in the window, so the buffer grows
+            time += (random.nextInt(500) == 0) ? 1000 : random.nextInt(3);
+            buffer.add(time, random.nextInt(100) - 50);
+
+            int size = buffer.size();
+            double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE, timeWeightedSum = 0;
+            for (int j = size-1; j >= 0; j--) {
+                double val = buffer.getValue(j);
+                sum += val;
+                min = Math.min(min, val);
+                max = Math.max(max, val);
+                if (j > 0) timeWeightedSum += val * (buffer.getTimestamp(j) - buffer.getTimestamp(j-1));
+                assertEquals(buffer.getMin(j), min);
+                assertEquals(buffer.getMax(j), max);
+            }
+            assertTrue(buffer.getTimestamp(0) >= time - 100);
+            assertEquals(buffer.getSum(), sum, DELTA);
+            assertEquals(buffer.getMean(), sum / size, DELTA);
+            assertEquals(buffer.getMin(), min);
+            assertEquals(buffer.getMax(), max);
+            assertEquals(buffer.getTimeWeightedSum(), timeWeightedSum, DELTA);
+        }
+    }
+
+    @Test
+    public void testClear() {
+        TimeWindowedDoubleBuffer buffer = new TimeWindowedDoubleBuffer(1000L);
+        buffer.add(0L, 1);
+        buffer.add(100L, 2);
+        buffer.clear();
+        assertValues(buffer);
+        assertEquals(buffer.getSum(), 0d);
+
+        buffer.add(200L, 3);
+        assertValues(buffer, 200L, 3d);
+        assertEquals(buffer.getMin(), 3d);
+        assertEquals(buffer.getMax(), 3d);
+    }
+
+    private void assertValues(TimeWindowedDoubleBuffer buffer, Object... timesAndVals) {
+        List<Object> actual = Lists.newArrayList();
+        for (int i = 0; i < buffer.size(); i++) {
+            actual.add(buffer.getTimestamp(i));
+            actual.add(buffer.getValue(i));
+        }
+        assertEquals(actual, Lists.newArrayList(timesAndVals), "buffer="+buffer);
+    }
+}
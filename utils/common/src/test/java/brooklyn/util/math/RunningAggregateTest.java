@@ -0,0 +1,74 @@
+package brooklyn.util.math;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class RunningAggregateTest {
+
+    @Test
+    public void testEmpty() {
+        RunningAggregate aggregate = new RunningAggregate();
+        assertEquals(aggregate.getCount(), 0);
+        assertEquals(aggregate.getSum(), 0d);
+        assertTrue(Double.isNaN(aggregate.getMean()));
+        assertTrue(Double.isNaN(aggregate.getMin()));
+        assertTrue(Double.isNaN(aggregate.getMax()));
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        RunningAggregate aggregate = new RunningAggregate();
+        aggregate.add(3);
+        aggregate.add(1);
+        aggregate.add(3);
+        aggregate.add(8);
+        assertAggregate(aggregate, 4, 15, 1, 8);
+
+        assertTrue(aggregate.remove(8));
+        assertAggregate(aggregate, 3, 7, 1, 3);
+
+        // only one occurrence removed
+        assertTrue(aggregate.remove(3));
+        assertAggregate(aggregate, 2, 4, 1, 3);
+
+        assertFalse(aggregate.remove(5));
+        assertAggregate(aggregate, 2, 4, 1, 3);
+    }
+
+    @Test
+    public void testReplace() {
+        RunningAggregate aggregate = new RunningAggregate();
+        aggregate.add(1);
+        aggregate.add(2);
+        aggregate.replace(2, 10);
+        assertAggregate(aggregate, 2, 11, 1, 10);
+        aggregate.replace(1, 20);
+        assertAggregate(aggregate, 2, 30, 10, 20);
+    }
+
+    @Test
+    public void testSumResetWhenEmptied() {
+        RunningAggregate aggregate = new RunningAggregate();
+        aggregate.add(0.1);
+        aggregate.add(0.2);
+        aggregate.remove(0.1);
+        aggregate.remove(0.2);
+        assertEquals(aggregate.getSum(), 0d);
+
+        aggregate.add(0.3);
+        aggregate.clear();
+        assertEquals(aggregate.getCount(), 0);
+        assertEquals(aggregate.getSum(), 0d);
+    }
+
+    private void assertAggregate(RunningAggregate aggregate, int count, double sum, double min, double max) {
+        assertEquals(aggregate.getCount(), count);
+        assertEquals(aggregate.getSum(), sum);
+        assertEquals(aggregate.getMean(), sum / count);
+        assertEquals(aggregate.getMin(), min);
+        assertEquals(aggregate.getMax(), max);
+    }
+}